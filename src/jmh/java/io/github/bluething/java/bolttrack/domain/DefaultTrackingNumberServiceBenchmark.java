@@ -0,0 +1,77 @@
+package io.github.bluething.java.bolttrack.domain;
+
+import io.github.bluething.java.bolttrack.persistence.TrackingNumberDocument;
+import io.github.bluething.java.bolttrack.persistence.TrackingNumberRepository;
+import io.github.bluething.java.bolttrack.persistence.TrackingNumberWriter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Service overhead around generation with an in-memory, do-nothing repository,
+ * i.e. everything /next-tracking-number pays except the Mongo round trip.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DefaultTrackingNumberServiceBenchmark {
+    private DefaultTrackingNumberService service;
+    private TrackingNumberRecords.CreateTrackingNumberCommand command;
+
+    @Setup
+    public void setUp() {
+        TrackingNumberRepository repository = (TrackingNumberRepository) Proxy.newProxyInstance(
+                TrackingNumberRepository.class.getClassLoader(),
+                new Class<?>[]{TrackingNumberRepository.class},
+                (proxy, method, args) -> args != null && args.length == 1 ? args[0] : null);
+        TrackingNumberWriter writer = new TrackingNumberWriter() {
+            @Override
+            public void write(TrackingNumberDocument doc) {
+            }
+
+            @Override
+            public void writeAll(List<TrackingNumberDocument> docs) {
+            }
+
+            @Override
+            public Optional<TrackingNumberDocument> updateStatusIfIn(String trackingNumber, String status,
+                                                                     Collection<String> predecessors, Instant updatedAt) {
+                return Optional.empty();
+            }
+        };
+        service = new DefaultTrackingNumberService(new SnowflakeTrackingNumberGenerator(() -> 1), repository, writer, new NoOpTrackingDetailCache(),
+                new NoOpTrackingNumberFilter(),
+                new TrackingNumberValidator(new TrackingValidationProperties(Duration.ofDays(400), Duration.ofSeconds(5)),
+                        new SimpleMeterRegistry()));
+        command = new TrackingNumberRecords.CreateTrackingNumberCommand(
+                "MY", "ID",
+                new BigDecimal("1.234"),
+                Instant.parse("2025-06-26T10:00:00Z"),
+                UUID.fromString("de619854-b59b-425e-9db4-943979e1bd49"),
+                "RedBox Logistics",
+                "redbox-logistics");
+    }
+
+    @Benchmark
+    public TrackingNumberRecords.TrackingNumberData generate() {
+        return service.generate(command);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(1_000)
+    public TrackingNumberRecords.TrackingNumberBatchData generateBatch_1000() {
+        return service.generateBatch(command, 1_000);
+    }
+}
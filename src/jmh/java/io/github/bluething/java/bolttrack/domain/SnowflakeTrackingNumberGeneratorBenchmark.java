@@ -0,0 +1,81 @@
+package io.github.bluething.java.bolttrack.domain;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the shared generator as contention on its CAS state grows.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SnowflakeTrackingNumberGeneratorBenchmark {
+    /** Two milliseconds worth of sequence values, so every invocation rolls the sequence over. */
+    private static final int OVERFLOW_BURST = 2 * 4096;
+
+    /** 1 = single shared CAS state, more = striped sub-generators. */
+    @Param({"1", "8"})
+    public int stripes;
+
+    /** 0 = spin on sequence overflow, more = borrow up to that many ms ahead of the clock. */
+    @Param({"0", "5"})
+    public long maxClockDriftMs;
+
+    private SnowflakeTrackingNumberGenerator generator;
+
+    @Setup
+    public void setUp() {
+        generator = new SnowflakeTrackingNumberGenerator(() -> 1,
+                new TrackingGeneratorProperties(stripes, Duration.ofMillis(maxClockDriftMs), false),
+                new SimpleMeterRegistry());
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String generate_1thread() {
+        return generator.generateTrackingNumber();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String generate_4threads() {
+        return generator.generateTrackingNumber();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public String generate_16threads() {
+        return generator.generateTrackingNumber();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public String generate_64threads() {
+        return generator.generateTrackingNumber();
+    }
+
+    @Benchmark
+    @Threads(1)
+    @OperationsPerInvocation(OVERFLOW_BURST)
+    public String generate_sequenceOverflow() {
+        String last = null;
+        for (int i = 0; i < OVERFLOW_BURST; i++) {
+            last = generator.generateTrackingNumber();
+        }
+        return last;
+    }
+
+    @Benchmark
+    @Threads(1)
+    @OperationsPerInvocation(1_000)
+    public List<String> generateBatch_1000() {
+        return generator.generateTrackingNumbers(1_000);
+    }
+}
@@ -0,0 +1,60 @@
+package io.github.bluething.java.bolttrack.domain;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TrackingNumberCodec vs the Long.toString(rawId, 36).toUpperCase() it replaced.
+ * Run with {@code -prof gc} to compare allocation per operation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TrackingNumberCodecBenchmark {
+    private static final int SAMPLES = 1024;
+
+    private final long[] rawIds = new long[SAMPLES];
+    private final String[] trackingNumbers = new String[SAMPLES];
+    private int cursor;
+
+    @Setup
+    public void setUp() {
+        long now = System.currentTimeMillis() - SnowflakeId.DEFAULT_EPOCH;
+        for (int i = 0; i < SAMPLES; i++) {
+            rawIds[i] = SnowflakeId.toRawId(
+                    now - ThreadLocalRandom.current().nextLong(86_400_000L),
+                    ThreadLocalRandom.current().nextInt(1024),
+                    ThreadLocalRandom.current().nextInt(4096));
+            trackingNumbers[i] = TrackingNumberCodec.encode(rawIds[i]);
+        }
+    }
+
+    private int next() {
+        return cursor = (cursor + 1) & (SAMPLES - 1);
+    }
+
+    @Benchmark
+    public String encodeLongToStringUpperCase() {
+        return Long.toString(rawIds[next()], 36).toUpperCase();
+    }
+
+    @Benchmark
+    public String encodeCodec() {
+        return TrackingNumberCodec.encode(rawIds[next()]);
+    }
+
+    @Benchmark
+    public long decodeParseLong() {
+        return Long.parseLong(trackingNumbers[next()], 36);
+    }
+
+    @Benchmark
+    public long decodeCodec() {
+        return TrackingNumberCodec.decode(trackingNumbers[next()]);
+    }
+}
@@ -0,0 +1,32 @@
+package io.github.bluething.java.bolttrack.domain;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TrackingStatusBenchmark {
+    private static final TrackingStatus[] STATUSES = TrackingStatus.values();
+
+    /** Every (from, to) pair once per invocation, legal and illegal alike. */
+    @Benchmark
+    @OperationsPerInvocation(64)
+    public void canTransitionTo_allPairs(Blackhole bh) {
+        for (TrackingStatus from : STATUSES) {
+            for (TrackingStatus to : STATUSES) {
+                bh.consume(from.canTransitionTo(to));
+            }
+        }
+    }
+
+    @Benchmark
+    public TrackingStatus valueOf() {
+        return TrackingStatus.valueOf("OUT_FOR_DELIVERY");
+    }
+}
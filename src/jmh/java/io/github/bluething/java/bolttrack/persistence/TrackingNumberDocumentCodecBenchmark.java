@@ -0,0 +1,102 @@
+package io.github.bluething.java.bolttrack.persistence;
+
+import com.mongodb.MongoClientSettings;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonBinaryWriter;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.UuidRepresentation;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.codecs.configuration.CodecRegistries;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.io.BasicOutputBuffer;
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TrackingNumberDocument to and from BSON bytes: the reflective MappingMongoConverter (entity to
+ * Document, then DocumentCodec) vs TrackingNumberDocumentCodec. Run with {@code -prof gc} to
+ * compare allocation per operation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TrackingNumberDocumentCodecBenchmark {
+    private static final CodecRegistry REGISTRY = CodecRegistries.withUuidRepresentation(
+            MongoClientSettings.getDefaultCodecRegistry(), UuidRepresentation.JAVA_LEGACY);
+
+    private MappingMongoConverter converter;
+    private Codec<Document> documentCodec;
+    private TrackingNumberDocumentCodec codec;
+    private TrackingNumberDocument doc;
+    private byte[] bson;
+
+    @Setup
+    public void setUp() {
+        converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, new MongoMappingContext());
+        converter.afterPropertiesSet();
+        documentCodec = REGISTRY.get(Document.class);
+        codec = new TrackingNumberDocumentCodec(new TrackingNumberKeys(
+                new TrackingStorageProperties(TrackingStorageProperties.IdMode.OBJECT_ID, false, 1000, true,
+                TrackingStorageProperties.Partitioning.NONE, 13)), REGISTRY);
+        doc = new TrackingNumberDocument(
+                new ObjectId(),
+                "DEF123XYZ",
+                "MY", "ID",
+                new BigDecimal("1.234"),
+                UUID.fromString("de619854-b59b-425e-9db4-943979e1bd49"),
+                "RedBox Logistics",
+                "redbox-logistics",
+                Instant.parse("2025-06-26T10:05:00.123Z"),
+                "IN_TRANSIT",
+                Instant.parse("2025-06-27T08:00:00.456Z"),
+                Map.of("fragile", true, "pieces", 3));
+        bson = new RawBsonDocument(doc, codec).getByteBuffer().array();
+    }
+
+    @Benchmark
+    public byte[] write_reflective() {
+        Document raw = new Document();
+        converter.write(doc, raw);
+        return encode(documentCodec, raw);
+    }
+
+    @Benchmark
+    public byte[] write_codec() {
+        return encode(codec, doc);
+    }
+
+    @Benchmark
+    public TrackingNumberDocument read_reflective() {
+        Document raw = documentCodec.decode(new BsonBinaryReader(ByteBuffer.wrap(bson)), DecoderContext.builder().build());
+        return converter.read(TrackingNumberDocument.class, raw);
+    }
+
+    @Benchmark
+    public TrackingNumberDocument read_codec() {
+        return codec.decode(new BsonBinaryReader(ByteBuffer.wrap(bson)), DecoderContext.builder().build());
+    }
+
+    private static <T> byte[] encode(Codec<T> codec, T value) {
+        BasicOutputBuffer buffer = new BasicOutputBuffer();
+        try (BsonBinaryWriter writer = new BsonBinaryWriter(buffer)) {
+            codec.encode(writer, value, EncoderContext.builder().build());
+        }
+        return buffer.toByteArray();
+    }
+}
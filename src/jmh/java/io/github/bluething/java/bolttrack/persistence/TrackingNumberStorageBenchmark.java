@@ -0,0 +1,122 @@
+package io.github.bluething.java.bolttrack.persistence;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import io.github.bluething.java.bolttrack.domain.SnowflakeId;
+import io.github.bluething.java.bolttrack.domain.TrackingNumberCodec;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mapping.callback.EntityCallbacks;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.testcontainers.mongodb.MongoDBAtlasLocalContainer;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ObjectId {@code _id} plus unique tracking_number index vs the Snowflake long as {@code _id},
+ * against a real MongoDB in a container: bulk insert throughput and single lookup latency.
+ */
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TrackingNumberStorageBenchmark {
+    private static final int PRELOADED = 200_000;
+    private static final int BATCH_SIZE = 500;
+
+    @Param({"OBJECT_ID", "SNOWFLAKE"})
+    public String idMode;
+
+    private MongoDBAtlasLocalContainer mongo;
+    private MongoClient client;
+    private MongoTemplate mongoTemplate;
+    private TrackingNumberRepositoryCustomImpl repository;
+    private final List<String> preloaded = new ArrayList<>(PRELOADED);
+    private long baseTimestampMs;
+    private long sequence;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        mongo = new MongoDBAtlasLocalContainer("mongodb/mongodb-atlas-local:8.0.4");
+        mongo.start();
+        client = MongoClients.create(mongo.getConnectionString());
+        mongoTemplate = new MongoTemplate(client, "bench");
+        TrackingStorageProperties.IdMode mode = TrackingStorageProperties.IdMode.valueOf(idMode);
+        TrackingStorageProperties properties = new TrackingStorageProperties(mode, false, 1000, false,
+                TrackingStorageProperties.Partitioning.NONE, 13);
+        TrackingNumberKeys keys = new TrackingNumberKeys(properties);
+        mongoTemplate.setEntityCallbacks(EntityCallbacks.create(new TrackingNumberIdCallback(keys)));
+        repository = new TrackingNumberRepositoryCustomImpl(mongoTemplate, keys,
+                new TrackingNumberCollection(mongoTemplate, keys, properties),
+                new TrackingNumberPartitions(mongoTemplate, properties));
+
+        if (mode == TrackingStorageProperties.IdMode.OBJECT_ID) {
+            mongoTemplate.indexOps(TrackingNumberDocument.class)
+                    .ensureIndex(new Index().on("tracking_number", Sort.Direction.ASC).unique());
+        }
+        baseTimestampMs = System.currentTimeMillis() - Instant.parse("2025-01-01T00:00:00Z").toEpochMilli();
+        for (int from = 0; from < PRELOADED; from += BATCH_SIZE) {
+            List<TrackingNumberDocument> batch = nextBatch();
+            batch.forEach(doc -> preloaded.add(doc.getTrackingNumber()));
+            insert(batch);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        client.close();
+        mongo.stop();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void insertBatch_500() {
+        insert(nextBatch());
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Object findByTrackingNumber() {
+        String trackingNumber = preloaded.get(ThreadLocalRandom.current().nextInt(preloaded.size()));
+        return repository.findByTrackingNumber(trackingNumber).orElseThrow();
+    }
+
+    private void insert(List<TrackingNumberDocument> docs) {
+        mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, TrackingNumberDocument.class)
+                .insert(docs)
+                .execute();
+    }
+
+    /** Numbers as the generator mints them: increasing, from one worker. */
+    private synchronized List<TrackingNumberDocument> nextBatch() {
+        List<TrackingNumberDocument> docs = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            long seq = sequence++;
+            String trackingNumber = TrackingNumberCodec.encode(
+                    SnowflakeId.toRawId(baseTimestampMs + (seq >>> 12), 1, seq & 0xFFF));
+            docs.add(new TrackingNumberDocument(
+                    null,
+                    trackingNumber,
+                    "MY", "ID",
+                    new BigDecimal("1.234"),
+                    UUID.fromString("de619854-b59b-425e-9db4-943979e1bd49"),
+                    "RedBox Logistics",
+                    "redbox-logistics",
+                    Instant.now(),
+                    "CREATED",
+                    null));
+        }
+        return docs;
+    }
+}
@@ -0,0 +1,82 @@
+package io.github.bluething.java.bolttrack.rest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.bluething.java.bolttrack.domain.TrackingNumberRecords;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * REST-side conversions on the request path, plus JSON rendering of the detail response.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TrackingRestMapperBenchmark {
+    private ObjectMapper objectMapper;
+    private TrackingNumberRequest request;
+    private TrackingNumberRecords.TrackingNumberData numberData;
+    private TrackingNumberRecords.TrackingDetailData detailData;
+    private TrackingDetailResponse detailResponse;
+
+    @Setup
+    public void setUp() {
+        // same defaults Spring Boot applies to its ObjectMapper (ISO dates, JavaTimeModule)
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        UUID customerId = UUID.fromString("de619854-b59b-425e-9db4-943979e1bd49");
+        request = new TrackingNumberRequest("MY", "ID",
+                new BigDecimal("1.234"),
+                Instant.parse("2025-06-26T10:00:00Z"),
+                customerId,
+                "RedBox Logistics",
+                "redbox-logistics");
+        numberData = new TrackingNumberRecords.TrackingNumberData("1SX0EH1LMOSG", Instant.parse("2025-06-26T10:00:00Z"));
+        detailData = new TrackingNumberRecords.TrackingDetailData(
+                "1SX0EH1LMOSG",
+                "MY", "ID",
+                new BigDecimal("1.234"),
+                Instant.parse("2025-06-26T10:00:00Z"),
+                customerId,
+                "RedBox Logistics",
+                "redbox-logistics",
+                Instant.parse("2025-06-26T10:00:01Z"),
+                "IN_TRANSIT",
+                Map.of("fragile", true, "dimensions", "30x20x10"));
+        detailResponse = TrackingRestMapper.toDetailRest(detailData);
+    }
+
+    @Benchmark
+    public TrackingNumberRecords.CreateTrackingNumberCommand toDto() {
+        return TrackingRestMapper.toDto(request);
+    }
+
+    // response types are package-private, so hand them to JMH as Object
+    @Benchmark
+    public Object toRest() {
+        return TrackingRestMapper.toRest(numberData);
+    }
+
+    @Benchmark
+    public Object toDetailRest() {
+        return TrackingRestMapper.toDetailRest(detailData);
+    }
+
+    @Benchmark
+    public byte[] serializeDetailResponse() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(detailResponse);
+    }
+
+    @Benchmark
+    public byte[] toDetailRestAndSerialize() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(TrackingRestMapper.toDetailRest(detailData));
+    }
+}
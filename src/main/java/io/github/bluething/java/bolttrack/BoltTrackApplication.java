@@ -2,8 +2,10 @@ package io.github.bluething.java.bolttrack;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 
 @SpringBootApplication
+@ConfigurationPropertiesScan
 public class BoltTrackApplication {
 
     public static void main(String[] args) {
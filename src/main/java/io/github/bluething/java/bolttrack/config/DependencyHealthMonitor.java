@@ -0,0 +1,126 @@
+package io.github.bluething.java.bolttrack.config;
+
+import io.github.bluething.java.bolttrack.domain.WorkerIdProvider;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checks MongoDB and the Redis worker lease on a schedule of its own and keeps the last result,
+ * so health probes only read memory and never add load to either store.
+ */
+@Component
+@Slf4j
+class DependencyHealthMonitor implements SmartLifecycle {
+    static final String MONGO = "mongo";
+    static final String REDIS = "redis";
+
+    /** Result of one check; {@code error} is null when it passed. */
+    record Check(boolean up, Instant checkedAt, Duration latency, String error) {
+        static final Check NEVER = new Check(false, Instant.EPOCH, Duration.ZERO, "not checked yet");
+    }
+
+    @FunctionalInterface
+    private interface Probe {
+        void run() throws Exception;
+    }
+
+    private static final Document PING = new Document("ping", 1);
+
+    private final MongoTemplate mongoTemplate;
+    private final WorkerIdProvider workerIdProvider;
+    private final Duration interval;
+    private final Map<String, Check> latest = new ConcurrentHashMap<>();
+    private final Map<String, Timer> latency = new LinkedHashMap<>();
+
+    private ScheduledExecutorService scheduler;
+    private volatile boolean running;
+
+    DependencyHealthMonitor(MongoTemplate mongoTemplate,
+                            WorkerIdProvider workerIdProvider,
+                            TrackingHealthProperties properties,
+                            MeterRegistry registry) {
+        this.mongoTemplate = mongoTemplate;
+        this.workerIdProvider = workerIdProvider;
+        this.interval = properties.interval();
+        for (String dependency : new String[]{MONGO, REDIS}) {
+            latest.put(dependency, Check.NEVER);
+            latency.put(dependency, Timer.builder("tracking.health.check")
+                    .description("Time a background health check took")
+                    .tag("dependency", dependency)
+                    .register(registry));
+            Gauge.builder("tracking.health.up", latest, checks -> checks.get(dependency).up() ? 1 : 0)
+                    .description("1 if the last health check passed, 0 otherwise")
+                    .tag("dependency", dependency)
+                    .register(registry);
+        }
+    }
+
+    /**
+     * The latest result per dependency, in a fixed order.
+     */
+    Map<String, Check> latest() {
+        Map<String, Check> copy = new LinkedHashMap<>();
+        latency.keySet().forEach(dependency -> copy.put(dependency, latest.get(dependency)));
+        return copy;
+    }
+
+    void checkAll() {
+        check(MONGO, () -> mongoTemplate.executeCommand(PING));
+        check(REDIS, () -> {
+            if (!workerIdProvider.holdsLease()) {
+                throw new IllegalStateException("worker id lease lost");
+            }
+        });
+    }
+
+    private void check(String dependency, Probe probe) {
+        long start = System.nanoTime();
+        String error = null;
+        try {
+            probe.run();
+        } catch (Exception ex) {
+            error = ex.getMessage() == null ? ex.getClass().getSimpleName() : ex.getMessage();
+        }
+        Duration took = Duration.ofNanos(System.nanoTime() - start);
+        latency.get(dependency).record(took);
+        Check previous = latest.put(dependency, new Check(error == null, Instant.now(), took, error));
+        // once per outage, not on every round
+        if (error != null && (previous.up() || previous == Check.NEVER)) {
+            log.warn("{} health check failed: {}", dependency, error);
+        }
+    }
+
+    @Override
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        // first round right away, so readiness does not wait a whole interval
+        scheduler.scheduleWithFixedDelay(this::checkAll, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (scheduler != null) scheduler.shutdownNow();
+    }
+    @Override public boolean isRunning()    { return running; }
+    @Override public boolean isAutoStartup(){ return true; }
+    @Override public void stop(Runnable callback) {
+        stop(); callback.run();
+    }
+}
@@ -0,0 +1,19 @@
+package io.github.bluething.java.bolttrack.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings for the background dependency checks behind the health endpoint.
+ *
+ * @param interval     pause between two rounds of checks
+ * @param maxStaleness age after which a result no longer counts, e.g. because a check hangs
+ */
+@ConfigurationProperties(prefix = "tracking.health")
+record TrackingHealthProperties(
+        @DefaultValue("5s") Duration interval,
+        @DefaultValue("30s") Duration maxStaleness
+) {
+}
@@ -1,31 +1,43 @@
 package io.github.bluething.java.bolttrack.config;
 
-import io.github.bluething.java.bolttrack.persistence.TrackingNumberRepository;
 import lombok.RequiredArgsConstructor;
-import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.actuate.health.Health;
 import org.springframework.boot.actuate.health.HealthIndicator;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Component;
 
-import java.util.Optional;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
+/**
+ * Reports the results {@link DependencyHealthMonitor} collected in the background. A failed
+ * check, or one older than {@code tracking.health.max-staleness}, makes the system DOWN.
+ */
 @Component
 @RequiredArgsConstructor
-@Slf4j
 class TrackingSystemHealthIndicator implements HealthIndicator {
-    private final TrackingNumberRepository repository;
+    private final DependencyHealthMonitor monitor;
+    private final TrackingHealthProperties properties;
+
     @Override
     public Health health() {
-        try {
-            // This issues a findOne with limit(1) under the hood
-            Optional<?> any = repository.findAll(PageRequest.of(0,1))
-                    .stream().findFirst();
-            // we don't care if it's empty—just that it queried successfully
-            return Health.up().withDetail("database", "read OK").build();
-        } catch (Exception ex) {
-            log.error("Db was down {}", ex.getMessage(), ex);
-            return Health.down(ex).withDetail("database", "read failed").build();
+        Instant staleBefore = Instant.now().minus(properties.maxStaleness());
+        boolean up = true;
+        Map<String, Object> details = new LinkedHashMap<>();
+        for (Map.Entry<String, DependencyHealthMonitor.Check> entry : monitor.latest().entrySet()) {
+            DependencyHealthMonitor.Check check = entry.getValue();
+            boolean stale = check.checkedAt().isBefore(staleBefore);
+            up &= check.up() && !stale;
+
+            Map<String, Object> detail = new LinkedHashMap<>();
+            detail.put("status", !check.up() ? "DOWN" : stale ? "STALE" : "UP");
+            detail.put("checked_at", check.checkedAt());
+            detail.put("latency_ms", check.latency().toMillis());
+            if (check.error() != null) {
+                detail.put("error", check.error());
+            }
+            details.put(entry.getKey(), detail);
         }
+        return (up ? Health.up() : Health.down()).withDetails(details).build();
     }
 }
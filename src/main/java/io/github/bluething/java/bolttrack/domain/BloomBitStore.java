@@ -0,0 +1,63 @@
+package io.github.bluething.java.bolttrack.domain;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Where the bits of each Bloom filter generation live: in this process, or in Redis where every
+ * instance sees every other instance's additions.
+ */
+interface BloomBitStore {
+    /**
+     * Sets the bits at each of {@code positions} in every one of {@code generations}.
+     */
+    void setAll(long[] generations, List<long[]> positions);
+
+    /**
+     * True if every bit at {@code positions} is set in the generation.
+     */
+    boolean allSet(long generation, long[] positions);
+
+    /**
+     * {@link #allSet(long, long[])} for many numbers at once, answered in the order of
+     * {@code positions}.
+     */
+    boolean[] allSet(long generation, List<long[]> positions);
+
+    /**
+     * True once the generation has been rebuilt from the database and can answer lookups.
+     */
+    boolean ready(long generation);
+
+    /**
+     * Claims the rebuild of a generation that is not ready yet; false if another instance has it.
+     */
+    boolean claimBuild(long generation);
+
+    /**
+     * Adds the bits rebuilt from the database to the generation, keeping those set since, and
+     * marks it ready.
+     */
+    void merge(long generation, BloomBits rebuilt);
+
+    /**
+     * Takes the generation out of service after additions to it may have been lost: it answers no
+     * lookups, and no instance rebuilds it for {@code holdOff}.
+     */
+    void invalidate(long generation, Duration holdOff);
+
+    /**
+     * Number of set bits in the generation.
+     */
+    long cardinality(long generation);
+
+    /**
+     * Memory all live generations take, wherever they are kept.
+     */
+    long sizeInBytes();
+
+    /**
+     * Drops every generation older than {@code generation}.
+     */
+    void retireBefore(long generation);
+}
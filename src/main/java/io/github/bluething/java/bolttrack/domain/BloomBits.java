@@ -0,0 +1,70 @@
+package io.github.bluething.java.bolttrack.domain;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed-size, thread-safe bit array in Redis bit order: bit 0 is the most significant bit of
+ * the first byte, so {@link #toByteArray()} can be uploaded as a Redis string and read back with
+ * GETBIT or BITFIELD at the same offsets.
+ */
+class BloomBits {
+    private final long size;
+    private final AtomicLongArray words;
+
+    BloomBits(long size) {
+        this.size = size;
+        this.words = new AtomicLongArray(Math.toIntExact((size + 63) / 64));
+    }
+
+    long size() {
+        return size;
+    }
+
+    void set(long index) {
+        int word = (int) (index >>> 6);
+        long mask = Long.MIN_VALUE >>> (index & 63);
+        long current;
+        do {
+            current = words.get(word);
+            if ((current & mask) != 0) {
+                return;
+            }
+        } while (!words.compareAndSet(word, current, current | mask));
+    }
+
+    boolean get(long index) {
+        return (words.get((int) (index >>> 6)) & (Long.MIN_VALUE >>> (index & 63))) != 0;
+    }
+
+    /**
+     * Sets every bit set in {@code other}, which must have the same size.
+     */
+    void or(BloomBits other) {
+        for (int i = 0; i < words.length(); i++) {
+            long bits = other.words.get(i);
+            if (bits != 0) {
+                words.getAndAccumulate(i, bits, (a, b) -> a | b);
+            }
+        }
+    }
+
+    long cardinality() {
+        long count = 0;
+        for (int i = 0; i < words.length(); i++) {
+            count += Long.bitCount(words.get(i));
+        }
+        return count;
+    }
+
+    long sizeInBytes() {
+        return (long) words.length() * Long.BYTES;
+    }
+
+    byte[] toByteArray() {
+        byte[] bytes = new byte[Math.toIntExact((size + 7) / 8)];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) (words.get(i >>> 3) >>> (56 - 8 * (i & 7)));
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,296 @@
+package io.github.bluething.java.bolttrack.domain;
+
+import io.github.bluething.java.bolttrack.persistence.TrackingNumberRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Bloom filter over every tracking number in storage, so lookups of numbers that were never
+ * issued are answered without touching MongoDB.
+ * <p>
+ * Time is cut into generations of {@code rebuild-interval}. Every issued number goes into the
+ * current and the next generation; {@code settle-time} into a generation, once everything issued
+ * before it has reached MongoDB, the next one is rebuilt from a scan of the database, which is how
+ * deleted and expired numbers eventually drop out. A generation only answers lookups after its
+ * rebuild; until then every lookup goes to the database.
+ */
+@Component
+@ConditionalOnProperty(prefix = "tracking.bloom", name = "enabled", havingValue = "true")
+@Slf4j
+class BloomTrackingNumberFilter implements TrackingNumberFilter, SmartLifecycle {
+    private static final long MAINTENANCE_INTERVAL_MS = TimeUnit.MINUTES.toMillis(1);
+
+    private final TrackingNumberRepository repository;
+    private final BloomBitStore store;
+    private final boolean shared;
+    private final long bits;
+    private final int hashes;
+    private final long intervalMillis;
+    private final long settleMillis;
+    private final long startedAt = System.currentTimeMillis();
+
+    private final Counter absent;
+    private final Counter maybe;
+    private final Counter skipped;
+
+    /** Generations known to be rebuilt; replaced, never modified. */
+    private volatile Set<Long> ready = Set.of();
+    private volatile double falsePositiveRate = 1.0;
+    private ScheduledExecutorService scheduler;
+    private volatile boolean running;
+
+    BloomTrackingNumberFilter(TrackingNumberRepository repository,
+                              StringRedisTemplate redis,
+                              TrackingBloomProperties properties,
+                              MeterRegistry registry) {
+        if (properties.settleTime().compareTo(properties.rebuildInterval()) >= 0) {
+            throw new IllegalArgumentException("tracking.bloom.settle-time must be shorter than tracking.bloom.rebuild-interval");
+        }
+        this.repository = repository;
+        this.shared = properties.shared();
+        double ln2 = Math.log(2);
+        this.bits = (long) Math.ceil(-properties.expectedInsertions() * Math.log(properties.falsePositiveRate()) / (ln2 * ln2));
+        this.hashes = Math.max(1, (int) Math.round((double) bits / properties.expectedInsertions() * ln2));
+        this.intervalMillis = properties.rebuildInterval().toMillis();
+        this.settleMillis = properties.settleTime().toMillis();
+        this.store = shared
+                ? new RedisBloomBitStore(redis, bits, properties.rebuildInterval())
+                : new LocalBloomBitStore(bits);
+
+        this.absent  = checks(registry, "absent");
+        this.maybe   = checks(registry, "maybe");
+        this.skipped = checks(registry, "skipped");
+        Gauge.builder("tracking.bloom.false.positive.rate", this, filter -> filter.falsePositiveRate)
+                .description("Estimated share of unknown tracking numbers the Bloom filter still sends to the database")
+                .register(registry);
+        Gauge.builder("tracking.bloom.size", store, BloomBitStore::sizeInBytes)
+                .description("Memory the Bloom filter generations take")
+                .baseUnit(BaseUnits.BYTES)
+                .tag("location", shared ? "redis" : "local")
+                .register(registry);
+    }
+
+    private static Counter checks(MeterRegistry registry, String result) {
+        return Counter.builder("tracking.bloom.checks")
+                .description("Tracking number lookups checked against the Bloom filter")
+                .tag("result", result)
+                .register(registry);
+    }
+
+    @Override
+    public boolean isDefinitelyAbsent(String trackingNumber) {
+        long[] positions = positions(trackingNumber);
+        long generation = generation(System.currentTimeMillis());
+        if (positions == null || !ready.contains(generation)) {
+            skipped.increment();
+            return false;
+        }
+        boolean present;
+        try {
+            present = store.allSet(generation, positions);
+        } catch (DataAccessException ex) {
+            log.warn("Cannot check tracking number {} against the Bloom filter: {}", trackingNumber, ex.getMessage());
+            skipped.increment();
+            return false;
+        }
+        (present ? maybe : absent).increment();
+        return !present;
+    }
+
+    @Override
+    public Set<String> definitelyAbsent(Collection<String> trackingNumbers) {
+        long generation = generation(System.currentTimeMillis());
+        if (!ready.contains(generation)) {
+            skipped.increment(trackingNumbers.size());
+            return Set.of();
+        }
+        List<String> checked = new ArrayList<>(trackingNumbers.size());
+        List<long[]> positions = new ArrayList<>(trackingNumbers.size());
+        for (String trackingNumber : trackingNumbers) {
+            long[] position = positions(trackingNumber);
+            if (position == null) {
+                skipped.increment();
+            } else {
+                checked.add(trackingNumber);
+                positions.add(position);
+            }
+        }
+        if (checked.isEmpty()) {
+            return Set.of();
+        }
+        boolean[] present;
+        try {
+            present = store.allSet(generation, positions);
+        } catch (DataAccessException ex) {
+            log.warn("Cannot check {} tracking numbers against the Bloom filter: {}", checked.size(), ex.getMessage());
+            skipped.increment(checked.size());
+            return Set.of();
+        }
+        Set<String> neverIssued = new HashSet<>();
+        for (int i = 0; i < present.length; i++) {
+            if (present[i]) {
+                maybe.increment();
+            } else {
+                neverIssued.add(checked.get(i));
+                absent.increment();
+            }
+        }
+        return neverIssued;
+    }
+
+    /**
+     * If the bits cannot be written, takes the generations out of service instead, so lookups go
+     * to the database until they are rebuilt; in shared mode the current one stays out until it
+     * is retired. Fails only if even that cannot be recorded, rather than let a number the filter
+     * does not know about be handed out.
+     */
+    @Override
+    public void addAll(Collection<String> trackingNumbers) {
+        List<long[]> positions = trackingNumbers.stream()
+                .map(this::positions)
+                .filter(Objects::nonNull)
+                .toList();
+        long generation = generation(System.currentTimeMillis());
+        long[] generations = {generation, generation + 1};
+        try {
+            store.setAll(generations, positions);
+        } catch (DataAccessException ex) {
+            log.warn("Cannot add {} tracking numbers to the Bloom filter, lookups skip generations {} and {} until they are rebuilt: {}",
+                    trackingNumbers.size(), generation, generation + 1, ex.getMessage());
+            Set<Long> left = new HashSet<>(ready);
+            left.removeAll(Set.of(generation, generation + 1));
+            ready = Set.copyOf(left);
+            for (long outdated : generations) {
+                // a rebuild only sees the numbers that have reached MongoDB
+                store.invalidate(outdated, Duration.ofMillis(settleMillis));
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the generations that are due, then refreshes what lookups may use.
+     */
+    void maintain(long now) {
+        long current = generation(now);
+        try {
+            // everything issued before this point has reached MongoDB by now
+            long settledSince = Math.max(current * intervalMillis, startedAt) + settleMillis;
+            if (now >= settledSince) {
+                // other instances may have issued numbers before this one started adding them
+                // to the current generation, so only a single instance may rebuild it
+                if (!shared) {
+                    rebuildIfDue(current);
+                }
+                rebuildIfDue(current + 1);
+            }
+            Set<Long> known = new HashSet<>();
+            for (long generation : new long[]{current, current + 1}) {
+                if (store.ready(generation)) {
+                    known.add(generation);
+                }
+            }
+            ready = Set.copyOf(known);
+            if (known.contains(current)) {
+                falsePositiveRate = Math.pow((double) store.cardinality(current) / bits, hashes);
+            }
+            store.retireBefore(current - 1);
+        } catch (RuntimeException ex) {
+            log.warn("Cannot maintain the tracking number Bloom filter: {}", ex.getMessage());
+        }
+    }
+
+    private void rebuildIfDue(long generation) {
+        if (store.ready(generation) || !store.claimBuild(generation)) {
+            return;
+        }
+        long start = System.nanoTime();
+        BloomBits rebuilt = new BloomBits(bits);
+        long count = 0;
+        try (Stream<String> trackingNumbers = repository.streamTrackingNumbers()) {
+            for (Iterator<String> it = trackingNumbers.iterator(); it.hasNext(); ) {
+                long[] positions = positions(it.next());
+                if (positions != null) {
+                    for (long index : positions) {
+                        rebuilt.set(index);
+                    }
+                    count++;
+                }
+            }
+        }
+        store.merge(generation, rebuilt);
+        log.info("Rebuilt Bloom filter generation {} from {} tracking numbers in {} ms",
+                generation, count, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    private long generation(long epochMillis) {
+        return epochMillis / intervalMillis;
+    }
+
+    /**
+     * Bit positions of a tracking number, null if it is not a Snowflake number. The packed id is
+     * hashed twice and combined as h1 + i * h2 (Kirsch and Mitzenmacher), which behaves like
+     * {@code hashes} independent hash functions.
+     */
+    private long[] positions(String trackingNumber) {
+        long rawId;
+        try {
+            rawId = TrackingNumberCodec.decode(trackingNumber);
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+        long h1 = mix(rawId);
+        long h2 = mix(rawId + 0x9E3779B97F4A7C15L) | 1;
+        long[] positions = new long[hashes];
+        for (int i = 0; i < hashes; i++) {
+            positions[i] = Math.floorMod(h1 + i * h2, bits);
+        }
+        return positions;
+    }
+
+    /** MurmurHash3 finalizer. */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 33)) * 0xFF51AFD7ED558CCDL;
+        z = (z ^ (z >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return z ^ (z >>> 33);
+    }
+
+    @Override
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        scheduler.scheduleWithFixedDelay(() -> maintain(System.currentTimeMillis()),
+                0, MAINTENANCE_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (scheduler != null) scheduler.shutdownNow();
+    }
+    @Override public boolean isRunning()    { return running; }
+    @Override public boolean isAutoStartup(){ return true; }
+    @Override public void stop(Runnable callback) {
+        stop(); callback.run();
+    }
+}
@@ -0,0 +1,188 @@
+package io.github.bluething.java.bolttrack.domain;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Serves tracking numbers from a ring that a background producer keeps filled,
+ * so request threads only pay for a single dequeue instead of the CAS loop,
+ * the base-36 encoding and the sequence-overflow spin.
+ */
+@Component
+@Primary
+@ConditionalOnProperty(prefix = "tracking.generator.buffer", name = "enabled", havingValue = "true")
+@Slf4j
+class BufferedTrackingNumberGenerator implements TrackingNumberGenerator, SmartLifecycle {
+    private final TrackingNumberGenerator delegate;
+    private final TrackingNumberRingBuffer buffer;
+    private final int lowWatermark;
+    private final int highWatermark;
+    private final long refillIntervalNanos;
+    private final long maxAgeMillis;
+
+    private final Counter bufferEmpty;
+    private final Counter expired;
+    private final Timer refillLag;
+
+    /** nanoTime at which a consumer first saw the low watermark, 0 when no refill is pending. */
+    private final AtomicLong refillRequestedAt = new AtomicLong(0L);
+    private volatile Thread producer;
+    private volatile boolean running;
+
+    BufferedTrackingNumberGenerator(@Qualifier("snowflakeTrackingNumberGenerator") TrackingNumberGenerator delegate,
+                                    TrackingBufferProperties properties,
+                                    MeterRegistry registry) {
+        this.delegate = delegate;
+        this.buffer = new TrackingNumberRingBuffer(properties.capacity());
+        this.lowWatermark = properties.lowWatermark();
+        this.highWatermark = properties.highWatermark();
+        this.refillIntervalNanos = properties.refillInterval().toNanos();
+        this.maxAgeMillis = properties.maxAge().toMillis();
+
+        this.bufferEmpty = Counter.builder("tracking.number.buffer.empty")
+                .description("Times a request found the tracking number buffer empty")
+                .register(registry);
+        this.expired = Counter.builder("tracking.number.buffer.expired")
+                .description("Buffered tracking numbers dropped for being older than the max age")
+                .register(registry);
+        this.refillLag = Timer.builder("tracking.number.buffer.refill.lag")
+                .description("Time from hitting the low watermark until the buffer is back at the high watermark")
+                .register(registry);
+        Gauge.builder("tracking.number.buffer.size", buffer, TrackingNumberRingBuffer::size)
+                .description("Tracking numbers ready to be handed out")
+                .register(registry);
+    }
+
+    @Override
+    public String generateTrackingNumber() {
+        String trackingNumber = poll(System.currentTimeMillis() - maxAgeMillis);
+        if (trackingNumber == null) {
+            // ran dry: never make the caller wait for the producer
+            bufferEmpty.increment();
+            requestRefill();
+            return delegate.generateTrackingNumber();
+        }
+        if (buffer.size() <= lowWatermark) {
+            requestRefill();
+        }
+        return trackingNumber;
+    }
+
+    @Override
+    public List<String> generateTrackingNumbers(int count) {
+        List<String> trackingNumbers = new ArrayList<>(count);
+        long mintedAfter = System.currentTimeMillis() - maxAgeMillis;
+        String trackingNumber;
+        while (trackingNumbers.size() < count && (trackingNumber = poll(mintedAfter)) != null) {
+            trackingNumbers.add(trackingNumber);
+        }
+        if (trackingNumbers.size() < count) {
+            // large batches go straight to the delegate's block reservation
+            trackingNumbers.addAll(delegate.generateTrackingNumbers(count - trackingNumbers.size()));
+        }
+        if (buffer.size() <= lowWatermark) {
+            requestRefill();
+        }
+        return trackingNumbers;
+    }
+
+    /**
+     * Takes the oldest buffered number minted at or after {@code mintedAfter}, dropping the ones
+     * before it, which a quiet period leaves at the head of the ring. Null if none is left.
+     */
+    private String poll(long mintedAfter) {
+        String trackingNumber;
+        while ((trackingNumber = buffer.poll()) != null) {
+            if (TrackingNumberCodec.decodeId(trackingNumber).generatedAt().toEpochMilli() >= mintedAfter) {
+                return trackingNumber;
+            }
+            expired.increment();
+        }
+        return null;
+    }
+
+    private void requestRefill() {
+        if (refillRequestedAt.get() == 0L
+                && refillRequestedAt.compareAndSet(0L, System.nanoTime())) {
+            LockSupport.unpark(producer);
+        }
+    }
+
+    private void produce() {
+        while (running) {
+            if (refillRequestedAt.get() != 0L || buffer.size() <= lowWatermark) {
+                refill();
+            }
+            LockSupport.parkNanos(this, refillIntervalNanos);
+        }
+    }
+
+    private void refill() {
+        long requestedAt = refillRequestedAt.get();
+        long startedAt = requestedAt != 0L ? requestedAt : System.nanoTime();
+        try {
+            int missing = highWatermark - buffer.size();
+            if (running && missing > 0) {
+                for (String trackingNumber : delegate.generateTrackingNumbers(missing)) {
+                    if (!buffer.offer(trackingNumber)) {
+                        break;
+                    }
+                }
+            }
+        } catch (RuntimeException ex) {
+            // e.g. clock moved backwards; requests fall back to the delegate meanwhile
+            log.warn("Tracking number buffer refill failed: {}", ex.getMessage());
+        } finally {
+            refillLag.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+            refillRequestedAt.set(0L);
+        }
+    }
+
+    int bufferedCount() {
+        return buffer.size();
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        producer = Thread.ofPlatform()
+                .name("tracking-number-buffer")
+                .daemon(true)
+                .start(this::produce);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        Thread thread = producer;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(1));
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        producer = null;
+    }
+    @Override public boolean isRunning()    { return running; }
+    @Override public boolean isAutoStartup(){ return true; }
+    @Override public int getPhase()        { return Integer.MAX_VALUE; }
+    @Override public void stop(Runnable callback) {
+        stop(); callback.run();
+    }
+}
@@ -1,28 +1,78 @@
 package io.github.bluething.java.bolttrack.domain;
 
+import io.github.bluething.java.bolttrack.exception.InvalidCheckCharacterException;
 import io.github.bluething.java.bolttrack.exception.InvalidStatusTransitionException;
+import io.github.bluething.java.bolttrack.exception.InvalidTimeRangeException;
 import io.github.bluething.java.bolttrack.exception.ResourceNotFoundException;
 import io.github.bluething.java.bolttrack.persistence.TrackingNumberDocument;
 import io.github.bluething.java.bolttrack.persistence.TrackingNumberRepository;
+import io.github.bluething.java.bolttrack.persistence.TrackingNumberRepositoryCustom;
+import io.github.bluething.java.bolttrack.persistence.TrackingNumberWriter;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 class DefaultTrackingNumberService implements TrackingNumberService {
     private final TrackingNumberGenerator generator;
     private final TrackingNumberRepository repository;
+    private final TrackingNumberWriter writer;
+    private final TrackingDetailCache cache;
+    private final TrackingNumberFilter filter;
+    private final TrackingNumberValidator validator;
 
     @Override
     public TrackingNumberRecords.TrackingNumberData generate(TrackingNumberRecords.CreateTrackingNumberCommand dto) {
         String trackingNumber = generator.generateTrackingNumber();
+        filter.addAll(List.of(trackingNumber));
         Instant createdAt = Instant.now();
 
         Instant generatedAt = Instant.now();
 
-        TrackingNumberDocument doc = new TrackingNumberDocument(
+        TrackingNumberDocument doc = newDocument(trackingNumber, dto, createdAt);
+        writer.write(doc);
+
+        return new TrackingNumberRecords.TrackingNumberData(
+                trackingNumber,
+                generatedAt
+        );
+    }
+
+    @Override
+    public TrackingNumberRecords.TrackingNumberBatchData generateBatch(TrackingNumberRecords.CreateTrackingNumberCommand dto, int count) {
+        List<String> trackingNumbers = generator.generateTrackingNumbers(count);
+        filter.addAll(trackingNumbers);
+        Instant createdAt = Instant.now();
+
+        List<TrackingNumberDocument> docs = trackingNumbers.stream()
+                .map(trackingNumber -> newDocument(trackingNumber, dto, createdAt))
+                .toList();
+        writer.writeAll(docs);
+
+        return new TrackingNumberRecords.TrackingNumberBatchData(
+                trackingNumbers,
+                createdAt
+        );
+    }
+
+    private static TrackingNumberDocument newDocument(String trackingNumber,
+                                                      TrackingNumberRecords.CreateTrackingNumberCommand dto,
+                                                      Instant createdAt) {
+        return new TrackingNumberDocument(
                 null,
                 trackingNumber,
                 dto.originCountryId(),
@@ -35,52 +85,132 @@ class DefaultTrackingNumberService implements TrackingNumberService {
                 TrackingStatus.CREATED.name(),
                 null
         );
-        repository.save(doc);
+    }
 
-        return new TrackingNumberRecords.TrackingNumberData(
-                trackingNumber,
-                generatedAt
-        );
+    /**
+     * Without metadata this is the polling path: served from the cache, or from a projection that
+     * leaves metadata in MongoDB. With metadata it always reads MongoDB.
+     */
+    @Override
+    public TrackingNumberRecords.TrackingDetailData findByTrackingNumber(String trackingNumber, boolean includeMetadata) {
+        if (validator.isMistyped(trackingNumber)) {
+            throw new InvalidCheckCharacterException(trackingNumber);
+        }
+        if (validator.isImpossible(trackingNumber)) {
+            throw new ResourceNotFoundException("TrackingNumber", trackingNumber);
+        }
+        if (includeMetadata) {
+            return toDetail(findDocument(trackingNumber, true), true);
+        }
+        Optional<TrackingNumberRecords.TrackingDetailData> cached = cache.get(trackingNumber);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+        TrackingNumberRecords.TrackingDetailData detail = toDetail(findDocument(trackingNumber, false), false);
+        cache.put(detail);
+        return detail;
     }
 
+    /**
+     * Looks up many tracking numbers at once, skipping those that cannot exist: cache first, then
+     * the write-behind queue, then one {@code $in} query for the rest the Bloom filter does not
+     * rule out. Results follow the input order, duplicates included.
+     */
     @Override
-    public TrackingNumberRecords.TrackingDetailData findByTrackingNumber(String trackingNumber) {
-        TrackingNumberDocument doc = repository.findByTrackingNumber(trackingNumber)
-                .orElseThrow(() ->
-                        new ResourceNotFoundException("TrackingNumber", trackingNumber)
-                );
-        return new TrackingNumberRecords.TrackingDetailData(
-                doc.getTrackingNumber(),
-                doc.getOriginCountryId(),
-                doc.getDestinationCountryId(),
-                doc.getWeight(),
-                doc.getGeneratedAt(),
-                doc.getCustomerId(),
-                doc.getCustomerName(),
-                doc.getCustomerSlug(),
-                doc.getGeneratedAt(),
-                doc.getStatus(),
-                doc.getMetadata()
-        );
+    public List<TrackingNumberRecords.TrackingLookupData> findByTrackingNumbers(List<String> trackingNumbers) {
+        Set<String> unique = new LinkedHashSet<>(trackingNumbers);
+        unique.removeIf(validator::isImpossible);
+        Map<String, TrackingNumberRecords.TrackingDetailData> found = new HashMap<>(cache.getAll(unique));
+
+        List<TrackingNumberRecords.TrackingDetailData> loaded = new ArrayList<>();
+        List<String> misses = new ArrayList<>();
+        for (String trackingNumber : unique) {
+            if (!found.containsKey(trackingNumber)) {
+                writer.findPending(trackingNumber).ifPresentOrElse(
+                        doc -> loaded.add(toDetail(doc, false)),
+                        () -> misses.add(trackingNumber));
+            }
+        }
+        misses.removeAll(filter.definitelyAbsent(misses));
+        if (!misses.isEmpty()) {
+            repository.findByTrackingNumberIn(misses).forEach(doc -> loaded.add(toDetail(doc, false)));
+        }
+        loaded.forEach(detail -> found.put(detail.trackingNumber(), detail));
+        cache.putAll(loaded);
+
+        return trackingNumbers.stream()
+                .map(trackingNumber -> new TrackingNumberRecords.TrackingLookupData(trackingNumber, found.get(trackingNumber)))
+                .toList();
+    }
+
+    @Override
+    public Stream<TrackingNumberRecords.TrackingExportData> exportByCustomer(UUID customerId,
+                                                                             Instant from,
+                                                                             Instant to,
+                                                                             String cursor) {
+        if (!from.isBefore(to)) {
+            throw new InvalidTimeRangeException(from, to);
+        }
+        TrackingCursor after = cursor == null ? null : TrackingCursor.decode(cursor);
+        return repository.streamByCustomer(customerId, from, to,
+                        after == null ? null : after.generatedAt(),
+                        after == null ? null : after.trackingNumber())
+                .map(doc -> new TrackingNumberRecords.TrackingExportData(
+                        toDetail(doc, false),
+                        new TrackingCursor(doc.getGeneratedAt(), doc.getTrackingNumber()).encode()));
+    }
+
+    @Override
+    public TrackingNumberRecords.TrackingPageData listByCustomer(UUID customerId, String status, String cursor, int size) {
+        TrackingCursor before = cursor == null ? null : TrackingCursor.decode(cursor);
+        // one extra row tells whether there is a next page without counting
+        List<TrackingNumberDocument> docs = repository.findPageByCustomer(customerId, status,
+                before == null ? null : before.generatedAt(),
+                before == null ? null : before.trackingNumber(),
+                size + 1);
+        boolean more = docs.size() > size;
+        List<TrackingNumberDocument> page = more ? docs.subList(0, size) : docs;
+        String nextCursor = null;
+        if (more) {
+            TrackingNumberDocument last = page.getLast();
+            nextCursor = new TrackingCursor(last.getGeneratedAt(), last.getTrackingNumber()).encode();
+        }
+        return new TrackingNumberRecords.TrackingPageData(
+                page.stream().map(doc -> toDetail(doc, false)).toList(),
+                nextCursor);
     }
 
     @Override
     public TrackingNumberRecords.TrackingDetailData updateStatus(String trackingNumber, String newStatusStr) {
-        TrackingNumberDocument doc = repository.findByTrackingNumber(trackingNumber)
+        TrackingStatus next = TrackingStatus.valueOf(newStatusStr);
+        List<String> predecessors = next.predecessors().stream()
+                .map(TrackingStatus::name)
+                .toList();
+        if (validator.isMistyped(trackingNumber)) {
+            throw new InvalidCheckCharacterException(trackingNumber);
+        }
+        if (validator.isImpossible(trackingNumber)) {
+            throw new ResourceNotFoundException("TrackingNumber", trackingNumber);
+        }
+
+        // one atomic conditional update; the before-image tells us why it did not apply
+        TrackingNumberDocument doc = writer.updateStatusIfIn(trackingNumber, next.name(), predecessors, Instant.now())
                 .orElseThrow(() ->
                         new ResourceNotFoundException("TrackingNumber", trackingNumber)
                 );
 
         TrackingStatus current = TrackingStatus.valueOf(doc.getStatus());
-        TrackingStatus next    = TrackingStatus.valueOf(newStatusStr);
-
         if (!current.canTransitionTo(next)) {
             throw new InvalidStatusTransitionException(current.name(), next.name());
         }
+        cache.evict(trackingNumber);
 
         doc.setStatus(next.name());
-        repository.save(doc);
 
+        return toDetail(doc, true);
+    }
+
+    private static TrackingNumberRecords.TrackingDetailData toDetail(TrackingNumberDocument doc, boolean includeMetadata) {
         return new TrackingNumberRecords.TrackingDetailData(
                 doc.getTrackingNumber(),
                 doc.getOriginCountryId(),
@@ -92,7 +222,152 @@ class DefaultTrackingNumberService implements TrackingNumberService {
                 doc.getCustomerSlug(),
                 doc.getGeneratedAt(),
                 doc.getStatus(),
-                doc.getMetadata()
+                includeMetadata ? doc.getMetadata() : null
+        );
+    }
+
+    /**
+     * Collapses each tracking number's events, in event-time order, into one transition from
+     * the first event's predecessors to the last legal status, and applies all of them with a
+     * single bulk write. Events breaking the chain are rejected without stopping the rest.
+     */
+    @Override
+    public List<TrackingNumberRecords.ScanEventResult> applyScanEvents(List<TrackingNumberRecords.ScanEventCommand> events) {
+        TrackingNumberRecords.ScanEventResult[] results = new TrackingNumberRecords.ScanEventResult[events.size()];
+
+        // 1) validate, then group event indexes by tracking number
+        Map<String, List<Integer>> byTrackingNumber = new LinkedHashMap<>();
+        for (int i = 0; i < events.size(); i++) {
+            TrackingNumberRecords.ScanEventCommand event = events.get(i);
+            String problem = validate(event);
+            if (problem != null) {
+                results[i] = scanResult(event, ScanEventOutcome.INVALID, problem);
+            } else {
+                byTrackingNumber.computeIfAbsent(event.trackingNumber(), tn -> new ArrayList<>()).add(i);
+            }
+        }
+
+        // 2) collapse each group into a chain of legal transitions
+        List<ScanChain> chains = new ArrayList<>(byTrackingNumber.size());
+        for (var group : byTrackingNumber.entrySet()) {
+            List<Integer> indexes = group.getValue();
+            // stable, so events with the same time keep their order in the batch
+            indexes.sort(Comparator.comparing(i -> events.get(i).eventTime()));
+            TrackingStatus first = TrackingStatus.valueOf(events.get(indexes.getFirst()).status());
+            TrackingStatus last = first;
+            List<Integer> accepted = new ArrayList<>(List.of(indexes.getFirst()));
+            for (int i : indexes.subList(1, indexes.size())) {
+                TrackingStatus next = TrackingStatus.valueOf(events.get(i).status());
+                if (last.canTransitionTo(next)) {
+                    accepted.add(i);
+                    last = next;
+                } else {
+                    results[i] = scanResult(events.get(i), ScanEventOutcome.INVALID_TRANSITION,
+                            "Cannot transition status from " + last.name() + " to " + next.name());
+                }
+            }
+            chains.add(new ScanChain(group.getKey(), first, last, accepted));
+        }
+
+        // 3) apply: numbers still queued for write-behind go through the writer, the rest in one bulk write
+        Instant updatedAt = Instant.now();
+        List<TrackingNumberRepositoryCustom.StatusTransition> transitions = new ArrayList<>(chains.size());
+        Set<String> missing = new HashSet<>();
+        Map<String, String> rejected = new HashMap<>();
+        List<String> attempted = new ArrayList<>(chains.size());
+        for (ScanChain chain : chains) {
+            if (validator.isImpossible(chain.trackingNumber())) {
+                missing.add(chain.trackingNumber());
+                continue;
+            }
+            attempted.add(chain.trackingNumber());
+            List<String> predecessors = chain.first().predecessors().stream()
+                    .map(TrackingStatus::name)
+                    .toList();
+            if (writer.findPending(chain.trackingNumber()).isPresent()) {
+                Optional<TrackingNumberDocument> before = writer.updateStatusIfIn(
+                        chain.trackingNumber(), chain.last().name(), predecessors, updatedAt);
+                if (before.isEmpty()) {
+                    missing.add(chain.trackingNumber());
+                } else if (!predecessors.contains(before.get().getStatus())) {
+                    rejected.put(chain.trackingNumber(), before.get().getStatus());
+                }
+            } else {
+                transitions.add(new TrackingNumberRepositoryCustom.StatusTransition(
+                        chain.trackingNumber(), chain.last().name(), predecessors));
+            }
+        }
+        var bulk = repository.updateStatusesIfIn(transitions, updatedAt);
+        missing.addAll(bulk.missing());
+        rejected.putAll(bulk.rejected());
+
+        // 4) per-event results, in request order
+        for (ScanChain chain : chains) {
+            String current = rejected.get(chain.trackingNumber());
+            boolean notFound = missing.contains(chain.trackingNumber());
+            for (int i : chain.accepted()) {
+                TrackingNumberRecords.ScanEventCommand event = events.get(i);
+                if (notFound) {
+                    results[i] = scanResult(event, ScanEventOutcome.NOT_FOUND,
+                            "Resource TrackingNumber not found with identifier " + event.trackingNumber());
+                } else if (current != null) {
+                    results[i] = scanResult(event, ScanEventOutcome.INVALID_TRANSITION,
+                            "Cannot transition status from " + current + " to " + chain.first().name());
+                } else {
+                    results[i] = scanResult(event, ScanEventOutcome.APPLIED, null);
+                }
+            }
+        }
+        // whatever the outcome says, a write was attempted and a concurrent one may have landed
+        cache.evictAll(attempted);
+        return List.of(results);
+    }
+
+    private String validate(TrackingNumberRecords.ScanEventCommand event) {
+        if (event.trackingNumber() == null || event.trackingNumber().isBlank()) {
+            return "tracking_number is required";
+        }
+        if (validator.isMistyped(event.trackingNumber())) {
+            return "tracking_number has a wrong check character";
+        }
+        if (event.eventTime() == null) {
+            return "event_time is required";
+        }
+        if (event.status() == null) {
+            return "status is required";
+        }
+        try {
+            TrackingStatus.valueOf(event.status());
+            return null;
+        } catch (IllegalArgumentException ex) {
+            return "Unknown status " + event.status();
+        }
+    }
+
+    private static TrackingNumberRecords.ScanEventResult scanResult(TrackingNumberRecords.ScanEventCommand event,
+                                                                     ScanEventOutcome outcome,
+                                                                     String message) {
+        return new TrackingNumberRecords.ScanEventResult(
+                event.trackingNumber(),
+                event.status(),
+                event.eventTime(),
+                outcome,
+                message
         );
     }
+
+    /** Events of one tracking number that form a legal chain {@code first -> ... -> last}. */
+    private record ScanChain(String trackingNumber, TrackingStatus first, TrackingStatus last, List<Integer> accepted) {
+    }
+
+    private TrackingNumberDocument findDocument(String trackingNumber, boolean includeMetadata) {
+        // a write-behind document may not have reached MongoDB yet
+        return writer.findPending(trackingNumber)
+                .or(() -> filter.isDefinitelyAbsent(trackingNumber)
+                        ? Optional.empty()
+                        : repository.findByTrackingNumber(trackingNumber, includeMetadata))
+                .orElseThrow(() ->
+                        new ResourceNotFoundException("TrackingNumber", trackingNumber)
+                );
+    }
 }
@@ -0,0 +1,98 @@
+package io.github.bluething.java.bolttrack.domain;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps the generations in this process. Only this instance's additions reach them, so it is
+ * only correct while a single instance issues tracking numbers.
+ */
+class LocalBloomBitStore implements BloomBitStore {
+    private final long bits;
+    private final ConcurrentMap<Long, BloomBits> generations = new ConcurrentHashMap<>();
+    private final Set<Long> ready = ConcurrentHashMap.newKeySet();
+    /** Epoch millis before which an invalidated generation is not rebuilt. */
+    private final ConcurrentMap<Long, Long> heldUntil = new ConcurrentHashMap<>();
+
+    LocalBloomBitStore(long bits) {
+        this.bits = bits;
+    }
+
+    @Override
+    public void setAll(long[] generations, List<long[]> positions) {
+        for (long generation : generations) {
+            BloomBits target = this.generations.computeIfAbsent(generation, g -> new BloomBits(bits));
+            for (long[] position : positions) {
+                for (long index : position) {
+                    target.set(index);
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean allSet(long generation, long[] positions) {
+        BloomBits bloomBits = generations.get(generation);
+        if (bloomBits == null) {
+            return false;
+        }
+        for (long index : positions) {
+            if (!bloomBits.get(index)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean[] allSet(long generation, List<long[]> positions) {
+        boolean[] set = new boolean[positions.size()];
+        for (int i = 0; i < set.length; i++) {
+            set[i] = allSet(generation, positions.get(i));
+        }
+        return set;
+    }
+
+    @Override
+    public boolean ready(long generation) {
+        return ready.contains(generation);
+    }
+
+    @Override
+    public boolean claimBuild(long generation) {
+        return !ready.contains(generation) && System.currentTimeMillis() >= heldUntil.getOrDefault(generation, 0L);
+    }
+
+    @Override
+    public void merge(long generation, BloomBits rebuilt) {
+        generations.computeIfAbsent(generation, g -> new BloomBits(bits)).or(rebuilt);
+        ready.add(generation);
+    }
+
+    @Override
+    public void invalidate(long generation, Duration holdOff) {
+        heldUntil.put(generation, System.currentTimeMillis() + holdOff.toMillis());
+        ready.remove(generation);
+    }
+
+    @Override
+    public long cardinality(long generation) {
+        BloomBits bloomBits = generations.get(generation);
+        return bloomBits == null ? 0 : bloomBits.cardinality();
+    }
+
+    @Override
+    public long sizeInBytes() {
+        return generations.values().stream().mapToLong(BloomBits::sizeInBytes).sum();
+    }
+
+    @Override
+    public void retireBefore(long generation) {
+        generations.keySet().removeIf(g -> g < generation);
+        ready.removeIf(g -> g < generation);
+        heldUntil.keySet().removeIf(g -> g < generation);
+    }
+}
@@ -0,0 +1,41 @@
+package io.github.bluething.java.bolttrack.domain;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Used while caching is disabled: every read goes to MongoDB.
+ */
+@Component
+@ConditionalOnProperty(prefix = "tracking.cache", name = "enabled", havingValue = "false", matchIfMissing = true)
+class NoOpTrackingDetailCache implements TrackingDetailCache {
+    @Override
+    public Optional<TrackingNumberRecords.TrackingDetailData> get(String trackingNumber) {
+        return Optional.empty();
+    }
+
+    @Override
+    public Map<String, TrackingNumberRecords.TrackingDetailData> getAll(Collection<String> trackingNumbers) {
+        return Map.of();
+    }
+
+    @Override
+    public void put(TrackingNumberRecords.TrackingDetailData detail) {
+    }
+
+    @Override
+    public void putAll(Collection<TrackingNumberRecords.TrackingDetailData> details) {
+    }
+
+    @Override
+    public void evict(String trackingNumber) {
+    }
+
+    @Override
+    public void evictAll(Collection<String> trackingNumbers) {
+    }
+}
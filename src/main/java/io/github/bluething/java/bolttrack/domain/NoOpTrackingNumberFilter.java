@@ -0,0 +1,28 @@
+package io.github.bluething.java.bolttrack.domain;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Used while the Bloom filter is disabled: every lookup goes to the database.
+ */
+@Component
+@ConditionalOnProperty(prefix = "tracking.bloom", name = "enabled", havingValue = "false", matchIfMissing = true)
+class NoOpTrackingNumberFilter implements TrackingNumberFilter {
+    @Override
+    public boolean isDefinitelyAbsent(String trackingNumber) {
+        return false;
+    }
+
+    @Override
+    public Set<String> definitelyAbsent(Collection<String> trackingNumbers) {
+        return Set.of();
+    }
+
+    @Override
+    public void addAll(Collection<String> trackingNumbers) {
+    }
+}
@@ -0,0 +1,170 @@
+package io.github.bluething.java.bolttrack.domain;
+
+import org.springframework.data.redis.connection.BitFieldSubCommands;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Keeps each generation as one Redis string shared by all instances, read and written with
+ * BITFIELD so a lookup or a batch of additions is one round trip. The keys expire on their own
+ * after a few generations; Redis must not evict them earlier, or lookups would wrongly report
+ * numbers as absent.
+ */
+class RedisBloomBitStore implements BloomBitStore {
+    private static final String KEY_PREFIX = "tracking:bloom:";
+    private static final BitFieldSubCommands.BitFieldType BIT = BitFieldSubCommands.BitFieldType.unsigned(1);
+    private static final int UPLOAD_CHUNK = 1 << 20;
+
+    private final StringRedisTemplate redis;
+    private final long bits;
+    private final Duration generationTtl;
+    private final Duration buildTtl;
+
+    RedisBloomBitStore(StringRedisTemplate redis, long bits, Duration rebuildInterval) {
+        this.redis = redis;
+        this.bits = bits;
+        // the previous, current and next generation
+        this.generationTtl = rebuildInterval.multipliedBy(3);
+        this.buildTtl = rebuildInterval;
+    }
+
+    @Override
+    public void setAll(long[] generations, List<long[]> positions) {
+        if (positions.isEmpty()) {
+            return;
+        }
+        redis.executePipelined((RedisCallback<Object>) connection -> {
+            for (long generation : generations) {
+                byte[] key = bytes(key(generation));
+                for (long[] position : positions) {
+                    BitFieldSubCommands commands = BitFieldSubCommands.create();
+                    for (long index : position) {
+                        commands = commands.set(BIT).valueAt(index).to(1);
+                    }
+                    connection.stringCommands().bitField(key, commands);
+                }
+                connection.keyCommands().pExpire(key, generationTtl.toMillis());
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public boolean allSet(long generation, long[] positions) {
+        return allOnes(redis.opsForValue().bitField(key(generation), gets(positions)));
+    }
+
+    /**
+     * One BITFIELD GET per number, all in one pipeline, so a batch costs one round trip.
+     */
+    @Override
+    public boolean[] allSet(long generation, List<long[]> positions) {
+        boolean[] set = new boolean[positions.size()];
+        if (positions.isEmpty()) {
+            return set;
+        }
+        byte[] key = bytes(key(generation));
+        List<Object> replies = redis.executePipelined((RedisCallback<Object>) connection -> {
+            for (long[] position : positions) {
+                connection.stringCommands().bitField(key, gets(position));
+            }
+            return null;
+        });
+        for (int i = 0; i < set.length; i++) {
+            set[i] = replies.get(i) instanceof List<?> values && allOnes(values);
+        }
+        return set;
+    }
+
+    private static BitFieldSubCommands gets(long[] positions) {
+        BitFieldSubCommands commands = BitFieldSubCommands.create();
+        for (long index : positions) {
+            commands = commands.get(BIT).valueAt(index);
+        }
+        return commands;
+    }
+
+    private static boolean allOnes(List<?> values) {
+        return values != null && values.stream().allMatch(value -> value instanceof Long bit && bit == 1L);
+    }
+
+    @Override
+    public boolean ready(long generation) {
+        return Boolean.TRUE.equals(redis.hasKey(readyKey(generation)));
+    }
+
+    @Override
+    public boolean claimBuild(long generation) {
+        return !ready(generation)
+                && Boolean.TRUE.equals(redis.opsForValue().setIfAbsent(buildKey(generation), "1", buildTtl));
+    }
+
+    @Override
+    public void merge(long generation, BloomBits rebuilt) {
+        byte[] key = bytes(key(generation));
+        byte[] upload = bytes(key(generation) + ":upload");
+        byte[] content = rebuilt.toByteArray();
+        redis.execute((RedisCallback<Object>) connection -> {
+            connection.keyCommands().del(upload);
+            // in chunks, so no single command carries the whole filter
+            for (int offset = 0; offset < content.length; offset += UPLOAD_CHUNK) {
+                connection.stringCommands().setRange(upload,
+                        Arrays.copyOfRange(content, offset, Math.min(content.length, offset + UPLOAD_CHUNK)), offset);
+            }
+            // OR rather than RENAME: additions made while rebuilding are already in the key
+            connection.stringCommands().bitOp(RedisStringCommands.BitOperation.OR, key, key, upload);
+            connection.keyCommands().del(upload);
+            connection.keyCommands().pExpire(key, generationTtl.toMillis());
+            return null;
+        });
+        redis.opsForValue().set(readyKey(generation), "1", generationTtl);
+    }
+
+    @Override
+    public void invalidate(long generation, Duration holdOff) {
+        // a claim nobody holds: the rebuild waits until the numbers issued meanwhile are stored
+        redis.opsForValue().set(buildKey(generation), "1", holdOff.isZero() ? Duration.ofMillis(1) : holdOff);
+        redis.delete(readyKey(generation));
+    }
+
+    @Override
+    public long cardinality(long generation) {
+        Long count = redis.execute((RedisCallback<Long>) connection ->
+                connection.stringCommands().bitCount(bytes(key(generation))));
+        return count == null ? 0 : count;
+    }
+
+    @Override
+    public long sizeInBytes() {
+        // the current and the next generation are always being written
+        return 2 * ((bits + 7) / 8);
+    }
+
+    @Override
+    public void retireBefore(long generation) {
+        // anything older has expired by now
+        redis.delete(List.of(key(generation - 1), readyKey(generation - 1), buildKey(generation - 1)));
+    }
+
+    private static String key(long generation) {
+        return KEY_PREFIX + generation;
+    }
+
+    private static String readyKey(long generation) {
+        return key(generation) + ":ready";
+    }
+
+    private static String buildKey(long generation) {
+        return key(generation) + ":build";
+    }
+
+    private static byte[] bytes(String key) {
+        return key.getBytes(StandardCharsets.UTF_8);
+    }
+}
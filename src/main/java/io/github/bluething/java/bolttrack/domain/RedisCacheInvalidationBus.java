@@ -0,0 +1,208 @@
+package io.github.bluething.java.bolttrack.domain;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tells every instance to drop a tracking number from its local cache, over Redis pub/sub.
+ *
+ * <p>Pub/sub is fire-and-forget, so each message carries a version taken from a global INCR
+ * counter. Versions that do not show up within one check interval, e.g. because our
+ * subscription dropped, count as lost and the whole local cache is cleared.
+ */
+@Component
+@ConditionalOnProperty(prefix = "tracking.cache", name = "enabled", havingValue = "true")
+@Slf4j
+class RedisCacheInvalidationBus implements SmartLifecycle {
+    private static final String CHANNEL = "tracking:cache:invalidate";
+    private static final String VERSION_KEY = "tracking:cache:version";
+    /** Beyond this many unseen versions we stop tracking them one by one and just clear. */
+    private static final long MAX_TRACKED_GAP = 10_000;
+
+    interface Listener {
+        void evict(String trackingNumber);
+
+        void evictAll();
+    }
+
+    private final StringRedisTemplate redis;
+    private final Duration checkInterval;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    private final Timer lag;
+    private final Counter lost;
+
+    /** Highest version seen, either in a message or on the counter itself; guarded by this. */
+    private long highestVersion;
+    /** Versions below highestVersion not received yet, with the nanoTime we started waiting. */
+    private final Map<Long, Long> missingSince = new TreeMap<>();
+    private RedisMessageListenerContainer container;
+    private ScheduledExecutorService checker;
+    private volatile boolean running;
+
+    RedisCacheInvalidationBus(StringRedisTemplate redis,
+                              TrackingCacheProperties properties,
+                              MeterRegistry registry) {
+        this.redis = redis;
+        this.checkInterval = properties.invalidationCheckInterval();
+
+        this.lag = Timer.builder("tracking.cache.invalidation.lag")
+                .description("Time from publishing an invalidation until this instance evicted the entry")
+                .register(registry);
+        this.lost = Counter.builder("tracking.cache.invalidation.lost")
+                .description("Local cache clears because invalidation messages went missing")
+                .register(registry);
+    }
+
+    void register(Listener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Tells all instances, this one included, to evict the tracking numbers locally.
+     */
+    void publish(Collection<String> trackingNumbers) {
+        try {
+            Long version = redis.opsForValue().increment(VERSION_KEY);
+            redis.convertAndSend(CHANNEL, version + ":" + System.currentTimeMillis() + ":"
+                    + String.join(",", trackingNumbers));
+        } catch (DataAccessException ex) {
+            // other instances keep the entries until local-ttl
+            log.warn("Cannot publish cache invalidation for {} tracking numbers: {}", trackingNumbers.size(), ex.getMessage());
+        }
+    }
+
+    void onMessage(Message message, byte[] pattern) {
+        // version:publishedAtMs:trackingNumber[,trackingNumber...]
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split(":", 3);
+        if (parts.length != 3) {
+            log.warn("Ignoring malformed cache invalidation message");
+            return;
+        }
+        long version;
+        long publishedAt;
+        try {
+            version = Long.parseLong(parts[0]);
+            publishedAt = Long.parseLong(parts[1]);
+        } catch (NumberFormatException ex) {
+            log.warn("Ignoring malformed cache invalidation message");
+            return;
+        }
+        for (String trackingNumber : parts[2].split(",")) {
+            listeners.forEach(listener -> listener.evict(trackingNumber));
+        }
+        lag.record(Math.max(0L, System.currentTimeMillis() - publishedAt), TimeUnit.MILLISECONDS);
+        observe(version, true);
+    }
+
+    /**
+     * Records a version as seen (received) or merely known to exist (read from the counter).
+     */
+    private synchronized void observe(long version, boolean received) {
+        if (version > highestVersion) {
+            long firstUnseen = highestVersion + 1;
+            long lastUnseen = received ? version - 1 : version;
+            if (lastUnseen - firstUnseen + 1 > MAX_TRACKED_GAP) {
+                evictAll("a gap of " + (lastUnseen - firstUnseen + 1) + " versions");
+            } else {
+                long now = System.nanoTime();
+                for (long v = firstUnseen; v <= lastUnseen; v++) {
+                    missingSince.put(v, now);
+                }
+            }
+            highestVersion = version;
+        } else if (received) {
+            missingSince.remove(version);
+        }
+    }
+
+    /**
+     * Compares against the global counter, which also catches the last few messages of a burst
+     * being lost, and gives up on versions that have been missing for a full interval.
+     */
+    void check() {
+        try {
+            observe(currentVersion(), false);
+        } catch (DataAccessException ex) {
+            log.warn("Cannot read cache invalidation version: {}", ex.getMessage());
+        }
+        synchronized (this) {
+            long deadline = System.nanoTime() - checkInterval.toNanos();
+            boolean expired = missingSince.values().stream().anyMatch(since -> since - deadline <= 0);
+            if (expired) {
+                evictAll(missingSince.size() + " unseen versions");
+            }
+        }
+    }
+
+    private synchronized void evictAll(String reason) {
+        log.warn("Clearing local tracking cache after {}", reason);
+        missingSince.clear();
+        lost.increment();
+        listeners.forEach(Listener::evictAll);
+    }
+
+    private long currentVersion() {
+        String version = redis.opsForValue().get(VERSION_KEY);
+        return version == null ? 0L : Long.parseLong(version);
+    }
+
+    @Override
+    public void start() {
+        // a fresh container per start: stop() destroys it, subscription threads included
+        container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(redis.getConnectionFactory());
+        container.addMessageListener(this::onMessage, new ChannelTopic(CHANNEL));
+        container.afterPropertiesSet();
+        container.start();
+        synchronized (this) {
+            highestVersion = currentVersion();
+        }
+        checker = Executors.newSingleThreadScheduledExecutor();
+        checker.scheduleWithFixedDelay(this::check,
+                checkInterval.toMillis(), checkInterval.toMillis(), TimeUnit.MILLISECONDS);
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (checker != null) checker.shutdownNow();
+        RedisMessageListenerContainer subscribed = container;
+        container = null;
+        if (subscribed != null) {
+            try {
+                // not a bean, so nobody else would; stop() alone leaves its executor and connection behind
+                subscribed.destroy();
+            } catch (Exception ex) {
+                log.warn("Cannot shut down the cache invalidation subscription: {}", ex.getMessage());
+            }
+        }
+    }
+    @Override public boolean isRunning()    { return running; }
+    @Override public boolean isAutoStartup(){ return true; }
+    @Override public void stop(Runnable callback) {
+        stop(); callback.run();
+    }
+}
@@ -1,64 +1,198 @@
 package io.github.bluething.java.bolttrack.domain;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataAccessException;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Component;
 
 import java.time.Duration;
+import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
 
+/**
+ * Leases a worker id in Redis. The lease is extended only while the key still holds this
+ * instance's id, and is trusted locally only until shortly before it could have expired in Redis,
+ * so after a long pause or a failover generation stops instead of sharing an id with whoever
+ * claimed it next. A lost id is replaced by a newly claimed one.
+ */
 @Component
+@Slf4j
 class RedisWorkerIdProvider implements WorkerIdProvider, SmartLifecycle {
     private static final int MAX_WORKER_ID = 1023;
     private static final Duration LEASE_TTL = Duration.ofSeconds(60);
+    /** A few renewals per TTL, so a failed round or two still leaves time to recover. */
+    private static final Duration RENEW_INTERVAL = LEASE_TTL.dividedBy(4);
+    /** Trusted for less than the TTL, covering clock rate differences and borrowed milliseconds. */
+    private static final Duration LOCAL_VALIDITY = LEASE_TTL.minusSeconds(5);
+    private static final List<String> WORKER_KEYS = IntStream.rangeClosed(0, MAX_WORKER_ID)
+            .mapToObj(i -> "tracking:worker:" + i)
+            .toList();
+    /**
+     * Claims the first free worker id from ARGV[3] on, wrapping around, in one round trip. Uses
+     * the same keys and SET NX PX as claiming them one by one, so both kinds of instance can run
+     * side by side. Returns the id, or -1 if all are taken.
+     */
+    private static final RedisScript<Long> CLAIM = new DefaultRedisScript<>("""
+            local n = #KEYS
+            local start = tonumber(ARGV[3])
+            for j = 0, n - 1 do
+                local i = (start + j) % n
+                if redis.call('SET', KEYS[i + 1], ARGV[1], 'NX', 'PX', ARGV[2]) then
+                    return i
+                end
+            end
+            return -1
+            """, Long.class);
+    /** Extends the lease only if it is still ours: 1 if extended, 0 if it expired or was taken. */
+    private static final RedisScript<Long> EXTEND = new DefaultRedisScript<>("""
+            if redis.call('GET', KEYS[1]) == ARGV[1] then
+                return redis.call('PEXPIRE', KEYS[1], ARGV[2])
+            end
+            return 0
+            """, Long.class);
+    /** Releases the lease only if it is still ours, never the one of an instance that took over. */
+    private static final RedisScript<Long> RELEASE = new DefaultRedisScript<>("""
+            if redis.call('GET', KEYS[1]) == ARGV[1] then
+                return redis.call('DEL', KEYS[1])
+            end
+            return 0
+            """, Long.class);
+
     private final StringRedisTemplate redis;
-    private String workerKey;
-    private int workerId;
-    private ScheduledFuture<?> renewal;
+    private final String instanceId = UUID.randomUUID().toString();
+    private final Timer acquisition;
+    private final Timer renewal;
+    private final Counter lost;
+
+    private volatile Lease lease = Lease.NONE;
+    private ScheduledExecutorService scheduler;
+    private volatile boolean running;
 
-    public RedisWorkerIdProvider(StringRedisTemplate redis) {
+    public RedisWorkerIdProvider(StringRedisTemplate redis, MeterRegistry registry) {
         this.redis = redis;
+        this.acquisition = Timer.builder("tracking.worker.acquire")
+                .description("Time taken to claim a worker id")
+                .register(registry);
+        this.renewal = Timer.builder("tracking.worker.renew")
+                .description("Time taken by a worker id lease renewal")
+                .register(registry);
+        this.lost = Counter.builder("tracking.worker.lease.lost")
+                .description("Worker id leases found expired or taken over at renewal")
+                .register(registry);
+        Gauge.builder("tracking.worker.lease.valid", this, provider -> provider.lease.isValid() ? 1 : 0)
+                .description("1 while this instance may mint with its worker id, 0 otherwise")
+                .register(registry);
+        Gauge.builder("tracking.worker.lease.remaining", this, RedisWorkerIdProvider::remainingSeconds)
+                .description("How long the worker id lease is trusted without another renewal")
+                .baseUnit("seconds")
+                .register(registry);
     }
 
     @Override
     public void start() {
-        String instanceId = UUID.randomUUID().toString();
-        for (int i = 0; i <= MAX_WORKER_ID; i++) {
-            String key = "tracking:worker:" + i;
-            Boolean ok = redis.opsForValue()
-                    .setIfAbsent(key, instanceId, LEASE_TTL);
-            if (Boolean.TRUE.equals(ok)) {
-                this.workerKey = key;
-                this.workerId  = i;
-                // schedule periodic TTL refresh so we don’t lose the lease
-                this.renewal = Executors.newSingleThreadScheduledExecutor()
-                        .scheduleAtFixedRate(() ->
-                                        redis.expire(workerKey, LEASE_TTL),
-                                LEASE_TTL.getSeconds() / 2,
-                                LEASE_TTL.getSeconds() / 2,
-                                TimeUnit.SECONDS);
+        claim();
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        scheduler.scheduleWithFixedDelay(this::renew,
+                RENEW_INTERVAL.toMillis(), RENEW_INTERVAL.toMillis(), TimeUnit.MILLISECONDS);
+        running = true;
+    }
+
+    private void claim() {
+        // a random starting point spreads concurrent cold starts instead of all probing id 0 first
+        int from = ThreadLocalRandom.current().nextInt(WORKER_KEYS.size());
+        long started = System.nanoTime();
+        Long claimed = redis.execute(CLAIM, WORKER_KEYS,
+                instanceId, Long.toString(LEASE_TTL.toMillis()), Integer.toString(from));
+        acquisition.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        if (claimed == null || claimed < 0) {
+            throw new IllegalStateException("no free worker ID");
+        }
+        lease = Lease.until(claimed.intValue(), started + LOCAL_VALIDITY.toNanos());
+    }
+
+    void renew() {
+        Lease current = lease;
+        try {
+            if (current == Lease.NONE) {
+                claim();
+                log.info("Claimed worker id {}", lease.workerId());
                 return;
             }
+            // counted from before the request: Redis extends the key no earlier than that
+            long started = System.nanoTime();
+            Long extended = redis.execute(EXTEND, List.of(WORKER_KEYS.get(current.workerId())),
+                    instanceId, Long.toString(LEASE_TTL.toMillis()));
+            renewal.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            if (extended != null && extended == 1L) {
+                lease = Lease.until(current.workerId(), started + LOCAL_VALIDITY.toNanos());
+                return;
+            }
+            lost.increment();
+            log.warn("Worker id {} lease expired or was taken over, claiming a new worker id", current.workerId());
+            lease = Lease.NONE;
+            claim();
+            log.info("Claimed worker id {}", lease.workerId());
+        } catch (RuntimeException ex) {
+            // the lease runs out on its own at its deadline; the next round tries again
+            log.warn("Cannot renew worker id lease: {}", ex.getMessage());
         }
-        throw new IllegalStateException("no free worker ID");
     }
 
     @Override
     public int getWorkerId() {
-        return workerId;
+        return lease.workerId();
+    }
+
+    @Override
+    public Lease lease() {
+        return lease;
+    }
+
+    @Override
+    public boolean holdsLease() {
+        Lease current = lease;
+        return current.isValid()
+                && instanceId.equals(redis.opsForValue().get(WORKER_KEYS.get(current.workerId())));
+    }
+
+    private double remainingSeconds() {
+        Lease current = lease;
+        return current.isValid()
+                ? Math.max(0L, current.validUntilNanos() - System.nanoTime()) / 1e9
+                : 0.0;
     }
 
     @Override
     public void stop() {
-        if (renewal   != null) renewal.cancel(false);
-        if (workerKey != null) redis.delete(workerKey);
+        running = false;
+        if (scheduler != null) scheduler.shutdownNow();
+        Lease current = lease;
+        lease = Lease.NONE;
+        if (current != Lease.NONE) {
+            try {
+                redis.execute(RELEASE, List.of(WORKER_KEYS.get(current.workerId())), instanceId);
+            } catch (DataAccessException ex) {
+                // expires on its own after the TTL
+                log.warn("Cannot release worker id {}: {}", current.workerId(), ex.getMessage());
+            }
+        }
     }
-    @Override public boolean isRunning()    { return workerKey != null; }
+    @Override public boolean isRunning()    { return running; }
     @Override public boolean isAutoStartup(){ return true; }
-    @Override public int getPhase()        { return Integer.MAX_VALUE; }
+    /** Before the generator buffer and the web server, so no request sees an unclaimed id, and after them on stop. */
+    @Override public int getPhase()        { return SmartLifecycle.DEFAULT_PHASE - 4096; }
     @Override public void stop(Runnable callback) {
         stop(); callback.run();
     }
@@ -0,0 +1,11 @@
+package io.github.bluething.java.bolttrack.domain;
+
+public enum ScanEventOutcome {
+    /** The status change was applied, possibly collapsed with later events of the same batch. */
+    APPLIED,
+    /** The event itself is malformed, e.g. an unknown status or a missing event time. */
+    INVALID,
+    /** The tracking number exists but cannot move to the event's status. */
+    INVALID_TRANSITION,
+    NOT_FOUND
+}
@@ -0,0 +1,45 @@
+package io.github.bluething.java.bolttrack.domain;
+
+import java.time.Instant;
+
+/**
+ * The fields packed into a Snowflake tracking number:
+ * [timestamp since DEFAULT_EPOCH (41 bits) | workerId (10 bits) | sequence (12 bits)].
+ */
+public record SnowflakeId(long timestampMs, int workerId, int sequence) {
+    // bits allocation
+    static final long WORKER_ID_BITS   = 10L;
+    static final long SEQUENCE_BITS    = 12L;
+    static final long MAX_WORKER_ID    = (1L << WORKER_ID_BITS) - 1;
+    static final long MAX_SEQUENCE     = (1L << SEQUENCE_BITS)  - 1;
+    static final long WORKER_SHIFT     = SEQUENCE_BITS;
+    static final long TIMESTAMP_SHIFT  = SEQUENCE_BITS + WORKER_ID_BITS;
+
+    static final long DEFAULT_EPOCH = Instant.parse("2025-01-01T00:00:00Z")
+            .toEpochMilli();
+
+    public static SnowflakeId fromRawId(long rawId) {
+        return new SnowflakeId(
+                rawId >>> TIMESTAMP_SHIFT,
+                (int) ((rawId >>> WORKER_SHIFT) & MAX_WORKER_ID),
+                (int) (rawId & MAX_SEQUENCE)
+        );
+    }
+
+    public static long toRawId(long timestampMs, long workerId, long sequence) {
+        return (timestampMs << TIMESTAMP_SHIFT) |
+                (workerId << WORKER_SHIFT) |
+                sequence;
+    }
+
+    public long rawId() {
+        return toRawId(timestampMs, workerId, sequence);
+    }
+
+    /**
+     * Wall-clock instant at which the number was minted.
+     */
+    public Instant generatedAt() {
+        return Instant.ofEpochMilli(DEFAULT_EPOCH + timestampMs);
+    }
+}
@@ -1,94 +1,324 @@
 package io.github.bluething.java.bolttrack.domain;
 
 import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import java.time.Instant;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
 
 @Component
 class SnowflakeTrackingNumberGenerator implements TrackingNumberGenerator {
-    // bits allocation
-    private static final long WORKER_ID_BITS   = 10L;
-    private static final long SEQUENCE_BITS    = 12L;
-    private static final long MAX_WORKER_ID    = (1L << WORKER_ID_BITS) - 1;
-    private static final long MAX_SEQUENCE     = (1L << SEQUENCE_BITS)  - 1;
-    private static final long WORKER_SHIFT     = SEQUENCE_BITS;
-    private static final long TIMESTAMP_SHIFT  = SEQUENCE_BITS + WORKER_ID_BITS;
+    // bits allocation, see SnowflakeId
+    private static final long SEQUENCE_BITS    = SnowflakeId.SEQUENCE_BITS;
+    private static final int  MAX_STRIPES      = 64;
 
-    private static final long DEFAULT_EPOCH = Instant.parse("2025-01-01T00:00:00Z")
-            .toEpochMilli();
+    private static final long DEFAULT_EPOCH = SnowflakeId.DEFAULT_EPOCH;
 
-    private final long workerId;
+    /** 16 longs = 128 bytes between stripes, so no two stripes share a cache line. */
+    private static final int STRIPE_PADDING = 16;
 
     /**
-     * Packs [lastTimestampRelMs (high bits) | sequence (low bits)].
-     * High bits = s >>> SEQUENCE_BITS, low bits = s & MAX_SEQUENCE.
+     * Read on every call rather than once: a leased id is only known once the provider has
+     * started, and may be replaced after a lost lease.
      */
-    private final AtomicLong state = new AtomicLong(0L);
+    private final WorkerIdProvider idProvider;
+
+    /**
+     * The 12-bit sequence is split as [stripe (stripeBits) | counter (counterBits)],
+     * so every stripe owns a disjoint slice of each millisecond's sequence space.
+     */
+    private final int stripeMask;
+    private final long counterBits;
+    private final long maxCounter;
+
+    /**
+     * Per stripe, packs [lastTimestampRelMs (high bits) | counter (low bits)].
+     * High bits = s >>> SEQUENCE_BITS, low bits = s & maxCounter.
+     */
+    private final AtomicLongArray states;
+    private final Counter[] contention;
+
+    /**
+     * How far the wall clock may fall behind the last issued timestamp before we refuse to
+     * generate; within it we keep issuing from the logical timestamp and borrow future ms.
+     */
+    private final long maxClockDriftMs;
+    private final LongSupplier clock;
+    private final boolean checkCharacter;
+    private final DistributionSummary clockDrift;
+    private final Counter clockRejected;
+    private final Counter leaseRejected;
+
+    @Autowired
+    SnowflakeTrackingNumberGenerator(WorkerIdProvider idProvider,
+                                     TrackingGeneratorProperties properties,
+                                     MeterRegistry registry) {
+        this(idProvider, properties, registry, System::currentTimeMillis);
+    }
 
     SnowflakeTrackingNumberGenerator(WorkerIdProvider idProvider) {
-        workerId = idProvider.getWorkerId();
-        if (workerId < 0 || workerId > MAX_WORKER_ID) {
+        this(idProvider, TrackingGeneratorProperties.defaults(), new SimpleMeterRegistry());
+    }
+
+    SnowflakeTrackingNumberGenerator(WorkerIdProvider idProvider,
+                                     TrackingGeneratorProperties properties,
+                                     MeterRegistry registry,
+                                     LongSupplier clock) {
+        // a fixed id out of range fails here rather than on the first request
+        idProvider.lease();
+        this.idProvider = idProvider;
+        int stripes = properties.stripes();
+        if (stripes < 1 || stripes > MAX_STRIPES || Integer.bitCount(stripes) != 1) {
             throw new IllegalArgumentException(
-                    "worker-id must be between 0 and " + MAX_WORKER_ID
+                    "stripes must be a power of two between 1 and " + MAX_STRIPES
             );
         }
+        stripeMask  = stripes - 1;
+        counterBits = SEQUENCE_BITS - Integer.numberOfTrailingZeros(stripes);
+        maxCounter  = (1L << counterBits) - 1;
+        states      = new AtomicLongArray(stripes * STRIPE_PADDING);
+        contention  = new Counter[stripes];
+        for (int i = 0; i < stripes; i++) {
+            contention[i] = Counter.builder("tracking.number.generate.contention")
+                    .description("CAS attempts lost to another thread on the generator state")
+                    .tag("stripe", Integer.toString(i))
+                    .register(registry);
+        }
+
+        this.maxClockDriftMs = properties.maxClockDrift().toMillis();
+        this.clock = clock;
+        this.checkCharacter = properties.checkCharacter();
+        this.clockDrift = DistributionSummary.builder("tracking.number.clock.drift")
+                .description("How far behind the last issued timestamp the wall clock was, per tolerated regression")
+                .baseUnit("milliseconds")
+                .register(registry);
+        this.clockRejected = Counter.builder("tracking.number.clock.rejected")
+                .description("Generations refused because the clock moved back beyond max-clock-drift")
+                .register(registry);
+        this.leaseRejected = Counter.builder("tracking.number.lease.rejected")
+                .description("Generations refused because the worker id lease was not held")
+                .register(registry);
+        Gauge.builder("tracking.number.clock.borrowed", this, SnowflakeTrackingNumberGenerator::borrowedMillis)
+                .description("How far the logical timestamp currently runs ahead of the wall clock")
+                .baseUnit("milliseconds")
+                .register(registry);
     }
 
     @Override
     @Timed(value = "tracking.number.generate")
     public String generateTrackingNumber() {
+        WorkerIdProvider.Lease lease = heldLease();
+        int stripe = currentStripe();
+        int exhaustedStripes = 0;
         while (true) {
-            // 1) Snapshot the packed state (timestamp | sequence)
-            long previousPackedState = state.get();
-            //    high bits = lastTimestampMs, low bits = lastSequenceNumber
+            // 1) Snapshot the packed state (timestamp | counter) of our stripe
+            int slot = stripe * STRIPE_PADDING;
+            long previousPackedState = states.get(slot);
+            //    high bits = lastTimestampMs, low bits = lastCounter
             long lastTimestampMs = previousPackedState >>> SEQUENCE_BITS;
-            long lastSequenceNumber = previousPackedState & MAX_SEQUENCE;
-
-            // 2) Compute current time relative to our custom epoch
-            long currentTimestampMs = System.currentTimeMillis() - DEFAULT_EPOCH;
-            if (currentTimestampMs < lastTimestampMs) {
-                throw new IllegalStateException(
-                        "Clock moved backwards. Refusing to generate ID."
-                );
-            }
+            long lastCounter = previousPackedState & maxCounter;
 
-            // 3) Decide next timestamp and sequence
+            // 2) Compute current time relative to our custom epoch,
+            //    holding at the last timestamp if the clock stepped back within tolerance
+            long wallTimestampMs = clock.getAsLong() - DEFAULT_EPOCH;
+            long currentTimestampMs = toleratedTimestamp(wallTimestampMs, lastTimestampMs);
+
+            // 3) Decide next timestamp and counter
             long nextTimestampMs = lastTimestampMs;
-            long nextSequenceNumber;
+            long nextCounter;
             if (currentTimestampMs == lastTimestampMs) {
-                // same millisecond → bump sequence
-                nextSequenceNumber = (lastSequenceNumber + 1) & MAX_SEQUENCE;
-                if (nextSequenceNumber == 0) {
-                    // sequence overflow: busy‐spin until next ms
-                    do {
-                        Thread.onSpinWait();
-                        currentTimestampMs = System.currentTimeMillis() - DEFAULT_EPOCH;
-                    } while (currentTimestampMs <= lastTimestampMs);
-                    nextTimestampMs = currentTimestampMs;
+                // same millisecond → bump counter
+                nextCounter = (lastCounter + 1) & maxCounter;
+                if (nextCounter == 0) {
+                    if (exhaustedStripes++ < stripeMask) {
+                        // stripe's slice exhausted: borrow the next stripe's slice first
+                        stripe = (stripe + 1) & stripeMask;
+                        continue;
+                    }
+                    // every slice exhausted: borrow the next ms, or busy‐spin until it arrives
+                    nextTimestampMs = nextMillis(lastTimestampMs, wallTimestampMs);
                 }
             } else {
-                // new millisecond → reset sequence
+                // new millisecond → reset counter
                 nextTimestampMs = currentTimestampMs;
-                nextSequenceNumber = 0L;
+                nextCounter = 0L;
             }
 
-            // 4) Pack next timestamp and sequence
+            // 4) Pack next timestamp and counter
             long nextPackedState =
                     (nextTimestampMs << SEQUENCE_BITS) |
-                            nextSequenceNumber;
+                            nextCounter;
 
             // 5) Try to CAS-update; if it succeeds, we own this slot
-            if (state.compareAndSet(previousPackedState, nextPackedState)) {
-                long rawId =
-                        (nextTimestampMs << TIMESTAMP_SHIFT) |
-                                (workerId << WORKER_SHIFT) |
-                                nextSequenceNumber;
-                // 6) Base-36 encode and uppercase → [0-9A-Z]{1,13}
-                return Long.toString(rawId, 36).toUpperCase();
+            if (states.compareAndSet(slot, previousPackedState, nextPackedState)) {
+                String trackingNumber = encode(lease, nextTimestampMs, sequenceOf(stripe, nextCounter));
+                ensureStillHeld(lease);
+                return trackingNumber;
             }
             // CAS lost → retry loop
+            contention[stripe].increment();
+        }
+    }
+
+    /**
+     * Reserves contiguous blocks of a stripe's counter values with one CAS per slice touched,
+     * so a batch of N numbers costs a handful of state updates instead of N.
+     */
+    @Override
+    @Timed(value = "tracking.number.generate.batch")
+    public List<String> generateTrackingNumbers(int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("count must not be negative");
         }
+        WorkerIdProvider.Lease lease = heldLease();
+        int stripe = currentStripe();
+        int exhaustedStripes = 0;
+        List<String> trackingNumbers = new ArrayList<>(count);
+        while (trackingNumbers.size() < count) {
+            int slot = stripe * STRIPE_PADDING;
+            long previousPackedState = states.get(slot);
+            long lastTimestampMs = previousPackedState >>> SEQUENCE_BITS;
+            long lastCounter = previousPackedState & maxCounter;
+
+            long wallTimestampMs = clock.getAsLong() - DEFAULT_EPOCH;
+            long currentTimestampMs = toleratedTimestamp(wallTimestampMs, lastTimestampMs);
+
+            // first free counter value of the block
+            long blockTimestampMs;
+            long firstCounter;
+            if (currentTimestampMs == lastTimestampMs) {
+                if (lastCounter == maxCounter) {
+                    if (exhaustedStripes++ < stripeMask) {
+                        stripe = (stripe + 1) & stripeMask;
+                        continue;
+                    }
+                    blockTimestampMs = nextMillis(lastTimestampMs, wallTimestampMs);
+                    firstCounter = 0L;
+                    exhaustedStripes = 0;
+                } else {
+                    blockTimestampMs = lastTimestampMs;
+                    firstCounter = lastCounter + 1;
+                }
+            } else {
+                blockTimestampMs = currentTimestampMs;
+                firstCounter = 0L;
+            }
+
+            // take whatever is left of this millisecond, up to what we still need
+            long blockSize = Math.min(count - trackingNumbers.size(),
+                    maxCounter - firstCounter + 1);
+            long lastBlockCounter = firstCounter + blockSize - 1;
+            long nextPackedState =
+                    (blockTimestampMs << SEQUENCE_BITS) |
+                            lastBlockCounter;
+
+            if (states.compareAndSet(slot, previousPackedState, nextPackedState)) {
+                for (long counter = firstCounter; counter <= lastBlockCounter; counter++) {
+                    trackingNumbers.add(encode(lease, blockTimestampMs, sequenceOf(stripe, counter)));
+                }
+            } else {
+                // CAS lost → retry with a fresh snapshot
+                contention[stripe].increment();
+            }
+        }
+        ensureStillHeld(lease);
+        return trackingNumbers;
+    }
+
+    private WorkerIdProvider.Lease heldLease() {
+        WorkerIdProvider.Lease lease = idProvider.lease();
+        ensureStillHeld(lease);
+        return lease;
+    }
+
+    /**
+     * Checked again after the timestamps were taken: if the lease was still valid then, no other
+     * instance can have claimed the id before them, whatever pauses came in between.
+     */
+    private void ensureStillHeld(WorkerIdProvider.Lease lease) {
+        if (!lease.isValid()) {
+            leaseRejected.increment();
+            throw new IllegalStateException(
+                    "Worker id lease is not held. Refusing to generate ID."
+            );
+        }
+    }
+
+    /**
+     * Spreads threads over the stripes by thread id. Virtual threads do not expose their
+     * carrier, so each one lands on a stripe of its own id, which spreads just as evenly.
+     */
+    private int currentStripe() {
+        if (stripeMask == 0) {
+            return 0;
+        }
+        long h = Thread.currentThread().threadId() * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 58) & stripeMask;
+    }
+
+    private long sequenceOf(int stripe, long counter) {
+        return ((long) stripe << counterBits) | counter;
+    }
+
+    /**
+     * Returns the timestamp to generate at: the wall clock, or the last issued timestamp when
+     * the clock stepped back by no more than max-clock-drift.
+     */
+    private long toleratedTimestamp(long wallTimestampMs, long lastTimestampMs) {
+        if (wallTimestampMs >= lastTimestampMs) {
+            return wallTimestampMs;
+        }
+        long driftMs = lastTimestampMs - wallTimestampMs;
+        if (driftMs > maxClockDriftMs) {
+            clockRejected.increment();
+            throw new IllegalStateException(
+                    "Clock moved backwards by " + driftMs + " ms. Refusing to generate ID."
+            );
+        }
+        clockDrift.record(driftMs);
+        return lastTimestampMs;
+    }
+
+    /**
+     * The millisecond after {@code lastTimestampMs}: borrowed right away while that keeps us
+     * within max-clock-drift of the wall clock, otherwise waited for.
+     */
+    private long nextMillis(long lastTimestampMs, long wallTimestampMs) {
+        if (lastTimestampMs + 1 - wallTimestampMs <= maxClockDriftMs) {
+            return lastTimestampMs + 1;
+        }
+        return awaitNextMillis(lastTimestampMs);
+    }
+
+    private long awaitNextMillis(long lastTimestampMs) {
+        long currentTimestampMs;
+        do {
+            Thread.onSpinWait();
+            currentTimestampMs = clock.getAsLong() - DEFAULT_EPOCH;
+        } while (currentTimestampMs <= lastTimestampMs);
+        return currentTimestampMs;
+    }
+
+    private double borrowedMillis() {
+        long maxTimestampMs = 0L;
+        for (int slot = 0; slot < states.length(); slot += STRIPE_PADDING) {
+            maxTimestampMs = Math.max(maxTimestampMs, states.get(slot) >>> SEQUENCE_BITS);
+        }
+        long wallTimestampMs = clock.getAsLong() - DEFAULT_EPOCH;
+        return Math.max(0L, maxTimestampMs - wallTimestampMs);
+    }
+
+    private String encode(WorkerIdProvider.Lease lease, long timestampMs, long sequenceNumber) {
+        long rawId = SnowflakeId.toRawId(timestampMs, lease.workerId(), sequenceNumber);
+        // Base-36 encode straight to uppercase → [0-9A-Z]{1,13}, or [0-9A-Z]{14} with a check character
+        return checkCharacter ? TrackingNumberCodec.encodeChecked(rawId) : TrackingNumberCodec.encode(rawId);
     }
 }
@@ -0,0 +1,30 @@
+package io.github.bluething.java.bolttrack.domain;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings for the Bloom filter in front of tracking number lookups.
+ *
+ * @param shared             keep the bits in Redis, shared by all instances; turning it off
+ *                           keeps them in process, where they only see numbers issued by this
+ *                           instance, so that is only correct with a single instance
+ * @param expectedInsertions tracking numbers the filter is sized for, i.e. all retained ones
+ * @param falsePositiveRate  target rate of unknown numbers still sent to the database at that size
+ * @param rebuildInterval    lifetime of one filter generation; the next one is rebuilt from the
+ *                           database meanwhile, which also forgets expired numbers
+ * @param settleTime         how long after a generation starts its successor is rebuilt, which
+ *                           must exceed the time an issued number takes to reach the database
+ */
+@ConfigurationProperties(prefix = "tracking.bloom")
+record TrackingBloomProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("true") boolean shared,
+        @DefaultValue("20000000") long expectedInsertions,
+        @DefaultValue("0.01") double falsePositiveRate,
+        @DefaultValue("6h") Duration rebuildInterval,
+        @DefaultValue("10m") Duration settleTime
+) {
+}
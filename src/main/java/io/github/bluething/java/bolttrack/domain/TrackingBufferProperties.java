@@ -0,0 +1,34 @@
+package io.github.bluething.java.bolttrack.domain;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings for the pre-generated tracking number buffer.
+ * The producer tops the ring up to {@code highWatermark} whenever it drops to {@code lowWatermark}.
+ * Numbers minted more than {@code maxAge} ago are dropped instead of handed out, so generated_at
+ * stays close to the mint time that monthly partitions are routed by.
+ */
+@ConfigurationProperties(prefix = "tracking.generator.buffer")
+record TrackingBufferProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("8192") int capacity,
+        @DefaultValue("2048") int lowWatermark,
+        @DefaultValue("7168") int highWatermark,
+        @DefaultValue("5ms") Duration refillInterval,
+        @DefaultValue("1m") Duration maxAge
+) {
+    TrackingBufferProperties {
+        if (lowWatermark < 0 || lowWatermark >= highWatermark) {
+            throw new IllegalArgumentException("low-watermark must be between 0 and high-watermark");
+        }
+        if (highWatermark > capacity) {
+            throw new IllegalArgumentException("high-watermark must not exceed capacity");
+        }
+        if (maxAge.isNegative() || maxAge.isZero()) {
+            throw new IllegalArgumentException("max-age must be positive");
+        }
+    }
+}
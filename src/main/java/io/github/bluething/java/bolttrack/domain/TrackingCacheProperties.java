@@ -0,0 +1,28 @@
+package io.github.bluething.java.bolttrack.domain;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings for the tracking detail cache.
+ *
+ * @param localMaxSize entries kept in-process before the least recently used ones are evicted
+ * @param localTtl     how long an entry lives in-process after it was loaded
+ * @param redisTtl     how long an entry lives in Redis, shared by all instances
+ * @param invalidationCheckInterval how often the invalidation version counter is checked, and how
+ *                                  long a missing invalidation may be late before the local cache is cleared
+ * @param tombstoneTtl how long an evicted entry cannot be cached again, so a read that loaded it
+ *                     before the change cannot put the old value back; longer than a slow MongoDB read
+ */
+@ConfigurationProperties(prefix = "tracking.cache")
+record TrackingCacheProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("100000") long localMaxSize,
+        @DefaultValue("5m") Duration localTtl,
+        @DefaultValue("5m") Duration redisTtl,
+        @DefaultValue("2s") Duration invalidationCheckInterval,
+        @DefaultValue("5s") Duration tombstoneTtl
+) {
+}
@@ -0,0 +1,40 @@
+package io.github.bluething.java.bolttrack.domain;
+
+import io.github.bluething.java.bolttrack.exception.InvalidCursorException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Keyset position after a row in (generated_at, tracking_number) order, handed to clients as an
+ * opaque token so they can resume without the server holding any state.
+ */
+public record TrackingCursor(Instant generatedAt, String trackingNumber) {
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    public String encode() {
+        String raw = generatedAt.toEpochMilli() + ":" + trackingNumber;
+        return ENCODER.encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws InvalidCursorException if the token was not produced by {@link #encode()}
+     */
+    public static TrackingCursor decode(String token) {
+        try {
+            String raw = new String(DECODER.decode(token), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(':');
+            if (separator <= 0 || separator == raw.length() - 1) {
+                throw new InvalidCursorException(token);
+            }
+            return new TrackingCursor(
+                    Instant.ofEpochMilli(Long.parseLong(raw, 0, separator, 10)),
+                    raw.substring(separator + 1));
+        } catch (IllegalArgumentException ex) {
+            // bad Base64 or a bad number
+            throw new InvalidCursorException(token);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package io.github.bluething.java.bolttrack.domain;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Read-through cache of tracking details, consulted before MongoDB. Details are cached without
+ * their metadata; reads that ask for metadata go to MongoDB.
+ */
+interface TrackingDetailCache {
+    Optional<TrackingNumberRecords.TrackingDetailData> get(String trackingNumber);
+
+    /** Returns the cached details among {@code trackingNumbers}, keyed by tracking number. */
+    Map<String, TrackingNumberRecords.TrackingDetailData> getAll(Collection<String> trackingNumbers);
+
+    void put(TrackingNumberRecords.TrackingDetailData detail);
+
+    void putAll(Collection<TrackingNumberRecords.TrackingDetailData> details);
+
+    void evict(String trackingNumber);
+
+    void evictAll(Collection<String> trackingNumbers);
+}
@@ -0,0 +1,33 @@
+package io.github.bluething.java.bolttrack.domain;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings for the Snowflake generator itself.
+ *
+ * @param stripes number of independent sub-generators (power of two, 1–64) that split each
+ *                millisecond's 4096 sequence values between them; 1 keeps a single shared state
+ * @param maxClockDrift how far the clock may step back (or the generator run ahead of it when a
+ *                      millisecond's sequence runs out) before generation fails fast; 0 = strict
+ * @param checkCharacter issue 14-character numbers ending in a check character, so lookups reject
+ *                       typos without I/O; numbers issued without one stay valid
+ */
+@ConfigurationProperties(prefix = "tracking.generator")
+record TrackingGeneratorProperties(
+        @DefaultValue("1") int stripes,
+        @DefaultValue("5ms") Duration maxClockDrift,
+        @DefaultValue("false") boolean checkCharacter
+) {
+    TrackingGeneratorProperties {
+        if (maxClockDrift.isNegative()) {
+            throw new IllegalArgumentException("max-clock-drift must not be negative");
+        }
+    }
+
+    static TrackingGeneratorProperties defaults() {
+        return new TrackingGeneratorProperties(1, Duration.ofMillis(5), false);
+    }
+}
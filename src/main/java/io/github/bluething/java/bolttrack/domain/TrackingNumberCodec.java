@@ -0,0 +1,155 @@
+package io.github.bluething.java.bolttrack.domain;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Base-36 codec for Snowflake tracking numbers.
+ * Encodes straight into uppercase ASCII, skipping the lowercase String and the
+ * {@code toUpperCase()} copy of {@code Long.toString(rawId, 36).toUpperCase()}.
+ * <p>
+ * A number may carry a check character: the body zero-padded to {@link #MAX_LENGTH} followed by
+ * its Luhn mod 36 check character, {@link #CHECKED_LENGTH} characters in all. Numbers without one
+ * are never that long, so the two forms are told apart by length alone.
+ */
+public final class TrackingNumberCodec {
+    /** Long.MAX_VALUE in base 36 is "1Y2P0IJ32E8E7". */
+    public static final int MAX_LENGTH = 13;
+    public static final int CHECKED_LENGTH = MAX_LENGTH + 1;
+    private static final int RADIX = 36;
+    private static final byte[] DIGITS = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ"
+            .getBytes(StandardCharsets.US_ASCII);
+    /** ASCII → digit value, -1 for anything outside [0-9A-Z]. */
+    private static final byte[] VALUES = new byte[128];
+
+    static {
+        Arrays.fill(VALUES, (byte) -1);
+        for (int i = 0; i < DIGITS.length; i++) {
+            VALUES[DIGITS[i]] = (byte) i;
+        }
+    }
+
+    private TrackingNumberCodec() {
+    }
+
+    public static String encode(long rawId) {
+        byte[] buf = new byte[MAX_LENGTH];
+        int start = encodeTo(rawId, buf);
+        return new String(buf, start, MAX_LENGTH - start, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Encodes with a check character, see {@link #CHECKED_LENGTH}.
+     */
+    public static String encodeChecked(long rawId) {
+        byte[] buf = new byte[CHECKED_LENGTH];
+        int start = encodeTo(rawId, buf);
+        Arrays.fill(buf, 0, start, (byte) '0');
+        buf[MAX_LENGTH] = DIGITS[checkValue(rawId)];
+        return new String(buf, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * True if the tracking number is in the form with a check character, whether or not the
+     * character is right.
+     */
+    public static boolean isChecked(CharSequence trackingNumber) {
+        return trackingNumber.length() == CHECKED_LENGTH;
+    }
+
+    /**
+     * False if the tracking number has a check character that does not match its body, which is
+     * how a single mistyped character and most swaps of two neighbours show up.
+     */
+    public static boolean checkCharacterMatches(CharSequence trackingNumber) {
+        if (!isChecked(trackingNumber)) {
+            return true;
+        }
+        char check = trackingNumber.charAt(MAX_LENGTH);
+        try {
+            return check < VALUES.length
+                    && VALUES[check] == checkValue(decodeBody(trackingNumber, MAX_LENGTH));
+        } catch (IllegalArgumentException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Writes the encoding right-aligned into {@code buf} (at least {@link #MAX_LENGTH} bytes)
+     * and returns the index of its first character. Allocation-free.
+     */
+    public static int encodeTo(long rawId, byte[] buf) {
+        if (rawId < 0) {
+            throw new IllegalArgumentException("raw id must not be negative");
+        }
+        int pos = MAX_LENGTH;
+        do {
+            buf[--pos] = DIGITS[(int) (rawId % RADIX)];
+            rawId /= RADIX;
+        } while (rawId != 0);
+        return pos;
+    }
+
+    /**
+     * Parses an uppercase base-36 tracking number, with or without a check character, back into
+     * its packed long.
+     *
+     * @throws IllegalArgumentException if it is empty, too long, has characters outside [0-9A-Z],
+     *                                  does not fit in a positive long or has the wrong check character
+     */
+    public static long decode(CharSequence trackingNumber) {
+        int length = trackingNumber.length();
+        if (length == CHECKED_LENGTH) {
+            if (!checkCharacterMatches(trackingNumber)) {
+                throw new IllegalArgumentException("tracking number check character does not match");
+            }
+            return decodeBody(trackingNumber, MAX_LENGTH);
+        }
+        if (length == 0 || length > MAX_LENGTH) {
+            throw new IllegalArgumentException("tracking number must be 1–" + MAX_LENGTH
+                    + " chars, or " + CHECKED_LENGTH + " with a check character");
+        }
+        return decodeBody(trackingNumber, length);
+    }
+
+    private static long decodeBody(CharSequence trackingNumber, int length) {
+        long value = 0L;
+        for (int i = 0; i < length; i++) {
+            char c = trackingNumber.charAt(i);
+            int digit = c < VALUES.length ? VALUES[c] : -1;
+            if (digit < 0) {
+                throw new IllegalArgumentException("tracking number must only contain [0-9A-Z]");
+            }
+            if (value > (Long.MAX_VALUE - digit) / RADIX) {
+                throw new IllegalArgumentException("tracking number out of range");
+            }
+            value = value * RADIX + digit;
+        }
+        return value;
+    }
+
+    /**
+     * Luhn mod 36 over the {@link #MAX_LENGTH} body digits: every second digit from the right,
+     * starting with the rightmost, is doubled and its two base-36 digits summed. Leading zeros
+     * add nothing, so the padded body need not be materialized.
+     */
+    private static int checkValue(long rawId) {
+        int sum = 0;
+        boolean doubled = true;
+        for (int i = 0; i < MAX_LENGTH; i++) {
+            int digit = (int) (rawId % RADIX);
+            rawId /= RADIX;
+            if (doubled) {
+                digit *= 2;
+                digit = digit / RADIX + digit % RADIX;
+            }
+            sum += digit;
+            doubled = !doubled;
+        }
+        return (RADIX - sum % RADIX) % RADIX;
+    }
+
+    public static SnowflakeId decodeId(CharSequence trackingNumber) {
+        return SnowflakeId.fromRawId(decode(trackingNumber));
+    }
+}
@@ -0,0 +1,28 @@
+package io.github.bluething.java.bolttrack.domain;
+
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Answers "was this tracking number ever issued?" without a database round trip, for the
+ * numbers where the answer is a certain no.
+ */
+interface TrackingNumberFilter {
+    /**
+     * True only if the tracking number was certainly never issued; false means "maybe", and the
+     * caller has to ask the database.
+     */
+    boolean isDefinitelyAbsent(String trackingNumber);
+
+    /**
+     * {@link #isDefinitelyAbsent(String)} for many tracking numbers, in one round trip where the
+     * filter is remote.
+     * @return the tracking numbers that were certainly never issued
+     */
+    Set<String> definitelyAbsent(Collection<String> trackingNumbers);
+
+    /**
+     * Records newly issued tracking numbers, before they are handed out.
+     */
+    void addAll(Collection<String> trackingNumbers);
+}
@@ -1,5 +1,20 @@
 package io.github.bluething.java.bolttrack.domain;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public interface TrackingNumberGenerator {
     String generateTrackingNumber();
+
+    /**
+     * Generates {@code count} tracking numbers in one call.
+     * Implementations may reserve the whole block at once instead of one number at a time.
+     */
+    default List<String> generateTrackingNumbers(int count) {
+        List<String> trackingNumbers = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            trackingNumbers.add(generateTrackingNumber());
+        }
+        return trackingNumbers;
+    }
 }
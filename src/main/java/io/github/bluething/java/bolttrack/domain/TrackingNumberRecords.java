@@ -2,6 +2,7 @@ package io.github.bluething.java.bolttrack.domain;
 
 import java.math.BigDecimal;
 import java.time.Instant;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
@@ -12,6 +13,12 @@ public class TrackingNumberRecords {
     ) {
     }
 
+    public record TrackingNumberBatchData(
+            List<String> trackingNumbers,
+            Instant createdAt
+    ) {
+    }
+
     public record CreateTrackingNumberCommand(String originCountryId,
                                               String destinationCountryId,
                                               BigDecimal weight,
@@ -35,4 +42,41 @@ public class TrackingNumberRecords {
             Map<String, Object> metadata
     ) {
     }
+
+    /** One entry of a multi-get; {@code detail} is null when the tracking number does not exist. */
+    public record TrackingLookupData(
+            String trackingNumber,
+            TrackingDetailData detail
+    ) {
+    }
+
+    /** One exported row and the cursor to resume right after it. */
+    public record TrackingExportData(
+            TrackingDetailData detail,
+            String cursor
+    ) {
+    }
+
+    /** One page of a listing; {@code nextCursor} is null on the last page. */
+    public record TrackingPageData(
+            List<TrackingDetailData> items,
+            String nextCursor
+    ) {
+    }
+
+    public record ScanEventCommand(
+            String trackingNumber,
+            String status,
+            Instant eventTime
+    ) {
+    }
+
+    public record ScanEventResult(
+            String trackingNumber,
+            String status,
+            Instant eventTime,
+            ScanEventOutcome outcome,
+            String message
+    ) {
+    }
 }
@@ -0,0 +1,98 @@
+package io.github.bluething.java.bolttrack.domain;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded, lock-free ring of ready-made tracking numbers.
+ * Every slot carries its own sequence number (Vyukov-style), so producers and
+ * consumers only ever CAS their own cursor and never block each other.
+ */
+final class TrackingNumberRingBuffer {
+    private final int capacity;
+    private final int mask;
+    private final String[] slots;
+    /**
+     * slot i is free for the producer at position p when sequence == p,
+     * and holds a value for the consumer at position p when sequence == p + 1.
+     */
+    private final AtomicLongArray sequences;
+    private final AtomicLong head = new AtomicLong(0L);
+    private final AtomicLong tail = new AtomicLong(0L);
+
+    TrackingNumberRingBuffer(int requestedCapacity) {
+        if (requestedCapacity < 2) {
+            throw new IllegalArgumentException("buffer capacity must be at least 2");
+        }
+        // round up to a power of two so the slot index is a mask, not a modulo
+        this.capacity = Integer.highestOneBit(requestedCapacity - 1) << 1;
+        this.mask = capacity - 1;
+        this.slots = new String[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Appends a value, returning false instead of blocking when the ring is full.
+     */
+    boolean offer(String value) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) (position & mask);
+            long diff = sequences.get(index) - position;
+            if (diff == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    slots[index] = value;
+                    // publish: the volatile write makes the slot visible to consumers
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (diff < 0) {
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * Removes the oldest value, or returns null when the ring is empty.
+     */
+    String poll() {
+        long position = head.get();
+        while (true) {
+            int index = (int) (position & mask);
+            long diff = sequences.get(index) - (position + 1);
+            if (diff == 0) {
+                if (head.compareAndSet(position, position + 1)) {
+                    String value = slots[index];
+                    slots[index] = null;
+                    // hand the slot back to the producer one lap ahead
+                    sequences.set(index, position + capacity);
+                    return value;
+                }
+                position = head.get();
+            } else if (diff < 0) {
+                return null;
+            } else {
+                position = head.get();
+            }
+        }
+    }
+
+    /**
+     * Approximate number of buffered values; exact once producers and consumers are quiet.
+     */
+    int size() {
+        long size = tail.get() - head.get();
+        if (size < 0) return 0;
+        return (int) Math.min(size, capacity);
+    }
+
+    int capacity() {
+        return capacity;
+    }
+}
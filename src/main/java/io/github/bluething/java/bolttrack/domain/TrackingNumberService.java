@@ -1,7 +1,25 @@
 package io.github.bluething.java.bolttrack.domain;
 
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
 public interface TrackingNumberService {
     TrackingNumberRecords.TrackingNumberData generate(TrackingNumberRecords.CreateTrackingNumberCommand dto);
-    TrackingNumberRecords.TrackingDetailData findByTrackingNumber(String trackingNumber);
+    TrackingNumberRecords.TrackingNumberBatchData generateBatch(TrackingNumberRecords.CreateTrackingNumberCommand dto, int count);
+    TrackingNumberRecords.TrackingDetailData findByTrackingNumber(String trackingNumber, boolean includeMetadata);
+    List<TrackingNumberRecords.TrackingLookupData> findByTrackingNumbers(List<String> trackingNumbers);
+    /**
+     * Streams a customer's tracking numbers generated in {@code [from, to)}, oldest first,
+     * resuming after {@code cursor} if given. The stream holds a database cursor; close it.
+     */
+    Stream<TrackingNumberRecords.TrackingExportData> exportByCustomer(UUID customerId, Instant from, Instant to, String cursor);
+    /**
+     * Lists a customer's tracking numbers newest first, optionally only those in {@code status},
+     * continuing after {@code cursor} if given.
+     */
+    TrackingNumberRecords.TrackingPageData listByCustomer(UUID customerId, String status, String cursor, int size);
     TrackingNumberRecords.TrackingDetailData updateStatus(String trackingNumber, String newStatusStr);
+    List<TrackingNumberRecords.ScanEventResult> applyScanEvents(List<TrackingNumberRecords.ScanEventCommand> events);
 }
@@ -0,0 +1,76 @@
+package io.github.bluething.java.bolttrack.domain;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Rejects tracking numbers that cannot be in storage by decoding their Snowflake fields: ones
+ * that are not base-36 longs, that were minted after now, or so long ago that they have expired.
+ * The request pattern only checks the alphabet; this runs before the cache or MongoDB is touched.
+ * Numbers with a check character that does not match are told apart, since they were mistyped.
+ */
+@Component
+class TrackingNumberValidator {
+    private final Duration maxAge;
+    private final Duration clockSkew;
+    private final Counter malformed;
+    private final Counter future;
+    private final Counter expired;
+    private final Counter mistyped;
+
+    TrackingNumberValidator(TrackingValidationProperties properties, MeterRegistry registry) {
+        this.maxAge = properties.maxAge();
+        this.clockSkew = properties.clockSkew();
+        this.malformed = rejected(registry, "malformed");
+        this.future    = rejected(registry, "future");
+        this.expired   = rejected(registry, "expired");
+        this.mistyped  = rejected(registry, "check-character");
+    }
+
+    private static Counter rejected(MeterRegistry registry, String reason) {
+        return Counter.builder("tracking.validation.rejected")
+                .description("Tracking numbers rejected without a lookup")
+                .tag("reason", reason)
+                .register(registry);
+    }
+
+    /**
+     * True if the tracking number ends in a check character that does not match the rest of it.
+     */
+    boolean isMistyped(String trackingNumber) {
+        if (TrackingNumberCodec.checkCharacterMatches(trackingNumber)) {
+            return false;
+        }
+        mistyped.increment();
+        return true;
+    }
+
+    /**
+     * True if no tracking number like this can exist.
+     */
+    boolean isImpossible(String trackingNumber) {
+        SnowflakeId id;
+        try {
+            id = TrackingNumberCodec.decodeId(trackingNumber);
+        } catch (IllegalArgumentException ex) {
+            malformed.increment();
+            return true;
+        }
+        // the 41/10/12-bit layout fits any positive long, so only the time can be out of range
+        Instant mintedAt = id.generatedAt();
+        Instant now = Instant.now();
+        if (mintedAt.isAfter(now.plus(clockSkew))) {
+            future.increment();
+            return true;
+        }
+        if (mintedAt.isBefore(now.minus(maxAge))) {
+            expired.increment();
+            return true;
+        }
+        return false;
+    }
+}
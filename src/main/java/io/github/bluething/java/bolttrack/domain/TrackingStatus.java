@@ -1,6 +1,9 @@
 package io.github.bluething.java.bolttrack.domain;
 
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.EnumSet;
+import java.util.Map;
 import java.util.Set;
 
 public enum TrackingStatus {
@@ -20,6 +23,21 @@ public enum TrackingStatus {
     private static final Set<TrackingStatus> EXCEPTION_NEXT     = EnumSet.of(IN_TRANSIT, RETURNED);
     private static final Set<TrackingStatus> FINAL_STATUSES     = EnumSet.of(DELIVERED, RETURNED, CANCELLED);
 
+    /** Inverse of canTransitionTo, so storage can check a transition without reading first. */
+    private static final Map<TrackingStatus, Set<TrackingStatus>> PREDECESSORS = new EnumMap<>(TrackingStatus.class);
+
+    static {
+        for (TrackingStatus next : values()) {
+            Set<TrackingStatus> predecessors = EnumSet.noneOf(TrackingStatus.class);
+            for (TrackingStatus current : values()) {
+                if (current.canTransitionTo(next)) {
+                    predecessors.add(current);
+                }
+            }
+            PREDECESSORS.put(next, Collections.unmodifiableSet(predecessors));
+        }
+    }
+
     /**
      * Returns true if this status may validly transition to {@code next}.
      */
@@ -33,6 +51,13 @@ public enum TrackingStatus {
         return false;
     }
 
+    /**
+     * Returns the statuses that may validly transition to this one.
+     */
+    public Set<TrackingStatus> predecessors() {
+        return PREDECESSORS.get(this);
+    }
+
     public boolean isFinal() {
         return FINAL_STATUSES.contains(this);
     }
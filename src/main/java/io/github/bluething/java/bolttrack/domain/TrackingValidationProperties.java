@@ -0,0 +1,28 @@
+package io.github.bluething.java.bolttrack.domain;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Bounds on the time encoded in a tracking number, checked before any lookup.
+ *
+ * @param maxAge    numbers minted longer ago than this are gone from storage; keep it above the
+ *                  generatedAt TTL or the retained partitions, whichever applies
+ * @param clockSkew how far ahead of this instance's clock another instance may have minted a number
+ */
+@ConfigurationProperties(prefix = "tracking.validation")
+record TrackingValidationProperties(
+        @DefaultValue("400d") Duration maxAge,
+        @DefaultValue("5s") Duration clockSkew
+) {
+    TrackingValidationProperties {
+        if (!maxAge.isPositive()) {
+            throw new IllegalArgumentException("max-age must be positive");
+        }
+        if (clockSkew.isNegative()) {
+            throw new IllegalArgumentException("clock-skew must not be negative");
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package io.github.bluething.java.bolttrack.domain;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * In-process Caffeine cache in front of a Redis cache shared by all instances.
+ * Evictions reach the other instances' in-process caches over the invalidation bus.
+ * Redis being unavailable degrades to a miss, never to a failed read.
+ *
+ * <p>An eviction leaves a tombstone in both tiers for {@code tombstone-ttl}. A reader that loaded
+ * the detail before the change it was evicted for cannot put the old value back meanwhile: Redis
+ * only takes puts of absent keys, and a local put is undone if the entry is tombstoned.
+ */
+@Component
+@ConditionalOnProperty(prefix = "tracking.cache", name = "enabled", havingValue = "true")
+@Slf4j
+class TwoTierTrackingDetailCache implements TrackingDetailCache {
+    private static final String KEY_PREFIX = "tracking:detail:";
+    /** Held by an evicted key in Redis; never valid JSON. */
+    private static final String TOMBSTONE = "evicted";
+
+    private final Cache<String, TrackingNumberRecords.TrackingDetailData> local;
+    /** Tracking numbers evicted within the last tombstone-ttl, on this instance or over the bus. */
+    private final Cache<String, Boolean> tombstones;
+    private final StringRedisTemplate redis;
+    private final RedisCacheInvalidationBus invalidationBus;
+    private final ObjectMapper objectMapper;
+    private final Duration redisTtl;
+    private final Duration tombstoneTtl;
+
+    private final Counter localHits;
+    private final Counter localMisses;
+    private final Counter redisHits;
+    private final Counter redisMisses;
+
+    TwoTierTrackingDetailCache(StringRedisTemplate redis,
+                               RedisCacheInvalidationBus invalidationBus,
+                               ObjectMapper objectMapper,
+                               TrackingCacheProperties properties,
+                               MeterRegistry registry) {
+        this.local = Caffeine.newBuilder()
+                .maximumSize(properties.localMaxSize())
+                .expireAfterWrite(properties.localTtl())
+                .build();
+        this.tombstones = Caffeine.newBuilder()
+                .maximumSize(properties.localMaxSize())
+                .expireAfterWrite(properties.tombstoneTtl())
+                .build();
+        this.redis = redis;
+        this.invalidationBus = invalidationBus;
+        this.objectMapper = objectMapper;
+        this.redisTtl = properties.redisTtl();
+        this.tombstoneTtl = properties.tombstoneTtl();
+
+        this.localHits   = requests(registry, "local", "hit");
+        this.localMisses = requests(registry, "local", "miss");
+        this.redisHits   = requests(registry, "redis", "hit");
+        this.redisMisses = requests(registry, "redis", "miss");
+        Gauge.builder("tracking.cache.local.size", local, Cache::estimatedSize)
+                .description("Tracking details held in the in-process cache")
+                .register(registry);
+
+        invalidationBus.register(new RedisCacheInvalidationBus.Listener() {
+            @Override
+            public void evict(String trackingNumber) {
+                evictLocal(trackingNumber);
+            }
+
+            @Override
+            public void evictAll() {
+                local.invalidateAll();
+            }
+        });
+    }
+
+    private static Counter requests(MeterRegistry registry, String tier, String result) {
+        return Counter.builder("tracking.cache.requests")
+                .description("Tracking detail cache lookups")
+                .tag("tier", tier)
+                .tag("result", result)
+                .register(registry);
+    }
+
+    @Override
+    public Optional<TrackingNumberRecords.TrackingDetailData> get(String trackingNumber) {
+        TrackingNumberRecords.TrackingDetailData detail = local.getIfPresent(trackingNumber);
+        if (detail != null) {
+            localHits.increment();
+            return Optional.of(detail);
+        }
+        localMisses.increment();
+
+        detail = readRedis(trackingNumber);
+        if (detail == null) {
+            redisMisses.increment();
+            return Optional.empty();
+        }
+        redisHits.increment();
+        putLocal(trackingNumber, detail);
+        return Optional.of(detail);
+    }
+
+    @Override
+    public Map<String, TrackingNumberRecords.TrackingDetailData> getAll(Collection<String> trackingNumbers) {
+        Map<String, TrackingNumberRecords.TrackingDetailData> found = new HashMap<>(local.getAllPresent(trackingNumbers));
+        localHits.increment(found.size());
+        List<String> misses = trackingNumbers.stream()
+                .filter(trackingNumber -> !found.containsKey(trackingNumber))
+                .toList();
+        if (misses.isEmpty()) {
+            return found;
+        }
+        localMisses.increment(misses.size());
+
+        List<String> values;
+        try {
+            // one MGET for everything the local tier did not have
+            values = redis.opsForValue().multiGet(misses.stream().map(TwoTierTrackingDetailCache::key).toList());
+        } catch (DataAccessException ex) {
+            log.warn("Cannot read {} tracking numbers from Redis: {}", misses.size(), ex.getMessage());
+            values = null;
+        }
+        for (int i = 0; i < misses.size(); i++) {
+            TrackingNumberRecords.TrackingDetailData detail = values == null ? null : parse(misses.get(i), values.get(i));
+            if (detail == null) {
+                redisMisses.increment();
+            } else {
+                redisHits.increment();
+                putLocal(detail.trackingNumber(), detail);
+                found.put(detail.trackingNumber(), detail);
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public void put(TrackingNumberRecords.TrackingDetailData detail) {
+        putLocal(detail.trackingNumber(), detail);
+        try {
+            // SET NX: never over a tombstone
+            redis.opsForValue().setIfAbsent(key(detail.trackingNumber()),
+                    objectMapper.writeValueAsString(detail), redisTtl);
+        } catch (JsonProcessingException | DataAccessException ex) {
+            log.warn("Cannot cache tracking number {} in Redis: {}", detail.trackingNumber(), ex.getMessage());
+        }
+    }
+
+    @Override
+    public void putAll(Collection<TrackingNumberRecords.TrackingDetailData> details) {
+        if (details.isEmpty()) {
+            return;
+        }
+        Map<String, String> values = new HashMap<>();
+        for (TrackingNumberRecords.TrackingDetailData detail : details) {
+            putLocal(detail.trackingNumber(), detail);
+            try {
+                values.put(key(detail.trackingNumber()), objectMapper.writeValueAsString(detail));
+            } catch (JsonProcessingException ex) {
+                log.warn("Cannot cache tracking number {} in Redis: {}", detail.trackingNumber(), ex.getMessage());
+            }
+        }
+        try {
+            // MSETNX has no expiry and is all-or-nothing, so pipeline one SET NX EX per entry instead
+            redis.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection strings = (StringRedisConnection) connection;
+                values.forEach((key, json) -> strings.set(key, json,
+                        Expiration.from(redisTtl), RedisStringCommands.SetOption.SET_IF_ABSENT));
+                return null;
+            });
+        } catch (DataAccessException ex) {
+            log.warn("Cannot cache {} tracking numbers in Redis: {}", values.size(), ex.getMessage());
+        }
+    }
+
+    @Override
+    public void evict(String trackingNumber) {
+        evictLocal(trackingNumber);
+        try {
+            redis.opsForValue().set(key(trackingNumber), TOMBSTONE, tombstoneTtl);
+        } catch (DataAccessException ex) {
+            // the Redis copy lives at most redis-ttl longer
+            log.warn("Cannot evict tracking number {} from Redis: {}", trackingNumber, ex.getMessage());
+        }
+        invalidationBus.publish(List.of(trackingNumber));
+    }
+
+    @Override
+    public void evictAll(Collection<String> trackingNumbers) {
+        if (trackingNumbers.isEmpty()) {
+            return;
+        }
+        trackingNumbers.forEach(this::evictLocal);
+        try {
+            // one pipeline of tombstones and one message for the whole batch
+            redis.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection strings = (StringRedisConnection) connection;
+                trackingNumbers.forEach(trackingNumber -> strings.pSetEx(key(trackingNumber), tombstoneTtl.toMillis(), TOMBSTONE));
+                return null;
+            });
+        } catch (DataAccessException ex) {
+            log.warn("Cannot evict {} tracking numbers from Redis: {}", trackingNumbers.size(), ex.getMessage());
+        }
+        invalidationBus.publish(trackingNumbers);
+    }
+
+    /**
+     * Caches a detail in-process unless it was evicted within the last tombstone-ttl. Checked after
+     * the put: an eviction either left its tombstone before the check, or invalidates the entry after it.
+     */
+    private void putLocal(String trackingNumber, TrackingNumberRecords.TrackingDetailData detail) {
+        local.put(trackingNumber, detail);
+        if (tombstones.getIfPresent(trackingNumber) != null) {
+            local.invalidate(trackingNumber);
+        }
+    }
+
+    private void evictLocal(String trackingNumber) {
+        tombstones.put(trackingNumber, Boolean.TRUE);
+        local.invalidate(trackingNumber);
+    }
+
+    private TrackingNumberRecords.TrackingDetailData readRedis(String trackingNumber) {
+        try {
+            return parse(trackingNumber, redis.opsForValue().get(key(trackingNumber)));
+        } catch (DataAccessException ex) {
+            log.warn("Cannot read tracking number {} from Redis: {}", trackingNumber, ex.getMessage());
+            return null;
+        }
+    }
+
+    private TrackingNumberRecords.TrackingDetailData parse(String trackingNumber, String json) {
+        try {
+            return json == null || json.equals(TOMBSTONE) ? null
+                    : objectMapper.readValue(json, TrackingNumberRecords.TrackingDetailData.class);
+        } catch (JsonProcessingException ex) {
+            log.warn("Cannot read tracking number {} from Redis: {}", trackingNumber, ex.getMessage());
+            return null;
+        }
+    }
+
+    private static String key(String trackingNumber) {
+        return KEY_PREFIX + trackingNumber;
+    }
+}
@@ -2,4 +2,52 @@ package io.github.bluething.java.bolttrack.domain;
 
 public interface WorkerIdProvider {
     int getWorkerId();
+
+    /**
+     * The worker id together with how long this instance certainly keeps it. Read on every
+     * generation, so it must be a cheap field read. Ids that cannot be taken away are held forever.
+     */
+    default Lease lease() {
+        return Lease.forever(getWorkerId());
+    }
+
+    /**
+     * Whether this instance still owns its worker id, so no other instance can mint the same
+     * numbers. Asks the lease store, so callers should not invoke it on a hot path.
+     */
+    default boolean holdsLease() {
+        return true;
+    }
+
+    /**
+     * A worker id and the {@link System#nanoTime()} until which it is held.
+     */
+    record Lease(int workerId, long validUntilNanos) {
+        private static final long FOREVER = Long.MAX_VALUE;
+        private static final long NEVER = Long.MIN_VALUE;
+
+        /** Before an id was claimed, or after it was lost. */
+        public static final Lease NONE = new Lease(0, NEVER);
+
+        public Lease {
+            if (workerId < 0 || workerId > SnowflakeId.MAX_WORKER_ID) {
+                throw new IllegalArgumentException(
+                        "worker-id must be between 0 and " + SnowflakeId.MAX_WORKER_ID
+                );
+            }
+        }
+
+        public static Lease forever(int workerId) {
+            return new Lease(workerId, FOREVER);
+        }
+
+        public static Lease until(int workerId, long validUntilNanos) {
+            return new Lease(workerId, validUntilNanos);
+        }
+
+        public boolean isValid() {
+            return validUntilNanos == FOREVER
+                    || (validUntilNanos != NEVER && validUntilNanos - System.nanoTime() > 0);
+        }
+    }
 }
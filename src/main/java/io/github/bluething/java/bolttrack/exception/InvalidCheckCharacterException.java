@@ -0,0 +1,7 @@
+package io.github.bluething.java.bolttrack.exception;
+
+public class InvalidCheckCharacterException extends BadRequestException {
+    public InvalidCheckCharacterException(String trackingNumber) {
+        super("Tracking number " + trackingNumber + " has a wrong check character, it was probably mistyped");
+    }
+}
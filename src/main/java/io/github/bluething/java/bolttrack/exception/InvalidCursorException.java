@@ -0,0 +1,7 @@
+package io.github.bluething.java.bolttrack.exception;
+
+public class InvalidCursorException extends BadRequestException {
+    public InvalidCursorException(String cursor) {
+        super("Invalid or expired cursor " + cursor);
+    }
+}
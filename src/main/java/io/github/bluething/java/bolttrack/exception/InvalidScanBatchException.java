@@ -0,0 +1,7 @@
+package io.github.bluething.java.bolttrack.exception;
+
+public class InvalidScanBatchException extends BadRequestException {
+    public InvalidScanBatchException(String message) {
+        super(message);
+    }
+}
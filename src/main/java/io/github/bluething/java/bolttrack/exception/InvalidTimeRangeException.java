@@ -0,0 +1,9 @@
+package io.github.bluething.java.bolttrack.exception;
+
+import java.time.Instant;
+
+public class InvalidTimeRangeException extends BadRequestException {
+    public InvalidTimeRangeException(Instant from, Instant to) {
+        super("from " + from + " must be before to " + to);
+    }
+}
@@ -0,0 +1,54 @@
+package io.github.bluething.java.bolttrack.persistence;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Writes synchronously: the caller returns only once MongoDB has acknowledged the insert.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "tracking.persistence.write-behind", name = "enabled", havingValue = "false", matchIfMissing = true)
+class RepositoryTrackingNumberWriter implements TrackingNumberWriter {
+    private final MongoTemplate mongoTemplate;
+    private final TrackingNumberRepository repository;
+    private final TrackingNumberCollection collection;
+    private final TrackingNumberPartitions partitions;
+
+    @Override
+    public void write(TrackingNumberDocument doc) {
+        String name = partitions.collectionOf(doc.getTrackingNumber());
+        if (collection.enabled()) {
+            collection.execute(() -> collection.get(name).insertOne(doc));
+        } else {
+            mongoTemplate.insert(doc, name);
+        }
+    }
+
+    @Override
+    public void writeAll(List<TrackingNumberDocument> docs) {
+        // either way a single insertMany per partition
+        partitions.byCollection(docs, TrackingNumberDocument::getTrackingNumber).forEach((name, group) -> {
+            if (collection.enabled()) {
+                collection.execute(() -> collection.get(name).insertMany(group));
+            } else {
+                mongoTemplate.insert(group, name);
+            }
+        });
+    }
+
+    @Override
+    public Optional<TrackingNumberDocument> updateStatusIfIn(String trackingNumber,
+                                                             String status,
+                                                             Collection<String> predecessors,
+                                                             Instant updatedAt) {
+        return repository.updateStatusIfIn(trackingNumber, status, predecessors, updatedAt);
+    }
+}
@@ -0,0 +1,123 @@
+package io.github.bluething.java.bolttrack.persistence;
+
+import com.mongodb.ClientSessionOptions;
+import com.mongodb.client.ClientSession;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Sorts;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonType;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Moves documents from an ObjectId {@code _id} to the Snowflake layout: each batch is deleted
+ * and re-inserted under its decoded tracking number in one transaction, so the unique
+ * tracking_number index never sees both copies. The batch is read inside that transaction too,
+ * so writes can keep going while it runs: a write racing a batch makes the transaction retry.
+ * Safe to interrupt and run again. The tracking_number index stays: while migrate-ids is on every
+ * lookup also matches on tracking_number, on this and every other instance. It is dropped by
+ * {@link TrackingNumberIndexes} on a later start with migrate-ids off.
+ */
+@Component
+@ConditionalOnProperty(prefix = "tracking.persistence.storage", name = "migrate-ids", havingValue = "true")
+@Slf4j
+class TrackingIdMigration implements ApplicationRunner {
+    private final MongoTemplate mongoTemplate;
+    private final TrackingStorageProperties properties;
+
+    TrackingIdMigration(MongoTemplate mongoTemplate, TrackingStorageProperties properties) {
+        this.mongoTemplate = mongoTemplate;
+        this.properties = properties;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (properties.idMode() != TrackingStorageProperties.IdMode.SNOWFLAKE) {
+            log.warn("Skipping _id migration: tracking.persistence.storage.id-mode is {}", properties.idMode());
+            return;
+        }
+        MongoCollection<Document> collection = mongoTemplate.getCollection(
+                mongoTemplate.getCollectionName(TrackingNumberDocument.class));
+
+        long migrated = 0;
+        long skipped = 0;
+        ObjectId after = null;
+        while (true) {
+            Batch batch = move(collection, after);
+            if (batch.last() == null) {
+                break;
+            }
+            after = batch.last();
+            skipped += batch.skipped();
+            if (batch.moved() > 0) {
+                migrated += batch.moved();
+                log.info("Migrated {} tracking numbers to Snowflake _id", migrated);
+            }
+        }
+
+        if (skipped > 0) {
+            log.warn("{} tracking numbers are not Snowflake numbers; they keep their ObjectId and the tracking_number index",
+                    skipped);
+        }
+        log.info("_id migration done: {} documents moved; turn tracking.persistence.storage.migrate-ids off "
+                + "on every instance, the tracking_number index is dropped on the next start", migrated);
+    }
+
+    /**
+     * @param last    {@code _id} of the last document read, null once nothing is left
+     * @param moved   documents re-inserted under a Snowflake {@code _id}
+     * @param skipped documents that are not Snowflake numbers
+     */
+    private record Batch(ObjectId last, int moved, int skipped) {
+    }
+
+    /**
+     * Reads the next batch and moves it in one transaction, so a status change committed after
+     * the read conflicts with the delete and the batch is read again instead of overwriting it.
+     */
+    private Batch move(MongoCollection<Document> collection, ObjectId after) {
+        Bson filter = after == null
+                ? Filters.type("_id", BsonType.OBJECT_ID)
+                : Filters.and(Filters.type("_id", BsonType.OBJECT_ID), Filters.gt("_id", after));
+        try (ClientSession session = mongoTemplate.getMongoDatabaseFactory()
+                .getSession(ClientSessionOptions.builder().build())) {
+            return session.withTransaction(() -> {
+                List<Document> batch = collection.find(session, filter)
+                        .sort(Sorts.ascending("_id"))
+                        .limit(properties.migrationBatchSize())
+                        .into(new ArrayList<>());
+                if (batch.isEmpty()) {
+                    return new Batch(null, 0, 0);
+                }
+                List<ObjectId> oldIds = new ArrayList<>(batch.size());
+                List<Document> copies = new ArrayList<>(batch.size());
+                for (Document doc : batch) {
+                    Long id = TrackingNumberKeys.snowflakeId(doc.getString("tracking_number"));
+                    if (id == null) {
+                        // not minted by the Snowflake generator, keep it as it is
+                        continue;
+                    }
+                    oldIds.add(doc.getObjectId("_id"));
+                    Document copy = new Document(doc);
+                    copy.put("_id", id);
+                    copies.add(copy);
+                }
+                if (!copies.isEmpty()) {
+                    collection.deleteMany(session, Filters.in("_id", oldIds));
+                    collection.insertMany(session, copies);
+                }
+                return new Batch(batch.getLast().getObjectId("_id"), copies.size(), batch.size() - copies.size());
+            });
+        }
+    }
+}
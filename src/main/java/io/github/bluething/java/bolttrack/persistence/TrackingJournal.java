@@ -0,0 +1,568 @@
+package io.github.bluething.java.bolttrack.persistence;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only, memory-mapped journal of writes that were acknowledged before MongoDB has them.
+ *
+ * <p>Records are framed as {@code [int length][int crc32][body]} inside fixed-size segment files.
+ * {@link #append} returns once the record is on disk; concurrent appenders share one
+ * {@code force()} (group commit). Entries stay in the journal until {@link #acknowledge}d,
+ * and whatever was not acknowledged when the process died is handed back by {@link #open()}.
+ * Segments are deleted oldest first, once every entry in them has been acknowledged.
+ */
+@Slf4j
+class TrackingJournal {
+    enum Op { INSERT, STATUS }
+
+    /**
+     * A journaled write. For {@link Op#STATUS} only the tracking number, status and updated-at are set.
+     */
+    record Entry(long lsn, Op op, TrackingNumberDocument document) {
+    }
+
+    private static final byte TYPE_INSERT = 1;
+    private static final byte TYPE_STATUS = 2;
+    private static final byte TYPE_ACK    = 3;
+    private static final int HEADER_BYTES = 8;
+    private static final int MAX_ACKS_PER_RECORD = 1024;
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String DEAD_LETTER_FILE = "dead-letter.log";
+
+    private final Path directory;
+    private final int segmentSize;
+    /** LSNs per ack record, so that an ack record always fits in a segment. */
+    private final int acksPerRecord;
+
+    /** Guards the active segment, the write position and the segment map. */
+    private final ReentrantLock appendLock = new ReentrantLock();
+    /** Held by the thread doing the fsync; the others queue up and usually find their record already forced. */
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private final TreeMap<Long, Segment> segments = new TreeMap<>();
+    private Segment active;
+    private int writePosition;
+    /** LSN just past the last appended record. */
+    private long written;
+    private long appendedRecords;
+    private long syncedRecords;
+    /** Everything below this LSN has been forced to disk. */
+    private volatile long durable;
+
+    private final Timer syncLatency;
+    private final DistributionSummary syncBatch;
+
+    TrackingJournal(Path directory, int segmentSize, MeterRegistry registry) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        // ack body = type byte + count int + 8 bytes per LSN, framed; keep it within a quarter segment
+        this.acksPerRecord = Math.min(MAX_ACKS_PER_RECORD, (segmentSize / 4 - HEADER_BYTES - 5) / Long.BYTES);
+        if (acksPerRecord < 1) {
+            throw new IllegalArgumentException("journal segment size is too small");
+        }
+        this.syncLatency = Timer.builder("tracking.persistence.journal.sync")
+                .description("Time spent forcing the journal to disk")
+                .register(registry);
+        this.syncBatch = DistributionSummary.builder("tracking.persistence.journal.sync.records")
+                .description("Journal records made durable by one force (group commit size)")
+                .register(registry);
+        Gauge.builder("tracking.persistence.journal.segments", this, TrackingJournal::segmentCount)
+                .description("Journal segment files still holding unacknowledged writes")
+                .register(registry);
+    }
+
+    /**
+     * Opens the journal, returning the entries that were never acknowledged, oldest first.
+     * New appends always go to a fresh segment, so a torn tail is never written over.
+     */
+    List<Entry> open() {
+        appendLock.lock();
+        try {
+            Files.createDirectories(directory);
+            List<Entry> entries = new ArrayList<>();
+            Set<Long> acked = new HashSet<>();
+            long nextIndex = 0;
+            for (Path path : segmentFiles()) {
+                long index = segmentIndex(path);
+                Segment segment = Segment.open(path, index, -1);
+                segments.put(index, segment);
+                scan(segment, entries, acked);
+                nextIndex = index + 1;
+            }
+            List<Entry> unacked = new ArrayList<>();
+            for (Entry entry : entries) {
+                if (!acked.contains(entry.lsn())) {
+                    unacked.add(entry);
+                    segments.get(segmentOf(entry.lsn())).unacked++;
+                }
+            }
+            roll(nextIndex);
+            deleteAcknowledgedSegments();
+            return unacked;
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot open tracking journal in " + directory, ex);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Appends one write and returns once it is durable.
+     */
+    Entry append(Op op, TrackingNumberDocument document) {
+        return appendAll(op, List.of(document)).getFirst();
+    }
+
+    /**
+     * Appends several writes and returns once all of them are durable, with a single force.
+     */
+    List<Entry> appendAll(Op op, List<TrackingNumberDocument> documents) {
+        // serialize outside the lock, appenders only contend for the copy
+        List<byte[]> records = new ArrayList<>(documents.size());
+        for (TrackingNumberDocument document : documents) {
+            records.add(frame(op == Op.INSERT ? encodeInsert(document) : encodeStatus(document)));
+        }
+        List<Entry> entries = new ArrayList<>(documents.size());
+        long end;
+        appendLock.lock();
+        try {
+            for (int i = 0; i < records.size(); i++) {
+                long lsn = put(records.get(i));
+                active.unacked++;
+                entries.add(new Entry(lsn, op, documents.get(i)));
+            }
+            end = written;
+        } finally {
+            appendLock.unlock();
+        }
+        awaitDurable(end);
+        return entries;
+    }
+
+    /**
+     * Marks entries as persisted in MongoDB, and returns once the ack is on disk. Replaying a
+     * status change is not idempotent once the number has moved on, so an ack must not be lost
+     * after its entries were handed back to the caller; concurrent appends share the force.
+     */
+    void acknowledge(List<Entry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        List<byte[]> records = new ArrayList<>();
+        for (int from = 0; from < entries.size(); from += acksPerRecord) {
+            records.add(frame(encodeAck(entries.subList(from, Math.min(entries.size(), from + acksPerRecord)))));
+        }
+        long end;
+        appendLock.lock();
+        try {
+            records.forEach(this::put);
+            end = written;
+            for (Entry entry : entries) {
+                Segment segment = segments.get(segmentOf(entry.lsn()));
+                if (segment != null) {
+                    segment.unacked--;
+                }
+            }
+            deleteAcknowledgedSegments();
+        } finally {
+            appendLock.unlock();
+        }
+        awaitDurable(end);
+    }
+
+    /**
+     * Sets aside entries MongoDB keeps rejecting: they are appended, in the journal's record
+     * format, to a dead-letter file next to the segments, forced, and then acknowledged.
+     */
+    void deadLetter(List<Entry> entries) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        for (Entry entry : entries) {
+            byte[] body = entry.op() == Op.INSERT ? encodeInsert(entry.document()) : encodeStatus(entry.document());
+            bytes.writeBytes(frame(body));
+        }
+        try (FileChannel channel = FileChannel.open(directory.resolve(DEAD_LETTER_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot write the tracking journal dead-letter file", ex);
+        }
+        acknowledge(entries);
+    }
+
+    /**
+     * Entries set aside by {@link #deadLetter}, oldest first.
+     */
+    List<Entry> deadLetters() {
+        Path path = directory.resolve(DEAD_LETTER_FILE);
+        if (!Files.exists(path)) {
+            return List.of();
+        }
+        List<Entry> entries = new ArrayList<>();
+        try {
+            Segment file = Segment.open(path, 0, -1);
+            try {
+                scan(file, entries, new HashSet<>());
+            } finally {
+                file.close();
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot read the tracking journal dead-letter file", ex);
+        }
+        return entries;
+    }
+
+    void close() {
+        appendLock.lock();
+        try {
+            if (active != null) {
+                active.buffer.force();
+            }
+            deleteAcknowledgedSegments();
+            for (Segment segment : segments.values()) {
+                segment.close();
+            }
+            segments.clear();
+            active = null;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /** Copies a framed record into the active segment, rolling over when it does not fit. */
+    private long put(byte[] record) {
+        if (record.length > segmentSize) {
+            throw new IllegalArgumentException("journal record of " + record.length + " bytes exceeds the segment size");
+        }
+        if (writePosition + record.length > segmentSize) {
+            // the rest of the segment stays zeroed, which reads back as its end
+            active.buffer.force();
+            roll(active.index + 1);
+        }
+        long lsn = lsn(active.index, writePosition);
+        active.buffer.put(writePosition, record);
+        writePosition += record.length;
+        written = lsn(active.index, writePosition);
+        appendedRecords++;
+        return lsn;
+    }
+
+    private void awaitDurable(long end) {
+        if (durable >= end) {
+            return;
+        }
+        syncLock.lock();
+        try {
+            if (durable >= end) {
+                return;
+            }
+            MappedByteBuffer buffer;
+            long target;
+            long records;
+            appendLock.lock();
+            try {
+                // older segments were forced when we rolled over them
+                buffer = active.buffer;
+                target = written;
+                records = appendedRecords - syncedRecords;
+                syncedRecords = appendedRecords;
+            } finally {
+                appendLock.unlock();
+            }
+            long startedAt = System.nanoTime();
+            buffer.force();
+            syncLatency.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+            syncBatch.record(records);
+            durable = target;
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    private void roll(long index) {
+        try {
+            active = Segment.open(directory.resolve(segmentName(index)), index, segmentSize);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot create journal segment " + index, ex);
+        }
+        segments.put(index, active);
+        writePosition = 0;
+        written = lsn(index, 0);
+    }
+
+    /**
+     * Deletes fully acknowledged segments from the oldest one up. Only a prefix may go:
+     * a later segment can hold the acks for entries of an earlier one.
+     */
+    private void deleteAcknowledgedSegments() {
+        while (!segments.isEmpty()) {
+            Segment oldest = segments.firstEntry().getValue();
+            if (oldest == active || oldest.unacked > 0) {
+                return;
+            }
+            segments.pollFirstEntry();
+            oldest.close();
+            try {
+                Files.deleteIfExists(oldest.path);
+            } catch (IOException ex) {
+                log.warn("Cannot delete journal segment {}: {}", oldest.path, ex.getMessage());
+            }
+        }
+    }
+
+    private void scan(Segment segment, List<Entry> entries, Set<Long> acked) throws IOException {
+        MappedByteBuffer buffer = segment.buffer;
+        int position = 0;
+        while (position + HEADER_BYTES <= buffer.capacity()) {
+            int length = buffer.getInt(position);
+            if (length <= 0 || position + HEADER_BYTES + length > buffer.capacity()) {
+                return;
+            }
+            byte[] body = new byte[length];
+            buffer.get(position + HEADER_BYTES, body);
+            if (crc(body) != buffer.getInt(position + 4)) {
+                // torn write at the tail: that record was never acknowledged to a caller
+                log.warn("Journal segment {} ends with a torn record at offset {}", segment.path, position);
+                return;
+            }
+            decode(lsn(segment.index, position), body, entries, acked);
+            position += HEADER_BYTES + length;
+        }
+    }
+
+    private int segmentCount() {
+        appendLock.lock();
+        try {
+            return segments.size();
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                    .filter(path -> {
+                        String name = path.getFileName().toString();
+                        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+                    })
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static String segmentName(long index) {
+        return SEGMENT_PREFIX + "%016d".formatted(index) + SEGMENT_SUFFIX;
+    }
+
+    private static long segmentIndex(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    /** LSN = [segment index (high 32 bits) | offset in segment (low 32 bits)], ordered like the journal. */
+    private static long lsn(long segmentIndex, int position) {
+        return (segmentIndex << 32) | position;
+    }
+
+    private static long segmentOf(long lsn) {
+        return lsn >>> 32;
+    }
+
+    // ---- record codec ----
+
+    private static byte[] frame(byte[] body) {
+        byte[] record = new byte[HEADER_BYTES + body.length];
+        writeInt(record, 0, body.length);
+        writeInt(record, 4, crc(body));
+        System.arraycopy(body, 0, record, HEADER_BYTES, body.length);
+        return record;
+    }
+
+    private static byte[] encodeInsert(TrackingNumberDocument doc) {
+        return encode(out -> {
+            // metadata is not journaled: it is always empty on a freshly generated number
+            out.writeByte(TYPE_INSERT);
+            writeString(out, doc.getTrackingNumber());
+            writeString(out, doc.getOriginCountryId());
+            writeString(out, doc.getDestinationCountryId());
+            writeString(out, doc.getWeight() == null ? null : doc.getWeight().toString());
+            writeString(out, doc.getCustomerId() == null ? null : doc.getCustomerId().toString());
+            writeString(out, doc.getCustomerName());
+            writeString(out, doc.getCustomerSlug());
+            writeInstant(out, doc.getGeneratedAt());
+            writeString(out, doc.getStatus());
+        });
+    }
+
+    private static byte[] encodeStatus(TrackingNumberDocument doc) {
+        return encode(out -> {
+            out.writeByte(TYPE_STATUS);
+            writeString(out, doc.getTrackingNumber());
+            writeString(out, doc.getStatus());
+            writeInstant(out, doc.getUpdatedAt());
+        });
+    }
+
+    private static byte[] encodeAck(List<Entry> entries) {
+        return encode(out -> {
+            out.writeByte(TYPE_ACK);
+            out.writeInt(entries.size());
+            for (Entry entry : entries) {
+                out.writeLong(entry.lsn());
+            }
+        });
+    }
+
+    private static void decode(long lsn, byte[] body, List<Entry> entries, Set<Long> acked) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+        byte type = in.readByte();
+        switch (type) {
+            case TYPE_INSERT -> {
+                TrackingNumberDocument doc = new TrackingNumberDocument();
+                doc.setTrackingNumber(readString(in));
+                doc.setOriginCountryId(readString(in));
+                doc.setDestinationCountryId(readString(in));
+                String weight = readString(in);
+                doc.setWeight(weight == null ? null : new BigDecimal(weight));
+                String customerId = readString(in);
+                doc.setCustomerId(customerId == null ? null : UUID.fromString(customerId));
+                doc.setCustomerName(readString(in));
+                doc.setCustomerSlug(readString(in));
+                doc.setGeneratedAt(readInstant(in));
+                doc.setStatus(readString(in));
+                entries.add(new Entry(lsn, Op.INSERT, doc));
+            }
+            case TYPE_STATUS -> {
+                TrackingNumberDocument doc = new TrackingNumberDocument();
+                doc.setTrackingNumber(readString(in));
+                doc.setStatus(readString(in));
+                doc.setUpdatedAt(readInstant(in));
+                entries.add(new Entry(lsn, Op.STATUS, doc));
+            }
+            case TYPE_ACK -> {
+                int count = in.readInt();
+                for (int i = 0; i < count; i++) {
+                    acked.add(in.readLong());
+                }
+            }
+            default -> throw new IOException("Unknown journal record type " + type + " at LSN " + lsn);
+        }
+    }
+
+    private interface BodyWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private static byte[] encode(BodyWriter writer) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            writer.write(out);
+        } catch (IOException ex) {
+            // in-memory stream, cannot happen
+            throw new UncheckedIOException(ex);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeInstant(DataOutputStream out, Instant value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value.getEpochSecond());
+            out.writeInt(value.getNano());
+        }
+    }
+
+    private static Instant readInstant(DataInputStream in) throws IOException {
+        return in.readBoolean() ? Instant.ofEpochSecond(in.readLong(), in.readInt()) : null;
+    }
+
+    private static int crc(byte[] body) {
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        return (int) crc.getValue();
+    }
+
+    private static void writeInt(byte[] target, int offset, int value) {
+        target[offset]     = (byte) (value >>> 24);
+        target[offset + 1] = (byte) (value >>> 16);
+        target[offset + 2] = (byte) (value >>> 8);
+        target[offset + 3] = (byte) value;
+    }
+
+    private static final class Segment {
+        final Path path;
+        final long index;
+        final FileChannel channel;
+        final MappedByteBuffer buffer;
+        /** Entries in this segment not yet acknowledged; guarded by appendLock. */
+        int unacked;
+
+        private Segment(Path path, long index, FileChannel channel, MappedByteBuffer buffer) {
+            this.path = path;
+            this.index = index;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+
+        /** Maps an existing segment as it is ({@code size < 0}) or creates one of {@code size} bytes. */
+        static Segment open(Path path, long index, int size) throws IOException {
+            FileChannel channel = FileChannel.open(path,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            long length = size < 0 ? channel.size() : size;
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+            return new Segment(path, index, channel, buffer);
+        }
+
+        void close() {
+            try {
+                channel.close();
+            } catch (IOException ex) {
+                log.warn("Cannot close journal segment {}: {}", path, ex.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package io.github.bluething.java.bolttrack.persistence;
+
+import com.mongodb.MongoException;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import org.bson.codecs.configuration.CodecRegistries;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.MongoExceptionTranslator;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Supplier;
+
+/**
+ * Tracking collections with {@link TrackingNumberDocumentCodec} registered, for the hot paths
+ * that skip MappingMongoConverter when {@code tracking.persistence.storage.direct-codec} is on.
+ */
+@Component
+class TrackingNumberCollection {
+    private static final MongoExceptionTranslator EXCEPTION_TRANSLATOR = new MongoExceptionTranslator();
+
+    private final boolean enabled;
+    private final MongoDatabase db;
+    private final CodecRegistry codecRegistry;
+
+    TrackingNumberCollection(MongoTemplate mongoTemplate,
+                             TrackingNumberKeys keys,
+                             TrackingStorageProperties properties) {
+        this.enabled = properties.directCodec();
+        this.db = mongoTemplate.getDb();
+        this.codecRegistry = CodecRegistries.fromRegistries(
+                CodecRegistries.fromCodecs(new TrackingNumberDocumentCodec(keys, db.getCodecRegistry())),
+                db.getCodecRegistry());
+    }
+
+    boolean enabled() {
+        return enabled;
+    }
+
+    /**
+     * Runs a driver call, translating driver exceptions like MongoTemplate would.
+     */
+    <T> T execute(Supplier<T> call) {
+        try {
+            return call.get();
+        } catch (MongoException ex) {
+            DataAccessException translated = EXCEPTION_TRANSLATOR.translateExceptionIfPossible(ex);
+            throw translated != null ? translated : ex;
+        }
+    }
+
+    /**
+     * @param name tracking_numbers, or one of its partitions
+     */
+    MongoCollection<TrackingNumberDocument> get(String name) {
+        // a cheap handle; the driver shares the connection pool
+        return db.getCollection(name, TrackingNumberDocument.class).withCodecRegistry(codecRegistry);
+    }
+}
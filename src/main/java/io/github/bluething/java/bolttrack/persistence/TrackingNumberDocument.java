@@ -20,8 +20,9 @@ import java.util.UUID;
 @NoArgsConstructor
 @AllArgsConstructor
 public class TrackingNumberDocument {
+    /** An ObjectId, or the decoded tracking number in the Snowflake storage mode. */
     @Id
-    private String id;
+    private Object id;
 
     @Field("tracking_number")
     @Indexed(unique = true, background = true)
@@ -53,6 +54,24 @@ public class TrackingNumberDocument {
     @Field("status")
     private String status;
 
+    @Field("updated_at")
+    private Instant updatedAt;
+
     @Field("metadata")
     private Map<String, Object> metadata;
+
+    public TrackingNumberDocument(Object id,
+                                  String trackingNumber,
+                                  String originCountryId,
+                                  String destinationCountryId,
+                                  BigDecimal weight,
+                                  UUID customerId,
+                                  String customerName,
+                                  String customerSlug,
+                                  Instant generatedAt,
+                                  String status,
+                                  Map<String, Object> metadata) {
+        this(id, trackingNumber, originCountryId, destinationCountryId, weight, customerId,
+                customerName, customerSlug, generatedAt, status, null, metadata);
+    }
 }
@@ -0,0 +1,156 @@
+package io.github.bluething.java.bolttrack.persistence;
+
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentWriter;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonValue;
+import org.bson.BsonWriter;
+import org.bson.Document;
+import org.bson.codecs.Codec;
+import org.bson.codecs.CollectibleCodec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.types.Decimal128;
+import org.bson.types.ObjectId;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Reads and writes {@link TrackingNumberDocument} straight from and to BSON, with the same field
+ * names and types MappingMongoConverter uses, minus the {@code _class} hint. Documents written by
+ * either side can be read by the other.
+ */
+class TrackingNumberDocumentCodec implements CollectibleCodec<TrackingNumberDocument> {
+    private final TrackingNumberKeys keys;
+    /** Carries the client's UUID representation. */
+    private final Codec<UUID> uuidCodec;
+    private final Codec<Document> documentCodec;
+    private final CodecRegistry registry;
+
+    TrackingNumberDocumentCodec(TrackingNumberKeys keys, CodecRegistry registry) {
+        this.keys = keys;
+        this.uuidCodec = registry.get(UUID.class);
+        this.documentCodec = registry.get(Document.class);
+        this.registry = registry;
+    }
+
+    @Override
+    public void encode(BsonWriter writer, TrackingNumberDocument doc, EncoderContext context) {
+        writer.writeStartDocument();
+        Object id = doc.getId();
+        if (id != null) {
+            writer.writeName("_id");
+            if (id instanceof String hex && ObjectId.isValid(hex)) {
+                // what the converter does for a String id
+                writer.writeObjectId(new ObjectId(hex));
+            } else {
+                encodeValue(writer, id, context);
+            }
+        }
+        writeString(writer, "tracking_number", doc.getTrackingNumber());
+        writeString(writer, "origin_country_id", doc.getOriginCountryId());
+        writeString(writer, "destination_country_id", doc.getDestinationCountryId());
+        if (doc.getWeight() != null) {
+            writer.writeDecimal128("weight", new Decimal128(doc.getWeight()));
+        }
+        if (doc.getCustomerId() != null) {
+            writer.writeName("customer_id");
+            context.encodeWithChildContext(uuidCodec, writer, doc.getCustomerId());
+        }
+        writeString(writer, "customer_name", doc.getCustomerName());
+        writeString(writer, "customer_slug", doc.getCustomerSlug());
+        writeInstant(writer, "generated_at", doc.getGeneratedAt());
+        writeString(writer, "status", doc.getStatus());
+        writeInstant(writer, "updated_at", doc.getUpdatedAt());
+        if (doc.getMetadata() != null) {
+            writer.writeName("metadata");
+            context.encodeWithChildContext(documentCodec, writer, new Document(doc.getMetadata()));
+        }
+        writer.writeEndDocument();
+    }
+
+    @Override
+    public TrackingNumberDocument decode(BsonReader reader, DecoderContext context) {
+        TrackingNumberDocument doc = new TrackingNumberDocument();
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            String name = reader.readName();
+            if (reader.getCurrentBsonType() == BsonType.NULL) {
+                reader.readNull();
+                continue;
+            }
+            switch (name) {
+                case "_id" -> doc.setId(switch (reader.getCurrentBsonType()) {
+                    case OBJECT_ID -> reader.readObjectId();
+                    case INT64 -> reader.readInt64();
+                    case STRING -> reader.readString();
+                    default -> context.decodeWithChildContext(registry.get(BsonValue.class), reader);
+                });
+                case "tracking_number" -> doc.setTrackingNumber(reader.readString());
+                case "origin_country_id" -> doc.setOriginCountryId(reader.readString());
+                case "destination_country_id" -> doc.setDestinationCountryId(reader.readString());
+                case "weight" -> doc.setWeight(reader.readDecimal128().bigDecimalValue());
+                case "customer_id" -> doc.setCustomerId(context.decodeWithChildContext(uuidCodec, reader));
+                case "customer_name" -> doc.setCustomerName(reader.readString());
+                case "customer_slug" -> doc.setCustomerSlug(reader.readString());
+                case "generated_at" -> doc.setGeneratedAt(Instant.ofEpochMilli(reader.readDateTime()));
+                case "status" -> doc.setStatus(reader.readString());
+                case "updated_at" -> doc.setUpdatedAt(Instant.ofEpochMilli(reader.readDateTime()));
+                case "metadata" -> doc.setMetadata(context.decodeWithChildContext(documentCodec, reader));
+                // _class and anything added later
+                default -> reader.skipValue();
+            }
+        }
+        reader.readEndDocument();
+        return doc;
+    }
+
+    @Override
+    public Class<TrackingNumberDocument> getEncoderClass() {
+        return TrackingNumberDocument.class;
+    }
+
+    @Override
+    public TrackingNumberDocument generateIdIfAbsentFromDocument(TrackingNumberDocument doc) {
+        if (doc.getId() == null) {
+            doc.setId(keys.newId(doc.getTrackingNumber()));
+        }
+        return doc;
+    }
+
+    @Override
+    public boolean documentHasId(TrackingNumberDocument doc) {
+        return doc.getId() != null;
+    }
+
+    @Override
+    public BsonValue getDocumentId(TrackingNumberDocument doc) {
+        // encode() an id-only document, so the id gets the same BSON type as on insert
+        TrackingNumberDocument idOnly = new TrackingNumberDocument();
+        idOnly.setId(doc.getId());
+        BsonDocument holder = new BsonDocument();
+        encode(new BsonDocumentWriter(holder), idOnly, EncoderContext.builder().build());
+        return holder.get("_id");
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> void encodeValue(BsonWriter writer, T value, EncoderContext context) {
+        Codec<T> codec = (Codec<T>) registry.get(value.getClass());
+        context.encodeWithChildContext(codec, writer, value);
+    }
+
+    private static void writeString(BsonWriter writer, String name, String value) {
+        if (value != null) {
+            writer.writeString(name, value);
+        }
+    }
+
+    private static void writeInstant(BsonWriter writer, String name, Instant value) {
+        if (value != null) {
+            writer.writeDateTime(name, value.toEpochMilli());
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package io.github.bluething.java.bolttrack.persistence;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.mapping.event.BeforeConvertCallback;
+import org.springframework.stereotype.Component;
+
+/**
+ * Assigns {@code _id} before a new document is written, by save, insert and bulk insert alike.
+ */
+@Component
+@RequiredArgsConstructor
+class TrackingNumberIdCallback implements BeforeConvertCallback<TrackingNumberDocument> {
+    private final TrackingNumberKeys keys;
+
+    @Override
+    public TrackingNumberDocument onBeforeConvert(TrackingNumberDocument doc, String collection) {
+        if (doc.getId() == null) {
+            doc.setId(keys.newId(doc.getTrackingNumber()));
+        }
+        return doc;
+    }
+}
@@ -0,0 +1,116 @@
+package io.github.bluething.java.bolttrack.persistence;
+
+import com.mongodb.MongoException;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonType;
+import org.bson.Document;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.stereotype.Component;
+
+/**
+ * Creates the indexes the tracking queries rely on. Index creation is idempotent, so this runs
+ * on every start; without the secondary indexes the queries still work, but scan. Monthly
+ * partitions get theirs from {@link TrackingPartitionMaintenance} before they are written to.
+ *
+ * <p>With a Snowflake {@code _id} the tracking_number index left over from the ObjectId layout is
+ * dropped, but only with migrate-ids off and once no document with an ObjectId {@code _id} is
+ * left, since until then lookups still need it.
+ */
+@Component
+@Slf4j
+class TrackingNumberIndexes implements ApplicationRunner {
+    /** Customer export in (generated_at, tracking_number) keyset order. */
+    static final String CUSTOMER_GENERATED_AT = "customer_generated_at_idx";
+    /** Customer listing filtered by status, newest first. */
+    static final String CUSTOMER_STATUS_GENERATED_AT = "customer_status_generated_at_idx";
+    /** The name Spring Data gives the unique index declared on the document. */
+    static final String TRACKING_NUMBER = "tracking_number";
+
+    private final MongoTemplate mongoTemplate;
+    private final TrackingNumberPartitions partitions;
+    private final TrackingStorageProperties.IdMode idMode;
+    private final boolean migratingIds;
+
+    TrackingNumberIndexes(MongoTemplate mongoTemplate,
+                          TrackingNumberPartitions partitions,
+                          TrackingStorageProperties properties) {
+        this.mongoTemplate = mongoTemplate;
+        this.partitions = partitions;
+        this.idMode = properties.idMode();
+        this.migratingIds = properties.migrateIds();
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!partitions.enabled()) {
+            ensureIndexes(partitions.baseName());
+        }
+        if (idMode == TrackingStorageProperties.IdMode.SNOWFLAKE && !migratingIds) {
+            dropTrackingNumberIndex(partitions.baseName());
+        }
+    }
+
+    private void dropTrackingNumberIndex(String collection) {
+        try {
+            MongoCollection<Document> documents = mongoTemplate.getCollection(collection);
+            String name = null;
+            for (Document index : documents.listIndexes()) {
+                Document key = index.get("key", Document.class);
+                if (key.size() == 1 && key.containsKey("tracking_number")) {
+                    name = index.getString("name");
+                }
+            }
+            if (name == null) {
+                return;
+            }
+            if (documents.find(Filters.type("_id", BsonType.OBJECT_ID)).limit(1).first() != null) {
+                log.warn("Keeping index {} on {}: documents with an ObjectId _id are left, "
+                        + "turn tracking.persistence.storage.migrate-ids on to move them", name, collection);
+                return;
+            }
+            documents.dropIndex(name);
+            log.info("Dropped index {} on {}", name, collection);
+        } catch (DataAccessException | MongoException ex) {
+            log.warn("Cannot drop the tracking_number index on {}: {}", collection, ex.getMessage());
+        }
+    }
+
+    /**
+     * Creates every index a tracking collection needs; a failure is logged, not thrown.
+     */
+    void ensureIndexes(String collection) {
+        if (idMode == TrackingStorageProperties.IdMode.OBJECT_ID) {
+            // with a Snowflake _id, uniqueness comes with the primary key
+            ensure(collection, new Index()
+                    .on("tracking_number", Sort.Direction.ASC)
+                    .unique()
+                    .named(TRACKING_NUMBER));
+        }
+        ensure(collection, new Index()
+                .on("customer_id", Sort.Direction.ASC)
+                .on("generated_at", Sort.Direction.ASC)
+                .on("tracking_number", Sort.Direction.ASC)
+                .named(CUSTOMER_GENERATED_AT));
+        ensure(collection, new Index()
+                .on("customer_id", Sort.Direction.ASC)
+                .on("status", Sort.Direction.ASC)
+                .on("generated_at", Sort.Direction.DESC)
+                .on("tracking_number", Sort.Direction.DESC)
+                .named(CUSTOMER_STATUS_GENERATED_AT));
+    }
+
+    private void ensure(String collection, Index index) {
+        try {
+            mongoTemplate.indexOps(collection).ensureIndex(index);
+        } catch (DataAccessException ex) {
+            log.warn("Cannot create index {} on {}: {}", index.getIndexOptions().get("name"), collection, ex.getMessage());
+        }
+    }
+}
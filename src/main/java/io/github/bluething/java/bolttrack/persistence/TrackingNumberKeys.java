@@ -0,0 +1,99 @@
+package io.github.bluething.java.bolttrack.persistence;
+
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Maps tracking numbers to {@code _id} values and to the filter that finds them, so every
+ * query picks the right index for the configured {@link TrackingStorageProperties.IdMode}.
+ */
+@Component
+class TrackingNumberKeys {
+    private static final int MAX_LENGTH = 13;
+    /** A zero-padded body plus a check character, which the domain has verified already. */
+    private static final int CHECKED_LENGTH = MAX_LENGTH + 1;
+    private static final int RADIX = 36;
+
+    private final TrackingStorageProperties.IdMode idMode;
+    private final boolean migrating;
+
+    TrackingNumberKeys(TrackingStorageProperties properties) {
+        this.idMode = properties.idMode();
+        this.migrating = properties.migrateIds();
+    }
+
+    TrackingStorageProperties.IdMode idMode() {
+        return idMode;
+    }
+
+    /**
+     * The {@code _id} for a new document.
+     */
+    Object newId(String trackingNumber) {
+        if (idMode == TrackingStorageProperties.IdMode.OBJECT_ID) {
+            return new ObjectId();
+        }
+        Long id = snowflakeId(trackingNumber);
+        if (id == null) {
+            throw new IllegalArgumentException("not a Snowflake tracking number: " + trackingNumber);
+        }
+        return id;
+    }
+
+    Criteria byTrackingNumber(String trackingNumber) {
+        Criteria byField = Criteria.where("tracking_number").is(trackingNumber);
+        if (idMode == TrackingStorageProperties.IdMode.OBJECT_ID) {
+            return byField;
+        }
+        // a string never equals a long _id, so anything that does not decode matches nothing
+        Long id = snowflakeId(trackingNumber);
+        Criteria byId = Criteria.where("_id").is(id == null ? trackingNumber : id);
+        return withMigration(byId, byField);
+    }
+
+    Criteria byTrackingNumbers(Collection<String> trackingNumbers) {
+        Criteria byField = Criteria.where("tracking_number").in(trackingNumbers);
+        if (idMode == TrackingStorageProperties.IdMode.OBJECT_ID) {
+            return byField;
+        }
+        List<Long> ids = trackingNumbers.stream()
+                .map(TrackingNumberKeys::snowflakeId)
+                .filter(Objects::nonNull)
+                .toList();
+        return withMigration(Criteria.where("_id").in(ids), byField);
+    }
+
+    private Criteria withMigration(Criteria byId, Criteria byField) {
+        // documents not migrated yet still carry an ObjectId
+        return migrating ? new Criteria().orOperator(byId, byField) : byId;
+    }
+
+    /**
+     * Decodes an uppercase base-36 tracking number, with or without a check character, or returns
+     * null if it is not one.
+     */
+    static Long snowflakeId(String trackingNumber) {
+        if (trackingNumber == null || trackingNumber.isEmpty() || trackingNumber.length() > CHECKED_LENGTH) {
+            return null;
+        }
+        for (int i = 0; i < trackingNumber.length(); i++) {
+            char c = trackingNumber.charAt(i);
+            if (!(c >= '0' && c <= '9') && !(c >= 'A' && c <= 'Z')) {
+                return null;
+            }
+        }
+        try {
+            return trackingNumber.length() == CHECKED_LENGTH
+                    ? Long.parseLong(trackingNumber, 0, MAX_LENGTH, RADIX)
+                    : Long.parseLong(trackingNumber, RADIX);
+        } catch (NumberFormatException ex) {
+            // out of range
+            return null;
+        }
+    }
+}
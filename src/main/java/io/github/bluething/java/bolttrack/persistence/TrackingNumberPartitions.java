@@ -0,0 +1,172 @@
+package io.github.bluething.java.bolttrack.persistence;
+
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * Resolves which collection holds a tracking number. With monthly partitioning that is the
+ * month the number was minted in, read straight from its Snowflake timestamp, so a lookup
+ * touches exactly one collection.
+ *
+ * <p>generated_at is stamped when the number is handed out, which can be later than it was
+ * minted (the pre-generated buffer, bounded by tracking.generator.buffer.max-age) or, by the
+ * tolerated clock drift, slightly earlier. Queries on a generated_at range therefore also look
+ * one partition to either side.
+ *
+ * <p>Documents stored before partitioning was turned on stay in the base collection. As long as
+ * it exists, lookups that miss their partition fall back to it and range queries include it;
+ * drop it once its documents are no longer needed.
+ */
+@Component
+class TrackingNumberPartitions {
+    // mirrors SnowflakeId: 41-bit timestamp since 2025-01-01 above 10 worker and 12 sequence bits
+    private static final int TIMESTAMP_SHIFT = 22;
+    private static final long EPOCH = Instant.parse("2025-01-01T00:00:00Z").toEpochMilli();
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+
+    private final MongoTemplate mongoTemplate;
+    private final String baseName;
+    private final boolean enabled;
+    private final boolean fallback;
+    private final Pattern partitionName;
+
+    TrackingNumberPartitions(MongoTemplate mongoTemplate, TrackingStorageProperties properties) {
+        this.mongoTemplate = mongoTemplate;
+        this.baseName = mongoTemplate.getCollectionName(TrackingNumberDocument.class);
+        this.enabled = properties.partitioning() == TrackingStorageProperties.Partitioning.MONTHLY;
+        this.partitionName = Pattern.compile(Pattern.quote(baseName + "_") + "\\d{4}_\\d{2}");
+        this.fallback = enabled && mongoTemplate.collectionExists(baseName);
+    }
+
+    boolean enabled() {
+        return enabled;
+    }
+
+    /** tracking_numbers, the only collection when not partitioned. */
+    String baseName() {
+        return baseName;
+    }
+
+    /**
+     * The base collection, if partitioned and it still holds documents from before; null otherwise.
+     */
+    String fallback() {
+        return fallback ? baseName : null;
+    }
+
+    /**
+     * False if the tracking number cannot be stored anywhere, so a lookup can answer "not found"
+     * without a round trip.
+     */
+    boolean locatable(String trackingNumber) {
+        return !enabled || fallback || TrackingNumberKeys.snowflakeId(trackingNumber) != null;
+    }
+
+    /**
+     * The collection a tracking number is written to, and looked up in first. A number without a
+     * timestamp can only be in the base collection.
+     *
+     * @throws IllegalArgumentException if partitioned and the tracking number carries no timestamp
+     *                                  and there is no base collection to fall back to
+     */
+    String collectionOf(String trackingNumber) {
+        if (!enabled) {
+            return baseName;
+        }
+        Long id = TrackingNumberKeys.snowflakeId(trackingNumber);
+        if (id == null) {
+            if (fallback) {
+                return baseName;
+            }
+            throw new IllegalArgumentException("not a Snowflake tracking number: " + trackingNumber);
+        }
+        return collectionFor(YearMonth.from(Instant.ofEpochMilli(EPOCH + (id >>> TIMESTAMP_SHIFT)).atOffset(ZoneOffset.UTC)));
+    }
+
+    /**
+     * Collections a tracking number may be in, in the order to look: its own, then the base
+     * collection if that is a different one and still exists.
+     */
+    List<String> collectionsOf(String trackingNumber) {
+        String name = collectionOf(trackingNumber);
+        return fallback && !name.equals(baseName) ? List.of(name, baseName) : List.of(name);
+    }
+
+    /**
+     * Groups items by the collection their tracking number lives in, keeping their order within
+     * each collection.
+     */
+    <T> Map<String, List<T>> byCollection(Collection<T> items, Function<? super T, String> trackingNumber) {
+        Map<String, List<T>> grouped = new LinkedHashMap<>();
+        for (T item : items) {
+            grouped.computeIfAbsent(collectionOf(trackingNumber.apply(item)), name -> new ArrayList<>()).add(item);
+        }
+        return grouped;
+    }
+
+    /**
+     * Collections that may hold documents generated in {@code [from, to)}, oldest first.
+     */
+    List<String> collectionsBetween(Instant from, Instant to) {
+        if (!enabled) {
+            return List.of(baseName);
+        }
+        List<String> names = new ArrayList<>();
+        if (fallback) {
+            names.add(baseName);
+        }
+        YearMonth last = monthOf(to);
+        for (YearMonth month = monthOf(from).minusMonths(1); !month.isAfter(last); month = month.plusMonths(1)) {
+            names.add(collectionFor(month));
+        }
+        return names;
+    }
+
+    /**
+     * Collections that may hold documents generated before {@code before}, or all of them if it
+     * is null, newest first, with the base collection last.
+     */
+    List<String> collectionsBefore(Instant before) {
+        if (!enabled) {
+            return List.of(baseName);
+        }
+        String newest = before == null ? null : collectionFor(monthOf(before));
+        List<String> names = new ArrayList<>(existing().reversed().stream()
+                .filter(name -> newest == null || name.compareTo(newest) <= 0)
+                .toList());
+        if (fallback) {
+            names.add(baseName);
+        }
+        return names;
+    }
+
+    /**
+     * Partitions that exist in the database, oldest first; names sort chronologically.
+     */
+    List<String> existing() {
+        return mongoTemplate.getCollectionNames().stream()
+                .filter(name -> partitionName.matcher(name).matches())
+                .sorted()
+                .toList();
+    }
+
+    String collectionFor(YearMonth month) {
+        return baseName + "_" + month.format(SUFFIX);
+    }
+
+    private static YearMonth monthOf(Instant instant) {
+        return YearMonth.from(instant.atOffset(ZoneOffset.UTC));
+    }
+}
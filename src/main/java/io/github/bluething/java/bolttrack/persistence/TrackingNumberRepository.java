@@ -3,14 +3,10 @@ package io.github.bluething.java.bolttrack.persistence;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
-import java.util.Optional;
-
+/**
+ * Lookups by tracking number live in {@link TrackingNumberRepositoryCustom}, because which
+ * field they filter on depends on the storage mode.
+ */
 @Repository
-public interface TrackingNumberRepository extends MongoRepository<TrackingNumberDocument, String> {
-    /**
-     * Find a tracking record by its generated tracking number.
-     * @param trackingNumber the unique tracking number
-     * @return optional TrackingNumberDocument
-     */
-    Optional<TrackingNumberDocument> findByTrackingNumber(String trackingNumber);
+public interface TrackingNumberRepository extends MongoRepository<TrackingNumberDocument, Object>, TrackingNumberRepositoryCustom {
 }
@@ -0,0 +1,98 @@
+package io.github.bluething.java.bolttrack.persistence;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+public interface TrackingNumberRepositoryCustom {
+    record StatusTransition(String trackingNumber, String status, Collection<String> predecessors) {
+    }
+
+    /**
+     * @param missing  tracking numbers that do not exist
+     * @param rejected current status of tracking numbers whose status was not a predecessor
+     */
+    record BulkStatusResult(Set<String> missing, Map<String, String> rejected) {
+    }
+
+    /**
+     * Find a tracking record by its generated tracking number.
+     * @param trackingNumber the unique tracking number
+     * @return optional TrackingNumberDocument
+     */
+    Optional<TrackingNumberDocument> findByTrackingNumber(String trackingNumber);
+
+    /**
+     * Find a tracking record for display, leaving out {@code _id}, {@code updated_at} and, unless
+     * asked for, the free-form {@code metadata} map on the server side.
+     * @param trackingNumber  the unique tracking number
+     * @param includeMetadata whether to fetch {@code metadata}
+     * @return optional TrackingNumberDocument
+     */
+    Optional<TrackingNumberDocument> findByTrackingNumber(String trackingNumber, boolean includeMetadata);
+
+    /**
+     * Find the tracking records for many tracking numbers with one query, without the
+     * fields a tracking detail does not show and without {@code metadata}.
+     * @param trackingNumbers the tracking numbers to look up
+     * @return the records found, in no particular order
+     */
+    List<TrackingNumberDocument> findByTrackingNumberIn(Collection<String> trackingNumbers);
+
+    /**
+     * Streams a customer's tracking records generated in {@code [from, to)}, oldest first, over the
+     * (customer_id, generated_at, tracking_number) index. Resumes strictly after
+     * ({@code afterGeneratedAt}, {@code afterTrackingNumber}) when those are given. Backed by a
+     * server cursor, so the caller must close the stream.
+     */
+    Stream<TrackingNumberDocument> streamByCustomer(UUID customerId,
+                                                   Instant from,
+                                                   Instant to,
+                                                   Instant afterGeneratedAt,
+                                                   String afterTrackingNumber);
+
+    /**
+     * Returns up to {@code limit} of a customer's tracking records, newest first by
+     * (generated_at, tracking_number), optionally only those in {@code status}. Continues strictly
+     * before ({@code beforeGeneratedAt}, {@code beforeTrackingNumber}) when those are given, so
+     * every page is one index range scan with no skip or count.
+     */
+    List<TrackingNumberDocument> findPageByCustomer(UUID customerId,
+                                                    String status,
+                                                    Instant beforeGeneratedAt,
+                                                    String beforeTrackingNumber,
+                                                    int limit);
+
+    /**
+     * Streams every tracking number in storage, and nothing else, in no particular order. Backed by
+     * server cursors, so the caller must close the stream.
+     */
+    Stream<String> streamTrackingNumbers();
+
+    /**
+     * Atomically sets {@code status} and {@code updated_at}, but only if the current status is one
+     * of {@code predecessors}, in a single findAndModify.
+     * @return the document as it was before the update, empty if there is no such tracking number;
+     *         the transition was applied iff its status is one of {@code predecessors}
+     */
+    Optional<TrackingNumberDocument> updateStatusIfIn(String trackingNumber,
+                                                      String status,
+                                                      Collection<String> predecessors,
+                                                      Instant updatedAt);
+
+    /**
+     * Applies many conditional status updates with one unordered bulk write. Only when some of
+     * them did not match is the batch read back once: numbers carrying its status and
+     * {@code updatedAt} were applied, absent ones are missing and ones outside the predecessors are
+     * rejected. Numbers a concurrent update has moved to a predecessor since are tried once more,
+     * together in a second bulk write. A transition that was applied and then changed by a
+     * concurrent update is decided on the status it was changed to, so callers must not take
+     * "rejected" to mean "untouched". At most one transition per tracking number.
+     */
+    BulkStatusResult updateStatusesIfIn(List<StatusTransition> transitions, Instant updatedAt);
+}
@@ -0,0 +1,389 @@
+package io.github.bluething.java.bolttrack.persistence;
+
+import com.mongodb.client.model.Projections;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.aggregation.ArrayOperators;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+@RequiredArgsConstructor
+class TrackingNumberRepositoryCustomImpl implements TrackingNumberRepositoryCustom {
+    private static final int EXPORT_BATCH_SIZE = 1000;
+    private static final int SCAN_BATCH_SIZE = 10_000;
+    /** Order of the customer indexes: generated_at, then tracking_number. */
+    private static final Comparator<TrackingNumberDocument> CUSTOMER_ORDER = Comparator
+            .comparing(TrackingNumberDocument::getGeneratedAt)
+            .thenComparing(TrackingNumberDocument::getTrackingNumber);
+
+    private final MongoTemplate mongoTemplate;
+    private final TrackingNumberKeys keys;
+    private final TrackingNumberCollection collection;
+    private final TrackingNumberPartitions partitions;
+
+    @Override
+    public Optional<TrackingNumberDocument> findByTrackingNumber(String trackingNumber) {
+        if (!partitions.locatable(trackingNumber)) {
+            return Optional.empty();
+        }
+        Criteria criteria = keys.byTrackingNumber(trackingNumber);
+        return findFirst(trackingNumber, name -> {
+            if (collection.enabled()) {
+                return collection.execute(() -> collection.get(name).find(criteria.getCriteriaObject()).first());
+            }
+            return mongoTemplate.findOne(Query.query(criteria), TrackingNumberDocument.class, name);
+        });
+    }
+
+    @Override
+    public Optional<TrackingNumberDocument> findByTrackingNumber(String trackingNumber, boolean includeMetadata) {
+        if (!partitions.locatable(trackingNumber)) {
+            return Optional.empty();
+        }
+        Criteria criteria = keys.byTrackingNumber(trackingNumber);
+        List<String> excluded = detailExclusions(includeMetadata);
+        return findFirst(trackingNumber, name -> {
+            if (collection.enabled()) {
+                return collection.execute(() -> collection.get(name).find(criteria.getCriteriaObject())
+                        .projection(Projections.exclude(excluded))
+                        .first());
+            }
+            Query query = Query.query(criteria);
+            excluded.forEach(query.fields()::exclude);
+            return mongoTemplate.findOne(query, TrackingNumberDocument.class, name);
+        });
+    }
+
+    /**
+     * Runs {@code find} on each collection the tracking number may be in until one returns a
+     * document; only a miss in its partition costs a second round trip, to the base collection.
+     */
+    private Optional<TrackingNumberDocument> findFirst(String trackingNumber,
+                                                       Function<String, TrackingNumberDocument> find) {
+        for (String name : partitions.collectionsOf(trackingNumber)) {
+            TrackingNumberDocument doc = find.apply(name);
+            if (doc != null) {
+                return Optional.of(doc);
+            }
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public List<TrackingNumberDocument> findByTrackingNumberIn(Collection<String> trackingNumbers) {
+        List<TrackingNumberDocument> found = new ArrayList<>();
+        // one $in per partition, which is a single query unless the numbers span months
+        locatable(trackingNumbers).forEach((name, numbers) -> found.addAll(findIn(name, numbers)));
+        String fallback = partitions.fallback();
+        if (fallback != null) {
+            Set<String> left = new HashSet<>(trackingNumbers);
+            left.removeIf(trackingNumber -> !partitions.locatable(trackingNumber)
+                    || partitions.collectionOf(trackingNumber).equals(fallback));
+            found.forEach(doc -> left.remove(doc.getTrackingNumber()));
+            if (!left.isEmpty()) {
+                found.addAll(findIn(fallback, left));
+            }
+        }
+        return found;
+    }
+
+    private List<TrackingNumberDocument> findIn(String name, Collection<String> trackingNumbers) {
+        List<String> excluded = detailExclusions(false);
+        Criteria criteria = keys.byTrackingNumbers(trackingNumbers);
+        if (collection.enabled()) {
+            return collection.execute(() -> collection.get(name).find(criteria.getCriteriaObject())
+                    .projection(Projections.exclude(excluded))
+                    .into(new ArrayList<TrackingNumberDocument>()));
+        }
+        Query query = Query.query(criteria);
+        excluded.forEach(query.fields()::exclude);
+        return mongoTemplate.find(query, TrackingNumberDocument.class, name);
+    }
+
+    @Override
+    public Stream<TrackingNumberDocument> streamByCustomer(UUID customerId,
+                                                          Instant from,
+                                                          Instant to,
+                                                          Instant afterGeneratedAt,
+                                                          String afterTrackingNumber) {
+        Criteria criteria = Criteria.where("customer_id").is(customerId)
+                .and("generated_at").gte(from).lt(to);
+        if (afterGeneratedAt != null) {
+            criteria = new Criteria().andOperator(criteria, new Criteria().orOperator(
+                    Criteria.where("generated_at").gt(afterGeneratedAt),
+                    Criteria.where("generated_at").is(afterGeneratedAt).and("tracking_number").gt(afterTrackingNumber)));
+        }
+        Query query = Query.query(criteria)
+                .with(Sort.by("generated_at", "tracking_number"))
+                .withHint(TrackingNumberIndexes.CUSTOMER_GENERATED_AT)
+                .cursorBatchSize(EXPORT_BATCH_SIZE);
+        detailExclusions(false).forEach(query.fields()::exclude);
+        List<Stream<TrackingNumberDocument>> streams = partitions.collectionsBetween(from, to).stream()
+                .map(name -> mongoTemplate.stream(query, TrackingNumberDocument.class, name))
+                .toList();
+        return streams.size() == 1 ? streams.getFirst() : merge(streams, CUSTOMER_ORDER);
+    }
+
+    @Override
+    public List<TrackingNumberDocument> findPageByCustomer(UUID customerId,
+                                                           String status,
+                                                           Instant beforeGeneratedAt,
+                                                           String beforeTrackingNumber,
+                                                           int limit) {
+        Criteria criteria = Criteria.where("customer_id").is(customerId);
+        if (status != null) {
+            criteria = criteria.and("status").is(status);
+        }
+        if (beforeGeneratedAt != null) {
+            criteria = new Criteria().andOperator(criteria, new Criteria().orOperator(
+                    Criteria.where("generated_at").lt(beforeGeneratedAt),
+                    Criteria.where("generated_at").is(beforeGeneratedAt).and("tracking_number").lt(beforeTrackingNumber)));
+        }
+        // without a status the export index serves the listing walked backwards
+        Query query = Query.query(criteria)
+                .with(Sort.by(Sort.Direction.DESC, "generated_at", "tracking_number"))
+                .withHint(status == null
+                        ? TrackingNumberIndexes.CUSTOMER_GENERATED_AT
+                        : TrackingNumberIndexes.CUSTOMER_STATUS_GENERATED_AT)
+                .limit(limit);
+        detailExclusions(false).forEach(query.fields()::exclude);
+        List<String> names = partitions.collectionsBefore(beforeGeneratedAt);
+        if (names.size() == 1) {
+            return mongoTemplate.find(query, TrackingNumberDocument.class, names.getFirst());
+        }
+        // generated_at can cross a partition boundary, so take the top rows of each and merge
+        return names.stream()
+                .flatMap(name -> mongoTemplate.find(query, TrackingNumberDocument.class, name).stream())
+                .sorted(CUSTOMER_ORDER.reversed())
+                .limit(limit)
+                .toList();
+    }
+
+    @Override
+    public Stream<String> streamTrackingNumbers() {
+        Query query = new Query().cursorBatchSize(SCAN_BATCH_SIZE);
+        query.fields().include("tracking_number").exclude("_id");
+        List<String> names = partitions.collectionsBefore(null);
+        // one cursor at a time; flatMap closes each partition's before opening the next
+        return names.stream()
+                .flatMap(name -> mongoTemplate.stream(query, TrackingNumberDocument.class, name)
+                        .map(TrackingNumberDocument::getTrackingNumber));
+    }
+
+    /**
+     * Merges streams that are each sorted by {@code order} into one sorted stream, holding one
+     * document per stream; closing it closes them all.
+     */
+    private static Stream<TrackingNumberDocument> merge(List<Stream<TrackingNumberDocument>> streams,
+                                                        Comparator<TrackingNumberDocument> order) {
+        record Head(TrackingNumberDocument doc, Iterator<TrackingNumberDocument> rest) {
+        }
+        PriorityQueue<Head> heads = new PriorityQueue<>(Comparator.comparing(Head::doc, order));
+        Iterator<TrackingNumberDocument> merged = new Iterator<>() {
+            private boolean started;
+
+            @Override
+            public boolean hasNext() {
+                if (!started) {
+                    // prime one document from each partition
+                    started = true;
+                    for (Stream<TrackingNumberDocument> stream : streams) {
+                        Iterator<TrackingNumberDocument> it = stream.iterator();
+                        if (it.hasNext()) {
+                            heads.add(new Head(it.next(), it));
+                        }
+                    }
+                }
+                return !heads.isEmpty();
+            }
+
+            @Override
+            public TrackingNumberDocument next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Head head = heads.poll();
+                if (head.rest().hasNext()) {
+                    heads.add(new Head(head.rest().next(), head.rest()));
+                }
+                return head.doc();
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(merged, Spliterator.ORDERED), false)
+                .onClose(() -> streams.forEach(Stream::close));
+    }
+
+    /** Groups the tracking numbers that can exist at all by the collection they would be in. */
+    private Map<String, List<String>> locatable(Collection<String> trackingNumbers) {
+        return partitions.byCollection(
+                trackingNumbers.stream().filter(partitions::locatable).toList(),
+                Function.identity());
+    }
+
+    /** Fields a tracking detail never shows, plus metadata unless it was asked for. */
+    private static List<String> detailExclusions(boolean includeMetadata) {
+        return includeMetadata
+                ? List.of("_id", "updated_at")
+                : List.of("_id", "updated_at", "metadata");
+    }
+
+    @Override
+    public Optional<TrackingNumberDocument> updateStatusIfIn(String trackingNumber,
+                                                             String status,
+                                                             Collection<String> predecessors,
+                                                             Instant updatedAt) {
+        // filter on tracking_number only and decide inside an update pipeline, so the
+        // before-image tells "missing" (null) apart from "illegal" (status not a predecessor)
+        ArrayOperators.In legal = ArrayOperators.In.arrayOf(predecessors).containsValue("$status");
+        AggregationUpdate update = AggregationUpdate.update()
+                .set("status").toValue(
+                        ConditionalOperators.when(legal).then(status).otherwiseValueOf("status"))
+                .set("updated_at").toValue(
+                        ConditionalOperators.when(legal).then(Date.from(updatedAt)).otherwiseValueOf("updated_at"));
+
+        if (!partitions.locatable(trackingNumber)) {
+            return Optional.empty();
+        }
+        return findFirst(trackingNumber, name -> mongoTemplate.findAndModify(
+                Query.query(keys.byTrackingNumber(trackingNumber)),
+                update,
+                FindAndModifyOptions.options().returnNew(false),
+                TrackingNumberDocument.class,
+                name));
+    }
+
+    @Override
+    public BulkStatusResult updateStatusesIfIn(List<StatusTransition> transitions, Instant updatedAt) {
+        if (transitions.isEmpty()) {
+            return new BulkStatusResult(Set.of(), Map.of());
+        }
+        Map<String, List<StatusTransition>> byCollection = partitions.byCollection(
+                transitions.stream().filter(transition -> partitions.locatable(transition.trackingNumber())).toList(),
+                StatusTransition::trackingNumber);
+        if (bulkUpdate(byCollection, updatedAt) == transitions.size()) {
+            return new BulkStatusResult(Set.of(), Map.of());
+        }
+
+        // one read-back decides the rest: absent is missing, a status outside the predecessors is
+        // rejected, and only a number a concurrent update has moved back to a predecessor since the
+        // bulk write is tried again, all of them in one more bulk write
+        Instant stamp = updatedAt.truncatedTo(ChronoUnit.MILLIS);
+        Set<String> missing = new HashSet<>();
+        Map<String, String> rejected = new HashMap<>();
+        Map<String, List<StatusTransition>> retry = new HashMap<>();
+        Map<String, Located> current = readBack(transitions);
+        for (StatusTransition transition : transitions) {
+            Located found = current.get(transition.trackingNumber());
+            if (found == null) {
+                missing.add(transition.trackingNumber());
+            } else if (!appliedBy(found.document(), transition, stamp)) {
+                if (transition.predecessors().contains(found.document().getStatus())) {
+                    retry.computeIfAbsent(found.collection(), name -> new ArrayList<>()).add(transition);
+                } else {
+                    rejected.put(transition.trackingNumber(), found.document().getStatus());
+                }
+            }
+        }
+        List<StatusTransition> retried = retry.values().stream().flatMap(List::stream).toList();
+        if (retried.isEmpty() || bulkUpdate(retry, updatedAt) == retried.size()) {
+            return new BulkStatusResult(missing, rejected);
+        }
+        // lost the race a second time: decided on whatever the number holds now
+        Map<String, Located> after = readBack(retried);
+        for (StatusTransition transition : retried) {
+            Located found = after.get(transition.trackingNumber());
+            if (found == null) {
+                missing.add(transition.trackingNumber());
+            } else if (!appliedBy(found.document(), transition, stamp)) {
+                rejected.put(transition.trackingNumber(), found.document().getStatus());
+            }
+        }
+        return new BulkStatusResult(missing, rejected);
+    }
+
+    /** One unordered bulk write per collection; returns how many of the transitions matched. */
+    private int bulkUpdate(Map<String, List<StatusTransition>> byCollection, Instant updatedAt) {
+        int matched = 0;
+        for (Map.Entry<String, List<StatusTransition>> group : byCollection.entrySet()) {
+            BulkOperations ops = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED,
+                    TrackingNumberDocument.class, group.getKey());
+            for (StatusTransition transition : group.getValue()) {
+                ops.updateOne(
+                        Query.query(new Criteria().andOperator(
+                                keys.byTrackingNumber(transition.trackingNumber()),
+                                Criteria.where("status").in(transition.predecessors()))),
+                        Update.update("status", transition.status()).set("updated_at", updatedAt));
+            }
+            matched += ops.execute().getMatchedCount();
+        }
+        return matched;
+    }
+
+    /**
+     * Status and stamp of the given numbers, with the collection each was found in; the
+     * pre-partitioning collection is only asked for the numbers their partition does not hold.
+     */
+    private Map<String, Located> readBack(List<StatusTransition> transitions) {
+        List<String> trackingNumbers = transitions.stream().map(StatusTransition::trackingNumber).toList();
+        Map<String, Located> found = new HashMap<>();
+        locatable(trackingNumbers).forEach((name, numbers) -> readBack(name, numbers, found));
+        String fallback = partitions.fallback();
+        if (fallback != null) {
+            Set<String> left = new HashSet<>(trackingNumbers);
+            left.removeIf(trackingNumber -> !partitions.locatable(trackingNumber)
+                    || partitions.collectionOf(trackingNumber).equals(fallback));
+            left.removeAll(found.keySet());
+            if (!left.isEmpty()) {
+                readBack(fallback, left, found);
+            }
+        }
+        return found;
+    }
+
+    private void readBack(String name, Collection<String> trackingNumbers, Map<String, Located> found) {
+        Query query = Query.query(keys.byTrackingNumbers(trackingNumbers));
+        query.fields().include("tracking_number").include("status").include("updated_at");
+        for (TrackingNumberDocument doc : mongoTemplate.find(query, TrackingNumberDocument.class, name)) {
+            found.put(doc.getTrackingNumber(), new Located(name, doc));
+        }
+    }
+
+    /**
+     * A number carrying the transition's status and the batch's stamp was written by it; the status
+     * alone would also count numbers that already were at the target as applied.
+     */
+    private static boolean appliedBy(TrackingNumberDocument doc, StatusTransition transition, Instant stamp) {
+        return doc.getStatus().equals(transition.status()) && stamp.equals(doc.getUpdatedAt());
+    }
+
+    private record Located(String collection, TrackingNumberDocument document) {
+    }
+}
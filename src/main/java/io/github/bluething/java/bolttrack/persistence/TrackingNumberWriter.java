@@ -0,0 +1,33 @@
+package io.github.bluething.java.bolttrack.persistence;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Persists newly generated tracking numbers and status changes, either inline or behind the caller's back.
+ */
+public interface TrackingNumberWriter {
+    void write(TrackingNumberDocument doc);
+
+    void writeAll(List<TrackingNumberDocument> docs);
+
+    /**
+     * Moves a document to {@code status} if its current status is one of {@code predecessors},
+     * atomically with respect to other status changes of the same tracking number.
+     * @return the document as it was before, empty if the tracking number does not exist
+     * @see TrackingNumberRepositoryCustom#updateStatusIfIn
+     */
+    Optional<TrackingNumberDocument> updateStatusIfIn(String trackingNumber,
+                                                      String status,
+                                                      Collection<String> predecessors,
+                                                      Instant updatedAt);
+
+    /**
+     * A document accepted by {@link #write} that may not have reached MongoDB yet.
+     */
+    default Optional<TrackingNumberDocument> findPending(String trackingNumber) {
+        return Optional.empty();
+    }
+}
@@ -0,0 +1,88 @@
+package io.github.bluething.java.bolttrack.persistence;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.YearMonth;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps monthly partitions ahead of and behind the clock: creates this and next month's
+ * collections with their indexes before anything is written to them, and drops whole
+ * partitions once they fall out of retention, which frees their storage at once instead of
+ * having the TTL monitor delete row by row.
+ */
+@Component
+@ConditionalOnProperty(prefix = "tracking.persistence.storage", name = "partitioning", havingValue = "monthly")
+@Slf4j
+class TrackingPartitionMaintenance implements SmartLifecycle {
+    private static final long INTERVAL_MINUTES = 60;
+
+    private final MongoTemplate mongoTemplate;
+    private final TrackingNumberPartitions partitions;
+    private final TrackingNumberIndexes indexes;
+    private final int retainedPartitions;
+    private final Clock clock;
+
+    private ScheduledExecutorService scheduler;
+    private volatile boolean running;
+
+    TrackingPartitionMaintenance(MongoTemplate mongoTemplate,
+                                 TrackingNumberPartitions partitions,
+                                 TrackingNumberIndexes indexes,
+                                 TrackingStorageProperties properties) {
+        this.mongoTemplate = mongoTemplate;
+        this.partitions = partitions;
+        this.indexes = indexes;
+        this.retainedPartitions = properties.retainedPartitions();
+        this.clock = Clock.systemUTC();
+    }
+
+    void maintain() {
+        YearMonth current = YearMonth.now(clock);
+        // next month too, so the first write after midnight UTC finds its indexes in place
+        indexes.ensureIndexes(partitions.collectionFor(current));
+        indexes.ensureIndexes(partitions.collectionFor(current.plusMonths(1)));
+
+        String oldestKept = partitions.collectionFor(current.minusMonths(retainedPartitions - 1L));
+        try {
+            for (String name : partitions.existing()) {
+                if (name.compareTo(oldestKept) < 0) {
+                    mongoTemplate.dropCollection(name);
+                    log.info("Dropped expired tracking partition {}", name);
+                }
+            }
+        } catch (DataAccessException ex) {
+            log.warn("Cannot drop expired tracking partitions: {}", ex.getMessage());
+        }
+    }
+
+    @Override
+    public void start() {
+        // in place before the writers start taking traffic
+        maintain();
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        scheduler.scheduleWithFixedDelay(this::maintain, INTERVAL_MINUTES, INTERVAL_MINUTES, TimeUnit.MINUTES);
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (scheduler != null) scheduler.shutdownNow();
+    }
+    @Override public boolean isRunning()    { return running; }
+    @Override public boolean isAutoStartup(){ return true; }
+    // before the write-behind writer replays its journal into the partitions
+    @Override public int getPhase()        { return SmartLifecycle.DEFAULT_PHASE - 4096; }
+    @Override public void stop(Runnable callback) {
+        stop(); callback.run();
+    }
+}
@@ -0,0 +1,42 @@
+package io.github.bluething.java.bolttrack.persistence;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Physical layout of the tracking_numbers collection.
+ *
+ * @param idMode             what goes into {@code _id}
+ * @param migrateIds         rewrite documents with an ObjectId {@code _id} at startup; lookups also
+ *                           match on tracking_number until it is switched off again, and the
+ *                           tracking_number index is only dropped on a start with it off
+ * @param migrationBatchSize documents moved per transaction while migrating
+ * @param directCodec        read and insert documents with {@link TrackingNumberDocumentCodec}
+ *                           instead of the reflective MappingMongoConverter
+ * @param partitioning       one collection, or one per month of the time encoded in the tracking
+ *                           number; documents already in tracking_numbers are not moved
+ * @param retainedPartitions monthly partitions kept, the current one included; older ones are dropped
+ */
+@ConfigurationProperties(prefix = "tracking.persistence.storage")
+record TrackingStorageProperties(
+        @DefaultValue("object-id") IdMode idMode,
+        @DefaultValue("false") boolean migrateIds,
+        @DefaultValue("1000") int migrationBatchSize,
+        @DefaultValue("false") boolean directCodec,
+        @DefaultValue("none") Partitioning partitioning,
+        @DefaultValue("13") int retainedPartitions
+) {
+    enum IdMode {
+        /** Random ObjectId {@code _id} plus a unique secondary index on tracking_number. */
+        OBJECT_ID,
+        /** The decoded Snowflake long as {@code _id}; tracking_number needs no index of its own. */
+        SNOWFLAKE
+    }
+
+    enum Partitioning {
+        /** Everything in tracking_numbers, expired by the generatedAt TTL index if one exists. */
+        NONE,
+        /** tracking_numbers_yyyy_MM, expired by dropping whole collections. */
+        MONTHLY
+    }
+}
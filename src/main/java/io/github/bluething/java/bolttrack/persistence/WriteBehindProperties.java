@@ -0,0 +1,44 @@
+package io.github.bluething.java.bolttrack.persistence;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Settings for write-behind persistence of generated tracking numbers.
+ *
+ * @param queueCapacity documents that may wait for MongoDB before callers are pushed back on
+ * @param batchSize     max documents per unordered bulk insert
+ * @param flushInterval how long the flusher waits for a batch to fill up
+ * @param offerTimeout  how long a caller waits for room in a full queue before it is counted as
+ *                      pushed back; it keeps waiting, nothing is written around the queue
+ * @param journalDir    where the write-ahead journal lives; must survive a restart of the process
+ * @param journalSegmentSize size of one memory-mapped journal segment file
+ * @param maxAttempts   failed flushes of a batch before its writes are tried one by one and those
+ *                      MongoDB still rejects are dead-lettered; MongoDB being unreachable does not count
+ * @param retryBackoff  pause between two attempts to flush a batch
+ */
+@ConfigurationProperties(prefix = "tracking.persistence.write-behind")
+record WriteBehindProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("10000") int queueCapacity,
+        @DefaultValue("500") int batchSize,
+        @DefaultValue("20ms") Duration flushInterval,
+        @DefaultValue("100ms") Duration offerTimeout,
+        @DefaultValue("data/journal") Path journalDir,
+        @DefaultValue("64MB") DataSize journalSegmentSize,
+        @DefaultValue("5") int maxAttempts,
+        @DefaultValue("500ms") Duration retryBackoff
+) {
+    WriteBehindProperties {
+        if (journalSegmentSize.toBytes() < 64 * 1024 || journalSegmentSize.toBytes() > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("journal-segment-size must be between 64KB and 2GB");
+        }
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("max-attempts must be at least 1");
+        }
+    }
+}
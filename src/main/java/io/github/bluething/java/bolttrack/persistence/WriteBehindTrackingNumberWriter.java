@@ -0,0 +1,535 @@
+package io.github.bluething.java.bolttrack.persistence;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoSocketException;
+import com.mongodb.MongoTimeoutException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.model.InsertManyOptions;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Acknowledges new tracking numbers, and status changes of numbers MongoDB does not have yet,
+ * once they are in the local journal; a flusher drains them into MongoDB with bulk writes and
+ * then acknowledges them in the journal. Status changes of persisted numbers go to MongoDB directly.
+ * Anything the journal still holds after a crash is replayed before the application serves traffic.
+ * A write MongoDB keeps rejecting is set aside in the journal's dead-letter file instead of
+ * holding up the ones behind it.
+ * A full queue pushes back on callers: they wait for room before anything is journaled, and
+ * whatever is still queued at shutdown is flushed before the Mongo client goes away.
+ */
+@Component
+@ConditionalOnProperty(prefix = "tracking.persistence.write-behind", name = "enabled", havingValue = "true")
+@Slf4j
+class WriteBehindTrackingNumberWriter implements TrackingNumberWriter, SmartLifecycle {
+    private static final int DUPLICATE_KEY = 11000;
+
+    private final MongoTemplate mongoTemplate;
+    private final TrackingNumberRepository repository;
+    private final TrackingNumberKeys keys;
+    private final TrackingNumberCollection collection;
+    private final TrackingNumberPartitions partitions;
+    private final TrackingJournal journal;
+    private final BlockingQueue<TrackingJournal.Entry> queue = new LinkedBlockingQueue<>();
+    /** Bounds the queue: taken before a write is journaled, given back once the flusher has taken it out. */
+    private final Semaphore room;
+    private final int queueCapacity;
+    /**
+     * Documents with queued or in-flight writes, by tracking number. While a document is here its
+     * in-memory copy is the latest state: reads are served from it and status changes decided on it.
+     */
+    private final Map<String, Pending> pending = new ConcurrentHashMap<>();
+    /**
+     * Held by whoever is draining, so flush() also waits for the flusher's in-flight batch; fair,
+     * so a flush() is not starved by the flusher taking it again right away.
+     */
+    private final ReentrantLock drainLock = new ReentrantLock(true);
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final long offerTimeoutNanos;
+    private final int maxAttempts;
+    private final long retryBackoffMs;
+
+    private final DistributionSummary batchSizes;
+    private final Timer flushLatency;
+    private final Counter backpressure;
+    private final Counter deadLettered;
+
+    private volatile boolean running;
+    private volatile Thread flusher;
+
+    WriteBehindTrackingNumberWriter(MongoTemplate mongoTemplate,
+                                    TrackingNumberRepository repository,
+                                    TrackingNumberKeys keys,
+                                    TrackingNumberCollection collection,
+                                    TrackingNumberPartitions partitions,
+                                    WriteBehindProperties properties,
+                                    MeterRegistry registry) {
+        this.mongoTemplate = mongoTemplate;
+        this.repository = repository;
+        this.keys = keys;
+        this.collection = collection;
+        this.partitions = partitions;
+        this.journal = new TrackingJournal(properties.journalDir(),
+                (int) properties.journalSegmentSize().toBytes(), registry);
+        this.queueCapacity = properties.queueCapacity();
+        this.room = new Semaphore(queueCapacity);
+        this.batchSize = properties.batchSize();
+        this.flushIntervalNanos = properties.flushInterval().toNanos();
+        this.offerTimeoutNanos = properties.offerTimeout().toNanos();
+        this.maxAttempts = properties.maxAttempts();
+        this.retryBackoffMs = properties.retryBackoff().toMillis();
+
+        this.batchSizes = DistributionSummary.builder("tracking.persistence.write-behind.batch.size")
+                .description("Writes per bulk flush")
+                .register(registry);
+        this.flushLatency = Timer.builder("tracking.persistence.write-behind.flush")
+                .description("Time spent on one bulk flush")
+                .register(registry);
+        this.backpressure = Counter.builder("tracking.persistence.write-behind.backpressure")
+                .description("Times a write waited a whole offer-timeout for room in the queue")
+                .register(registry);
+        this.deadLettered = Counter.builder("tracking.persistence.write-behind.dead.letters")
+                .description("Writes MongoDB kept rejecting, set aside in the journal's dead-letter file")
+                .register(registry);
+        Gauge.builder("tracking.persistence.write-behind.queue.depth", queue, BlockingQueue::size)
+                .description("Writes waiting to be flushed to MongoDB")
+                .register(registry);
+    }
+
+    @Override
+    public void write(TrackingNumberDocument doc) {
+        awaitRoom(1);
+        try {
+            insertPending(journal.append(TrackingJournal.Op.INSERT, doc));
+        } catch (RuntimeException ex) {
+            room.release();
+            throw ex;
+        }
+    }
+
+    @Override
+    public void writeAll(List<TrackingNumberDocument> docs) {
+        for (int from = 0; from < docs.size(); from += queueCapacity) {
+            List<TrackingNumberDocument> chunk = docs.subList(from, Math.min(docs.size(), from + queueCapacity));
+            awaitRoom(chunk.size());
+            try {
+                // one journal force for the whole chunk
+                journal.appendAll(TrackingJournal.Op.INSERT, chunk).forEach(this::insertPending);
+            } catch (RuntimeException ex) {
+                room.release(chunk.size());
+                throw ex;
+            }
+        }
+    }
+
+    @Override
+    public Optional<TrackingNumberDocument> findPending(String trackingNumber) {
+        return Optional.ofNullable(pending.get(trackingNumber)).map(Pending::document);
+    }
+
+    @Override
+    public Optional<TrackingNumberDocument> updateStatusIfIn(String trackingNumber,
+                                                             String status,
+                                                             Collection<String> predecessors,
+                                                             Instant updatedAt) {
+        Pending entry = pending.get(trackingNumber);
+        if (entry != null) {
+            // before the lock: waiting for room must not hold up the flusher, which takes it in persisted()
+            awaitRoom(1);
+            boolean queued = false;
+            entry.lock.lock();
+            try {
+                if (!entry.retired) {
+                    TrackingNumberDocument doc = entry.document;
+                    TrackingNumberDocument before = copyOf(doc);
+                    if (predecessors.contains(doc.getStatus())) {
+                        TrackingNumberDocument change = new TrackingNumberDocument();
+                        change.setTrackingNumber(trackingNumber);
+                        change.setStatus(status);
+                        change.setUpdatedAt(updatedAt);
+                        // journal and queue under the lock, so changes of one number keep their order
+                        TrackingJournal.Entry journaled = journal.append(TrackingJournal.Op.STATUS, change);
+                        doc.setStatus(status);
+                        doc.setUpdatedAt(updatedAt);
+                        entry.outstanding++;
+                        queue.add(journaled);
+                        queued = true;
+                    }
+                    return Optional.of(before);
+                }
+            } finally {
+                entry.lock.unlock();
+                if (!queued) {
+                    room.release();
+                }
+            }
+        }
+        // MongoDB has the latest state: decide there, atomically
+        return repository.updateStatusIfIn(trackingNumber, status, predecessors, updatedAt);
+    }
+
+    private void insertPending(TrackingJournal.Entry journaled) {
+        Pending entry = new Pending(journaled.document());
+        entry.lock.lock();
+        try {
+            pending.put(journaled.document().getTrackingNumber(), entry);
+            queue.add(journaled);
+        } finally {
+            entry.lock.unlock();
+        }
+    }
+
+    /**
+     * Called once a write has reached MongoDB; the last one retires the pending document.
+     */
+    private void persisted(TrackingJournal.Entry journaled) {
+        String trackingNumber = journaled.document().getTrackingNumber();
+        Pending entry = pending.get(trackingNumber);
+        if (entry == null) {
+            // replayed from the journal
+            return;
+        }
+        entry.lock.lock();
+        try {
+            if (--entry.outstanding == 0) {
+                entry.retired = true;
+                pending.remove(trackingNumber, entry);
+            }
+        } finally {
+            entry.lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until the queue has room for {@code writes}. Called before anything is journaled, so a
+     * caller that gives up leaves nothing behind that would reach MongoDB later; with MongoDB slow
+     * or down, callers wait for the flusher instead of writing around it and out of order.
+     */
+    private void awaitRoom(int writes) {
+        try {
+            while (!room.tryAcquire(writes, offerTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                backpressure.increment();
+                if (!running) {
+                    throw new IllegalStateException("Write-behind writer is not running");
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for room in the write-behind queue", ex);
+        }
+    }
+
+    /**
+     * Blocks until everything queued so far has been persisted.
+     */
+    void flush() {
+        drainLock.lock();
+        try {
+            List<TrackingJournal.Entry> batch = new ArrayList<>(batchSize);
+            while (queue.drainTo(batch, batchSize) > 0) {
+                room.release(batch.size());
+                persist(batch);
+                batch.clear();
+            }
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    private void flushLoop() {
+        List<TrackingJournal.Entry> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                drainLock.lockInterruptibly();
+                try {
+                    // polled under the lock, so flush() never finds the queue empty while a batch is only in our hands
+                    TrackingJournal.Entry first = queue.poll(flushIntervalNanos, TimeUnit.NANOSECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    batch.add(first);
+                    queue.drainTo(batch, batchSize - 1);
+                    room.release(batch.size());
+                    persistWithRetry(batch);
+                } finally {
+                    batch.clear();
+                    drainLock.unlock();
+                }
+            } catch (InterruptedException ex) {
+                // stop() interrupts us; the loop condition decides whether to go on
+            } catch (RuntimeException ex) {
+                // the flusher must outlive any one batch; the journal still holds what this one did not persist
+                log.error("Write-behind flusher failed on a batch, continuing", ex);
+            }
+        }
+    }
+
+    /**
+     * Retries for as long as MongoDB is unreachable, so the queue fills up and pushes back on callers.
+     * Any other failure is retried {@code maxAttempts} times; then the writes are tried one at a time,
+     * in order, and those MongoDB still rejects are dead-lettered so the rest can move on.
+     */
+    private void persistWithRetry(List<TrackingJournal.Entry> batch) throws InterruptedException {
+        int failures = 0;
+        while (true) {
+            try {
+                if (failures < maxAttempts) {
+                    persist(batch);
+                } else {
+                    persistOneByOne(batch);
+                }
+                return;
+            } catch (RuntimeException ex) {
+                if (!running) {
+                    // shutting down: the journal has it, the next start replays it
+                    log.warn("Write-behind flush of {} writes failed while stopping, leaving them to journal replay: {}",
+                            batch.size(), ex.getMessage());
+                    return;
+                }
+                if (!isTransient(ex)) {
+                    failures++;
+                }
+                log.error("Write-behind flush of {} writes failed ({} of {} attempts), retrying: {}",
+                        batch.size(), failures, maxAttempts, ex.getMessage());
+                Thread.sleep(retryBackoffMs);
+            }
+        }
+    }
+
+    /**
+     * Persists the writes one at a time and dead-letters those MongoDB rejects. Removes every write
+     * it is done with from {@code batch}, so what is left after a transient failure is retried as is.
+     */
+    private void persistOneByOne(List<TrackingJournal.Entry> batch) {
+        List<TrackingJournal.Entry> rejected = new ArrayList<>();
+        try {
+            for (Iterator<TrackingJournal.Entry> it = batch.iterator(); it.hasNext(); ) {
+                TrackingJournal.Entry entry = it.next();
+                try {
+                    persist(List.of(entry));
+                } catch (RuntimeException ex) {
+                    if (isTransient(ex)) {
+                        throw ex;
+                    }
+                    log.error("Dead-lettering journaled {} of {}: {}",
+                            entry.op(), entry.document().getTrackingNumber(), ex.getMessage());
+                    rejected.add(entry);
+                }
+                it.remove();
+            }
+        } finally {
+            if (!rejected.isEmpty()) {
+                journal.deadLetter(rejected);
+                deadLettered.increment(rejected.size());
+                rejected.forEach(this::persisted);
+            }
+        }
+    }
+
+    /**
+     * MongoDB unreachable or timing out: worth waiting for, unlike a write it refuses.
+     */
+    private static boolean isTransient(RuntimeException ex) {
+        return ex instanceof DataAccessResourceFailureException
+                || ex instanceof TransientDataAccessException
+                || ex instanceof MongoSocketException
+                || ex instanceof MongoTimeoutException;
+    }
+
+    /**
+     * Inserts first, then applies status changes in journal order, then acknowledges the batch.
+     * Both steps are idempotent, so a batch replayed after a crash converges to the same state.
+     */
+    private void persist(List<TrackingJournal.Entry> batch) {
+        List<TrackingNumberDocument> inserts = new ArrayList<>();
+        List<TrackingNumberDocument> statuses = new ArrayList<>();
+        for (TrackingJournal.Entry entry : batch) {
+            (entry.op() == TrackingJournal.Op.INSERT ? inserts : statuses).add(entry.document());
+        }
+        Timer.Sample sample = Timer.start();
+        try {
+            partitions.byCollection(inserts, TrackingNumberDocument::getTrackingNumber).forEach(this::insert);
+            // ordered, so two changes of the same number land in the order they were made;
+            // a number never changes partition, so grouping keeps that order
+            partitions.byCollection(statuses, TrackingNumberDocument::getTrackingNumber).forEach((name, group) -> {
+                BulkOperations ops = mongoTemplate.bulkOps(BulkOperations.BulkMode.ORDERED, TrackingNumberDocument.class, name);
+                for (TrackingNumberDocument doc : group) {
+                    // a replayed change must not undo one made after it was first written
+                    ops.updateOne(
+                            Query.query(new Criteria().andOperator(
+                                    keys.byTrackingNumber(doc.getTrackingNumber()),
+                                    new Criteria().orOperator(
+                                            Criteria.where("updated_at").lte(doc.getUpdatedAt()),
+                                            Criteria.where("updated_at").is(null)))),
+                            Update.update("status", doc.getStatus()).set("updated_at", doc.getUpdatedAt()));
+                }
+                ops.execute();
+            });
+        } finally {
+            sample.stop(flushLatency);
+        }
+        batchSizes.record(batch.size());
+        journal.acknowledge(batch);
+        batch.forEach(this::persisted);
+    }
+
+    private void insert(String name, List<TrackingNumberDocument> docs) {
+        if (collection.enabled()) {
+            collection.execute(() -> {
+                try {
+                    return collection.get(name).insertMany(docs, new InsertManyOptions().ordered(false));
+                } catch (MongoBulkWriteException ex) {
+                    boolean onlyDuplicates = ex.getWriteErrors().stream()
+                            .allMatch(error -> error.getCode() == DUPLICATE_KEY);
+                    if (!onlyDuplicates) {
+                        throw ex;
+                    }
+                    return null;
+                }
+            });
+            return;
+        }
+        try {
+            mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, TrackingNumberDocument.class, name)
+                    .insert(docs)
+                    .execute();
+        } catch (BulkOperationException ex) {
+            // a retried or replayed batch may already be partly stored; anything else is a real failure
+            boolean onlyDuplicates = ex.getErrors().stream()
+                    .mapToInt(BulkWriteError::getCode)
+                    .allMatch(code -> code == DUPLICATE_KEY);
+            if (!onlyDuplicates) {
+                throw ex;
+            }
+        }
+    }
+
+    /**
+     * Pushes whatever the journal still holds from a previous run to MongoDB.
+     */
+    private void replay() {
+        List<TrackingJournal.Entry> unacked = journal.open();
+        if (unacked.isEmpty()) {
+            return;
+        }
+        log.warn("Replaying {} journaled writes that had not reached MongoDB", unacked.size());
+        try {
+            for (int from = 0; from < unacked.size(); from += batchSize) {
+                // same retries and dead-lettering as the flusher, so one bad write cannot keep the application down
+                persistWithRetry(new ArrayList<>(unacked.subList(from, Math.min(unacked.size(), from + batchSize))));
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while replaying the tracking journal", ex);
+        }
+    }
+
+    private static TrackingNumberDocument copyOf(TrackingNumberDocument doc) {
+        return new TrackingNumberDocument(
+                doc.getId(),
+                doc.getTrackingNumber(),
+                doc.getOriginCountryId(),
+                doc.getDestinationCountryId(),
+                doc.getWeight(),
+                doc.getCustomerId(),
+                doc.getCustomerName(),
+                doc.getCustomerSlug(),
+                doc.getGeneratedAt(),
+                doc.getStatus(),
+                doc.getUpdatedAt(),
+                doc.getMetadata()
+        );
+    }
+
+    /** A document with writes in flight; the lock also orders its status changes. */
+    private static final class Pending {
+        final TrackingNumberDocument document;
+        final ReentrantLock lock = new ReentrantLock();
+        /** Queued or in-flight writes of this document; guarded by lock. */
+        int outstanding = 1;
+        /** Set once the last write reached MongoDB; guarded by lock. */
+        boolean retired;
+
+        Pending(TrackingNumberDocument document) {
+            this.document = document;
+        }
+
+        TrackingNumberDocument document() {
+            return document;
+        }
+    }
+
+    @Override
+    public void start() {
+        // set first: replay retries like the flusher does
+        running = true;
+        try {
+            replay();
+        } catch (RuntimeException ex) {
+            running = false;
+            throw ex;
+        }
+        flusher = Thread.ofPlatform()
+                .name("tracking-write-behind")
+                .daemon(true)
+                .start(this::flushLoop);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        Thread thread = flusher;
+        if (thread != null) {
+            thread.interrupt();
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flusher = null;
+        try {
+            flush();
+        } catch (RuntimeException ex) {
+            log.error("Write-behind shutdown flush failed, {} writes left in the journal for the next start", queue.size(), ex);
+        }
+        journal.close();
+    }
+    @Override public boolean isRunning()    { return running; }
+    @Override public boolean isAutoStartup(){ return true; }
+    // stop after the web server has drained its requests, before the Mongo client closes
+    @Override public int getPhase()        { return SmartLifecycle.DEFAULT_PHASE - 2048; }
+    @Override public void stop(Runnable callback) {
+        stop(); callback.run();
+    }
+}
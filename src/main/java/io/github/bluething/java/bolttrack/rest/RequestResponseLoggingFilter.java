@@ -24,6 +24,13 @@ class RequestResponseLoggingFilter extends OncePerRequestFilter {
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
         ContentCachingRequestWrapper requestWrapper = new ContentCachingRequestWrapper(request);
+        if (isStreamed(request)) {
+            // caching would hold the whole export in memory; the body is not logged anyway
+            logRequest(requestWrapper);
+            filterChain.doFilter(requestWrapper, response);
+            log.info("HTTP Response - status: {}", response.getStatus());
+            return;
+        }
         ContentCachingResponseWrapper responseWrapper = new ContentCachingResponseWrapper(response);
         try {
             logRequest(requestWrapper);
@@ -139,6 +146,10 @@ class RequestResponseLoggingFilter extends OncePerRequestFilter {
         return status >= 400;
     }
 
+    private boolean isStreamed(HttpServletRequest request) {
+        return request.getRequestURI().endsWith("/export");
+    }
+
     private String getRequestBody(ContentCachingRequestWrapper request) {
         byte[] content = request.getContentAsByteArray();
         if (content.length > 0) {
@@ -0,0 +1,25 @@
+package io.github.bluething.java.bolttrack.rest;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+class ScanEventBatchResponse {
+    @JsonProperty("applied")
+    private int applied;
+
+    @JsonProperty("rejected")
+    private int rejected;
+
+    /** One result per submitted event, in request order. */
+    @JsonProperty("results")
+    private List<ScanEventResultResponse> results;
+}
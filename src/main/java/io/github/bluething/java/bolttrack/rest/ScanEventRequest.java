@@ -0,0 +1,14 @@
+package io.github.bluething.java.bolttrack.rest;
+
+import java.time.Instant;
+
+/**
+ * One scan event of a batch. Not bean-validated: a bad event is reported in its own result
+ * instead of failing the whole batch.
+ */
+record ScanEventRequest(
+        String tracking_number,
+        String status,
+        Instant event_time
+) {
+}
@@ -0,0 +1,32 @@
+package io.github.bluething.java.bolttrack.rest;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+class ScanEventResultResponse {
+    @JsonProperty("tracking_number")
+    private String trackingNumber;
+
+    @JsonProperty("status")
+    private String status;
+
+    @JsonProperty("event_time")
+    private Instant eventTime;
+
+    @JsonProperty("result")
+    private String result;
+
+    @JsonProperty("message")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String message;
+}
@@ -1,5 +1,6 @@
 package io.github.bluething.java.bolttrack.rest;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
@@ -43,6 +44,8 @@ class TrackingDetailResponse {
     @JsonProperty("status")
     private String status;
 
+    /** Only present when asked for with {@code ?include=metadata}. */
     @JsonProperty("metadata")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
     private Map<String, Object> metadata;
 }
@@ -0,0 +1,21 @@
+package io.github.bluething.java.bolttrack.rest;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/** One NDJSON line of an export: the tracking detail plus the token to resume after it. */
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+class TrackingExportRowResponse {
+    @JsonUnwrapped
+    private TrackingDetailResponse detail;
+
+    @JsonProperty("cursor")
+    private String cursor;
+}
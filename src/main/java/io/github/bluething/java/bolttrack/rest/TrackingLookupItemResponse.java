@@ -0,0 +1,24 @@
+package io.github.bluething.java.bolttrack.rest;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+class TrackingLookupItemResponse {
+    @JsonProperty("tracking_number")
+    private String trackingNumber;
+
+    @JsonProperty("found")
+    private boolean found;
+
+    @JsonProperty("detail")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private TrackingDetailResponse detail;
+}
@@ -0,0 +1,19 @@
+package io.github.bluething.java.bolttrack.rest;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+class TrackingLookupResponse {
+    /** One entry per requested tracking number, in request order. */
+    @JsonProperty("results")
+    private List<TrackingLookupItemResponse> results;
+}
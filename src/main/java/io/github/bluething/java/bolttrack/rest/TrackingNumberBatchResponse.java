@@ -0,0 +1,22 @@
+package io.github.bluething.java.bolttrack.rest;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+import java.util.List;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+class TrackingNumberBatchResponse {
+    @JsonProperty("tracking_numbers")
+    private List<String> trackingNumbers;
+
+    @JsonProperty("created_at")
+    private Instant createdAt;
+}
@@ -1,20 +1,44 @@
 package io.github.bluething.java.bolttrack.rest;
 
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import io.github.bluething.java.bolttrack.domain.TrackingNumberRecords;
 import io.github.bluething.java.bolttrack.domain.TrackingNumberService;
+import io.github.bluething.java.bolttrack.exception.InvalidScanBatchException;
 import io.micrometer.core.annotation.Timed;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
 @RestController
 @RequestMapping("/api/v1")
 @RequiredArgsConstructor
 @Validated
 class TrackingNumberController {
+    private static final int MAX_BATCH_SIZE = 5_000;
+    private static final int MAX_SCAN_BATCH_SIZE = 10_000;
+    private static final int MAX_LOOKUP_SIZE = 500;
+    private static final int MAX_PAGE_SIZE = 200;
+    private static final String APPLICATION_NDJSON = "application/x-ndjson";
     private final TrackingNumberService trackingNumberService;
+    private final ObjectMapper objectMapper;
 
     @Timed(value = "tracking.http.requests", description = "Time spent handling HTTP requests for tracking")
     @GetMapping("/next-tracking-number")
@@ -23,18 +47,94 @@ class TrackingNumberController {
         return TrackingRestMapper.toRest(dto);
     }
 
+    @Timed(value = "tracking.http.requests", description = "Time spent handling HTTP requests for batch tracking numbers")
+    @GetMapping("/next-tracking-numbers")
+    public TrackingNumberBatchResponse nextBatchViaGet(
+            @RequestParam("count")
+            @Min(value = 1, message = "count must be at least 1")
+            @Max(value = MAX_BATCH_SIZE, message = "count must be at most " + MAX_BATCH_SIZE)
+            int count,
+            @Valid @ModelAttribute TrackingNumberRequest request
+    ) {
+        var dto = trackingNumberService.generateBatch(TrackingRestMapper.toDto(request), count);
+        return TrackingRestMapper.toBatchRest(dto);
+    }
+
     @Timed(value = "tracking.http.requests", description = "Time spent handling HTTP requests for tracking detail")
     @GetMapping("/track/{tracking_number}")
     public TrackingDetailResponse detail(
             @PathVariable("tracking_number")
             @Pattern(regexp = "^[0-9A-Z]{1,16}$",
                     message = "tracking_number must be 1–16 chars [0-9A-Z]")
-            String trackingNumber
+            String trackingNumber,
+            @RequestParam(value = "include", required = false)
+            List<@Pattern(regexp = "^metadata$",
+                    message = "include may only list metadata") String> include
     ) {
-        var detailDto = trackingNumberService.findByTrackingNumber(trackingNumber);
+        boolean includeMetadata = include != null && include.contains("metadata");
+        var detailDto = trackingNumberService.findByTrackingNumber(trackingNumber, includeMetadata);
         return TrackingRestMapper.toDetailRest(detailDto);
     }
 
+    @Timed(value = "tracking.http.requests", description = "Time spent handling HTTP requests for tracking lookup")
+    @GetMapping("/track")
+    public TrackingLookupResponse lookup(
+            @RequestParam("tracking_numbers")
+            @Size(min = 1, max = MAX_LOOKUP_SIZE,
+                    message = "tracking_numbers must hold 1–" + MAX_LOOKUP_SIZE + " values")
+            List<@Pattern(regexp = "^[0-9A-Z]{1,16}$",
+                    message = "tracking_number must be 1–16 chars [0-9A-Z]") String> trackingNumbers
+    ) {
+        var lookupDto = trackingNumberService.findByTrackingNumbers(trackingNumbers);
+        return TrackingRestMapper.toLookupRest(lookupDto);
+    }
+
+    @Timed(value = "tracking.http.requests", description = "Time spent handling HTTP requests for tracking listing")
+    @GetMapping("/customers/{customer_id}/tracking-numbers")
+    public TrackingPageResponse list(
+            @PathVariable("customer_id") UUID customerId,
+            @RequestParam(value = "status", required = false)
+            @Pattern(regexp = "^(CREATED|PICKED_UP|IN_TRANSIT|OUT_FOR_DELIVERY|DELIVERED|EXCEPTION|RETURNED|CANCELLED)$",
+                    message = "status must be a tracking status")
+            String status,
+            @RequestParam(value = "after", required = false) String after,
+            @RequestParam(value = "size", defaultValue = "50")
+            @Min(value = 1, message = "size must be at least 1")
+            @Max(value = MAX_PAGE_SIZE, message = "size must be at most " + MAX_PAGE_SIZE)
+            int size
+    ) {
+        var pageDto = trackingNumberService.listByCustomer(customerId, status, after, size);
+        return TrackingRestMapper.toPageRest(pageDto);
+    }
+
+    /**
+     * Writes one JSON object per line straight from the database cursor, so memory stays flat
+     * however many rows match. Each line carries a {@code cursor}; pass the last one received as
+     * {@code after} to resume an interrupted export.
+     */
+    @Timed(value = "tracking.http.requests", description = "Time spent handling HTTP requests for tracking export")
+    @GetMapping(value = "/customers/{customer_id}/tracking-numbers/export", produces = APPLICATION_NDJSON)
+    public void export(
+            @PathVariable("customer_id") UUID customerId,
+            @RequestParam("from") Instant from,
+            @RequestParam("to") Instant to,
+            @RequestParam(value = "after", required = false) String after,
+            HttpServletResponse response
+    ) throws IOException {
+        // opened before anything is written, so a bad range or cursor still gets a 400
+        try (Stream<TrackingNumberRecords.TrackingExportData> rows =
+                     trackingNumberService.exportByCustomer(customerId, from, to, after)) {
+            response.setContentType(APPLICATION_NDJSON);
+            ObjectWriter writer = objectMapper.writerFor(TrackingExportRowResponse.class);
+            OutputStream out = response.getOutputStream();
+            for (var it = rows.iterator(); it.hasNext(); ) {
+                out.write(writer.writeValueAsBytes(TrackingRestMapper.toExportRest(it.next())));
+                out.write('\n');
+            }
+            out.flush();
+        }
+    }
+
     @Timed(value = "tracking.http.requests", description = "Time spent handling HTTP requests for updating status")
     @PatchMapping("/track/{tracking_number}/status")
     public TrackingDetailResponse updateStatus(
@@ -45,4 +145,38 @@ class TrackingNumberController {
             return TrackingRestMapper.toDetailRest(detailDto);
 
     }
+
+    @Timed(value = "tracking.http.requests", description = "Time spent handling HTTP requests for scan events")
+    @PostMapping(value = "/scan-events", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ScanEventBatchResponse scanEvents(
+            @RequestBody
+            @Size(max = MAX_SCAN_BATCH_SIZE, message = "at most " + MAX_SCAN_BATCH_SIZE + " scan events per request")
+            List<ScanEventRequest> events
+    ) {
+        return applyScanEvents(events);
+    }
+
+    @Timed(value = "tracking.http.requests", description = "Time spent handling HTTP requests for scan events")
+    @PostMapping(value = "/scan-events", consumes = APPLICATION_NDJSON)
+    public ScanEventBatchResponse scanEventsNdjson(InputStream body) {
+        List<ScanEventRequest> events = new ArrayList<>();
+        try (MappingIterator<ScanEventRequest> lines = objectMapper.readerFor(ScanEventRequest.class).readValues(body)) {
+            while (lines.hasNextValue()) {
+                if (events.size() == MAX_SCAN_BATCH_SIZE) {
+                    throw new InvalidScanBatchException("at most " + MAX_SCAN_BATCH_SIZE + " scan events per request");
+                }
+                events.add(lines.nextValue());
+            }
+        } catch (IOException ex) {
+            throw new InvalidScanBatchException("Malformed scan event on line " + (events.size() + 1));
+        }
+        return applyScanEvents(events);
+    }
+
+    private ScanEventBatchResponse applyScanEvents(List<ScanEventRequest> events) {
+        var results = trackingNumberService.applyScanEvents(events.stream()
+                .map(TrackingRestMapper::toScanDto)
+                .toList());
+        return TrackingRestMapper.toScanBatchRest(results);
+    }
 }
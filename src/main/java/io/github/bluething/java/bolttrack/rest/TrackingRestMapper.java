@@ -1,7 +1,10 @@
 package io.github.bluething.java.bolttrack.rest;
 
+import io.github.bluething.java.bolttrack.domain.ScanEventOutcome;
 import io.github.bluething.java.bolttrack.domain.TrackingNumberRecords;
 
+import java.util.List;
+
 class TrackingRestMapper {
     public static TrackingNumberResponse toRest(TrackingNumberRecords.TrackingNumberData dto) {
         return new TrackingNumberResponse(
@@ -9,6 +12,12 @@ class TrackingRestMapper {
                 dto.createdAt()
         );
     }
+    public static TrackingNumberBatchResponse toBatchRest(TrackingNumberRecords.TrackingNumberBatchData dto) {
+        return new TrackingNumberBatchResponse(
+                dto.trackingNumbers(),
+                dto.createdAt()
+        );
+    }
     public static TrackingNumberRecords.CreateTrackingNumberCommand toDto(TrackingNumberRequest rest) {
         return new TrackingNumberRecords.CreateTrackingNumberCommand(rest.origin_country_id(),
                 rest.destination_country_id(),
@@ -30,4 +39,38 @@ class TrackingRestMapper {
                 dto.status(),
                 dto.metadata());
     }
+    public static TrackingLookupResponse toLookupRest(List<TrackingNumberRecords.TrackingLookupData> dtos) {
+        return new TrackingLookupResponse(dtos.stream()
+                .map(dto -> new TrackingLookupItemResponse(dto.trackingNumber(),
+                        dto.detail() != null,
+                        dto.detail() == null ? null : toDetailRest(dto.detail())))
+                .toList());
+    }
+    public static TrackingPageResponse toPageRest(TrackingNumberRecords.TrackingPageData dto) {
+        return new TrackingPageResponse(dto.items().stream()
+                .map(TrackingRestMapper::toDetailRest)
+                .toList(),
+                dto.nextCursor());
+    }
+    public static TrackingExportRowResponse toExportRest(TrackingNumberRecords.TrackingExportData dto) {
+        return new TrackingExportRowResponse(toDetailRest(dto.detail()), dto.cursor());
+    }
+    public static TrackingNumberRecords.ScanEventCommand toScanDto(ScanEventRequest rest) {
+        return new TrackingNumberRecords.ScanEventCommand(rest.tracking_number(),
+                rest.status(),
+                rest.event_time());
+    }
+    public static ScanEventBatchResponse toScanBatchRest(List<TrackingNumberRecords.ScanEventResult> dtos) {
+        List<ScanEventResultResponse> results = dtos.stream()
+                .map(dto -> new ScanEventResultResponse(dto.trackingNumber(),
+                        dto.status(),
+                        dto.eventTime(),
+                        dto.outcome().name(),
+                        dto.message()))
+                .toList();
+        int applied = (int) dtos.stream()
+                .filter(dto -> dto.outcome() == ScanEventOutcome.APPLIED)
+                .count();
+        return new ScanEventBatchResponse(applied, dtos.size() - applied, results);
+    }
 }
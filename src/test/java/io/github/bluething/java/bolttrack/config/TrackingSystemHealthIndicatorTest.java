@@ -0,0 +1,74 @@
+package io.github.bluething.java.bolttrack.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TrackingSystemHealthIndicatorTest {
+    private DependencyHealthMonitor monitor;
+    private TrackingSystemHealthIndicator indicator;
+
+    @BeforeEach
+    void setUp() {
+        monitor = mock(DependencyHealthMonitor.class);
+        indicator = new TrackingSystemHealthIndicator(monitor,
+                new TrackingHealthProperties(Duration.ofSeconds(5), Duration.ofSeconds(30)));
+    }
+
+    @Test
+    @DisplayName("fresh passing checks → UP with latency per dependency")
+    void upWhenAllChecksPassRecently() {
+        givenChecks(ok(Instant.now()), ok(Instant.now()));
+
+        Health health = indicator.health();
+
+        assertThat(health.getStatus()).isEqualTo(Status.UP);
+        assertThat(health.getDetails()).containsOnlyKeys("mongo", "redis");
+        assertThat((Map<?, ?>) health.getDetails().get("mongo")).containsEntry("latency_ms", 3L);
+    }
+
+    @Test
+    @DisplayName("a failed check → DOWN with its error")
+    void downWhenACheckFailed() {
+        givenChecks(ok(Instant.now()),
+                new DependencyHealthMonitor.Check(false, Instant.now(), Duration.ofMillis(1), "worker id lease lost"));
+
+        Health health = indicator.health();
+
+        assertThat(health.getStatus()).isEqualTo(Status.DOWN);
+        assertThat((Map<?, ?>) health.getDetails().get("redis")).containsEntry("error", "worker id lease lost");
+    }
+
+    @Test
+    @DisplayName("a passing but stale check → DOWN, e.g. when the check itself hangs")
+    void downWhenAResultIsStale() {
+        givenChecks(ok(Instant.now().minusSeconds(60)), ok(Instant.now()));
+
+        Health health = indicator.health();
+
+        assertThat(health.getStatus()).isEqualTo(Status.DOWN);
+        assertThat((Map<?, ?>) health.getDetails().get("mongo")).containsEntry("status", "STALE");
+    }
+
+    private void givenChecks(DependencyHealthMonitor.Check mongo, DependencyHealthMonitor.Check redis) {
+        Map<String, DependencyHealthMonitor.Check> checks = new LinkedHashMap<>();
+        checks.put(DependencyHealthMonitor.MONGO, mongo);
+        checks.put(DependencyHealthMonitor.REDIS, redis);
+        when(monitor.latest()).thenReturn(checks);
+    }
+
+    private static DependencyHealthMonitor.Check ok(Instant checkedAt) {
+        return new DependencyHealthMonitor.Check(true, checkedAt, Duration.ofMillis(3), null);
+    }
+}
@@ -0,0 +1,154 @@
+package io.github.bluething.java.bolttrack.domain;
+
+import io.github.bluething.java.bolttrack.persistence.TrackingNumberRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class BloomTrackingNumberFilterTest {
+    private static final long BASE_ID = (123_456_789L << 22) | (7L << 12);
+
+    @Mock
+    TrackingNumberRepository repository;
+
+    @Mock
+    StringRedisTemplate redis;
+
+    @Mock
+    ValueOperations<String, String> values;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private BloomTrackingNumberFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        // one generation for the whole test, rebuilt as soon as it is maintained
+        filter = new BloomTrackingNumberFilter(repository, null,
+                new TrackingBloomProperties(true, false, 1_000, 0.01, Duration.ofDays(3650), Duration.ZERO),
+                registry);
+    }
+
+    @Test
+    @DisplayName("isDefinitelyAbsent(...) sends everything to the database until the first rebuild")
+    void isDefinitelyAbsent_beforeRebuild_isFalse() {
+        assertThat(filter.isDefinitelyAbsent(number(5))).isFalse();
+    }
+
+    @Test
+    @DisplayName("isDefinitelyAbsent(...) knows stored and newly issued numbers and rules out most others")
+    void isDefinitelyAbsent_afterRebuild() {
+        when(repository.streamTrackingNumbers()).thenReturn(Stream.of(number(1), number(2)));
+        filter.addAll(List.of(number(3)));
+
+        filter.maintain(System.currentTimeMillis());
+        filter.addAll(List.of(number(4)));
+
+        assertThat(Stream.of(number(1), number(2), number(3), number(4)))
+                .noneMatch(filter::isDefinitelyAbsent);
+        long absent = LongStream.range(100, 200)
+                .mapToObj(BloomTrackingNumberFilterTest::number)
+                .filter(filter::isDefinitelyAbsent)
+                .count();
+        assertThat(absent).isGreaterThanOrEqualTo(95);
+        assertThat(registry.get("tracking.bloom.size").gauge().value()).isPositive();
+        assertThat(registry.get("tracking.bloom.false.positive.rate").gauge().value()).isLessThan(0.01);
+    }
+
+    @Test
+    @DisplayName("definitelyAbsent(...) answers a batch like the single check, leaving unknown shapes to the database")
+    void definitelyAbsent_matchesSingleChecks() {
+        when(repository.streamTrackingNumbers()).thenReturn(Stream.of(number(1), number(2)));
+        filter.maintain(System.currentTimeMillis());
+        List<String> batch = Stream.concat(
+                        Stream.of(number(1), number(2), "not-a-number"),
+                        LongStream.range(100, 200).mapToObj(BloomTrackingNumberFilterTest::number))
+                .toList();
+
+        Set<String> absent = filter.definitelyAbsent(batch);
+
+        assertThat(absent).doesNotContain(number(1), number(2), "not-a-number");
+        assertThat(absent).containsExactlyInAnyOrderElementsOf(
+                batch.stream().filter(filter::isDefinitelyAbsent).toList());
+        assertThat(absent).hasSizeGreaterThanOrEqualTo(95);
+    }
+
+    @Test
+    @DisplayName("isDefinitelyAbsent(...) leaves numbers that are not Snowflake ids to the database")
+    void isDefinitelyAbsent_notSnowflake_isFalse() {
+        when(repository.streamTrackingNumbers()).thenReturn(Stream.empty());
+        filter.maintain(System.currentTimeMillis());
+
+        assertThat(filter.isDefinitelyAbsent("not-a-number")).isFalse();
+    }
+
+    @Test
+    @DisplayName("addAll(...) takes both generations out of service when Redis cannot record the numbers")
+    void addAll_redisFailure_invalidatesGenerations() {
+        when(redis.executePipelined(any(RedisCallback.class))).thenThrow(new RedisConnectionFailureException("connection reset"));
+        when(redis.opsForValue()).thenReturn(values);
+        BloomTrackingNumberFilter shared = sharedFilter();
+
+        assertThatCode(() -> shared.addAll(List.of(number(1)))).doesNotThrowAnyException();
+
+        long generation = System.currentTimeMillis() / Duration.ofDays(3650).toMillis();
+        verify(values).set("tracking:bloom:" + generation + ":build", "1", Duration.ofMinutes(10));
+        verify(values).set("tracking:bloom:" + (generation + 1) + ":build", "1", Duration.ofMinutes(10));
+        verify(redis).delete("tracking:bloom:" + generation + ":ready");
+        verify(redis).delete("tracking:bloom:" + (generation + 1) + ":ready");
+    }
+
+    @Test
+    @DisplayName("addAll(...) fails when the generations cannot be taken out of service either")
+    void addAll_redisDown_throws() {
+        when(redis.executePipelined(any(RedisCallback.class))).thenThrow(new RedisConnectionFailureException("connection reset"));
+        when(redis.opsForValue()).thenReturn(values);
+        doThrow(new RedisConnectionFailureException("connection reset"))
+                .when(values).set(any(), any(), any(Duration.class));
+        BloomTrackingNumberFilter shared = sharedFilter();
+
+        assertThatThrownBy(() -> shared.addAll(List.of(number(1))))
+                .isInstanceOf(RedisConnectionFailureException.class);
+    }
+
+    @Test
+    @DisplayName("settle-time must be shorter than rebuild-interval")
+    void constructor_settleNotShorterThanInterval_throws() {
+        assertThatThrownBy(() -> new BloomTrackingNumberFilter(repository, null,
+                new TrackingBloomProperties(true, false, 1_000, 0.01, Duration.ofHours(1), Duration.ofHours(1)),
+                registry))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private BloomTrackingNumberFilter sharedFilter() {
+        return new BloomTrackingNumberFilter(repository, redis,
+                new TrackingBloomProperties(true, true, 1_000, 0.01, Duration.ofDays(3650), Duration.ofMinutes(10)),
+                registry);
+    }
+
+    private static String number(long sequence) {
+        return TrackingNumberCodec.encode(BASE_ID + sequence * 4096);
+    }
+}
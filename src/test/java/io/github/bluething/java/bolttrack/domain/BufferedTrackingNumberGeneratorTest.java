@@ -0,0 +1,121 @@
+package io.github.bluething.java.bolttrack.domain;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BufferedTrackingNumberGeneratorTest {
+    private final AtomicLong sequence = new AtomicLong();
+    /** Mints numbers as of {@code now}; the counter fills the worker and sequence bits. */
+    private final AtomicLong now = new AtomicLong(System.currentTimeMillis());
+    private final TrackingNumberGenerator delegate = () -> TrackingNumberCodec.encode(
+            SnowflakeId.toRawId(now.get() - SnowflakeId.DEFAULT_EPOCH, 0, 0) + sequence.incrementAndGet());
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private BufferedTrackingNumberGenerator gen;
+
+    @AfterEach
+    void tearDown() {
+        if (gen != null) gen.stop();
+    }
+
+    @Test
+    void ringBufferRoundsCapacityAndRejectsWhenFull() {
+        var ring = new TrackingNumberRingBuffer(5);
+        assertEquals(8, ring.capacity());
+        for (int i = 0; i < 8; i++) {
+            assertTrue(ring.offer("TN" + i));
+        }
+        assertFalse(ring.offer("overflow"));
+        assertEquals("TN0", ring.poll());
+        assertEquals(7, ring.size());
+    }
+
+    @Test
+    void propertiesRejectInvertedWatermarks() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new TrackingBufferProperties(true, 64, 48, 32, Duration.ofMillis(5), Duration.ofMinutes(1)));
+        assertThrows(IllegalArgumentException.class,
+                () -> new TrackingBufferProperties(true, 64, 16, 128, Duration.ofMillis(5), Duration.ofMinutes(1)));
+    }
+
+    @Test
+    void fallsBackToDelegateWhenBufferIsEmpty() {
+        gen = new BufferedTrackingNumberGenerator(delegate,
+                new TrackingBufferProperties(true, 64, 16, 48, Duration.ofMillis(5), Duration.ofMinutes(1)), registry);
+
+        // producer not started → buffer is dry, caller must still get a number
+        assertNotNull(gen.generateTrackingNumber());
+        assertEquals(1.0, registry.get("tracking.number.buffer.empty").counter().count());
+    }
+
+    @Test
+    void producerFillsBufferUpToHighWatermark() throws InterruptedException {
+        gen = new BufferedTrackingNumberGenerator(delegate,
+                new TrackingBufferProperties(true, 64, 16, 48, Duration.ofMillis(1), Duration.ofMinutes(1)), registry);
+        gen.start();
+
+        long deadline = System.currentTimeMillis() + 2_000;
+        while (gen.bufferedCount() < 48 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(48, gen.bufferedCount());
+    }
+
+    @Test
+    void numbersOlderThanTheMaxAgeAreDroppedInsteadOfHandedOut() throws InterruptedException {
+        gen = new BufferedTrackingNumberGenerator(delegate,
+                new TrackingBufferProperties(true, 64, 16, 48, Duration.ofMillis(1), Duration.ofMinutes(1)), registry);
+        // fill the ring an hour ago, then stop producing before anything is taken
+        now.set(System.currentTimeMillis() - Duration.ofHours(1).toMillis());
+        gen.start();
+        long deadline = System.currentTimeMillis() + 2_000;
+        while (gen.bufferedCount() < 48 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        gen.stop();
+        now.set(System.currentTimeMillis());
+
+        String trackingNumber = gen.generateTrackingNumber();
+
+        assertTrue(TrackingNumberCodec.decodeId(trackingNumber).generatedAt()
+                .isAfter(Instant.now().minus(Duration.ofMinutes(1))));
+        assertEquals(48.0, registry.get("tracking.number.buffer.expired").counter().count());
+        assertEquals(0, gen.bufferedCount());
+    }
+
+    @Test
+    void generateConcurrentlyHandsOutEachNumberOnce() throws InterruptedException {
+        gen = new BufferedTrackingNumberGenerator(delegate,
+                new TrackingBufferProperties(true, 1024, 256, 768, Duration.ofMillis(1), Duration.ofMinutes(1)), registry);
+        gen.start();
+        int virtualThreads = 1_000;
+        int perThread      = 100;
+        Set<String> trackingNumbers = ConcurrentHashMap.newKeySet();
+
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            var tasks = IntStream.range(0, virtualThreads)
+                    .<Callable<Void>>mapToObj(i -> () -> {
+                        for (int j = 0; j < perThread; j++) {
+                            trackingNumbers.add(gen.generateTrackingNumber());
+                        }
+                        return null;
+                    })
+                    .toList();
+            executor.invokeAll(tasks);
+        }
+
+        assertEquals(virtualThreads * perThread, trackingNumbers.size(),
+                "Expected buffered tracking numbers to be unique");
+    }
+}
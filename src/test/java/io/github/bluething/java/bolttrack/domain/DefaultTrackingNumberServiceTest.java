@@ -1,9 +1,14 @@
 package io.github.bluething.java.bolttrack.domain;
 
+import io.github.bluething.java.bolttrack.exception.InvalidCheckCharacterException;
+import io.github.bluething.java.bolttrack.exception.InvalidCursorException;
 import io.github.bluething.java.bolttrack.exception.InvalidStatusTransitionException;
+import io.github.bluething.java.bolttrack.exception.InvalidTimeRangeException;
 import io.github.bluething.java.bolttrack.exception.ResourceNotFoundException;
 import io.github.bluething.java.bolttrack.persistence.TrackingNumberDocument;
 import io.github.bluething.java.bolttrack.persistence.TrackingNumberRepository;
+import io.github.bluething.java.bolttrack.persistence.TrackingNumberRepositoryCustom;
+import io.github.bluething.java.bolttrack.persistence.TrackingNumberWriter;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -15,8 +20,13 @@ import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.math.BigDecimal;
 import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -31,6 +41,18 @@ class DefaultTrackingNumberServiceTest {
     @Mock
     TrackingNumberRepository repository;
 
+    @Mock
+    TrackingNumberWriter writer;
+
+    @Mock
+    TrackingDetailCache cache;
+
+    @Mock
+    TrackingNumberFilter filter;
+
+    @Mock
+    TrackingNumberValidator validator;
+
     @InjectMocks
     DefaultTrackingNumberService service;
 
@@ -50,7 +72,7 @@ class DefaultTrackingNumberServiceTest {
     }
 
     @Test
-    @DisplayName("generate(...) should call generator and repository.save, and return correct DTO")
+    @DisplayName("generate(...) should call generator and writer.write, and return correct DTO")
     void generate_callsGeneratorAndSave() {
         when(generator.generateTrackingNumber()).thenReturn("TRACK123");
         TrackingNumberRecords.TrackingNumberData result = service.generate(cmd);
@@ -62,7 +84,7 @@ class DefaultTrackingNumberServiceTest {
         @SuppressWarnings("unchecked")
         ArgumentCaptor<TrackingNumberDocument> captor =
                 ArgumentCaptor.forClass(TrackingNumberDocument.class);
-        verify(repository).save(captor.capture());
+        verify(writer).write(captor.capture());
 
         TrackingNumberDocument saved = captor.getValue();
         assertThat(saved.getTrackingNumber()).isEqualTo("TRACK123");
@@ -77,6 +99,33 @@ class DefaultTrackingNumberServiceTest {
         assertThat(saved.getMetadata()).isNull();
     }
 
+    @Test
+    @DisplayName("generateBatch(...) reserves numbers in one call and persists them with a single insert")
+    void generateBatch_insertsAllDocumentsAtOnce() {
+        when(generator.generateTrackingNumbers(3)).thenReturn(List.of("TN1", "TN2", "TN3"));
+
+        TrackingNumberRecords.TrackingNumberBatchData result = service.generateBatch(cmd, 3);
+
+        assertThat(result.trackingNumbers()).containsExactly("TN1", "TN2", "TN3");
+        assertThat(result.createdAt()).isNotNull();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<TrackingNumberDocument>> captor = ArgumentCaptor.forClass(List.class);
+        verify(writer).writeAll(captor.capture());
+        verify(writer, never()).write(any());
+        verify(filter).addAll(List.of("TN1", "TN2", "TN3"));
+
+        assertThat(captor.getValue())
+                .extracting(TrackingNumberDocument::getTrackingNumber)
+                .containsExactly("TN1", "TN2", "TN3");
+        assertThat(captor.getValue())
+                .allSatisfy(doc -> {
+                    assertThat(doc.getCustomerId()).isEqualTo(customerId);
+                    assertThat(doc.getStatus()).isEqualTo(TrackingStatus.CREATED.name());
+                    assertThat(doc.getGeneratedAt()).isEqualTo(result.createdAt());
+                });
+    }
+
     @Test
     @DisplayName("findByTrackingNumber(...) returns correct detail DTO when repository has a document")
     void findByTrackingNumber_found_mapsToDetail() {
@@ -94,11 +143,11 @@ class DefaultTrackingNumberServiceTest {
         );
         // Note: TrackingDetailData expects generatedAt same as document.getGeneratedAt()
         doc.setGeneratedAt(Instant.parse("2025-06-26T08:01:00Z"));
-        when(repository.findByTrackingNumber("TRACK123"))
+        when(repository.findByTrackingNumber("TRACK123", false))
                 .thenReturn(Optional.of(doc));
 
         TrackingNumberRecords.TrackingDetailData detail =
-                service.findByTrackingNumber("TRACK123");
+                service.findByTrackingNumber("TRACK123", false);
 
         assertThat(detail.trackingNumber()).isEqualTo("TRACK123");
         assertThat(detail.originCountryId()).isEqualTo("US");
@@ -111,22 +160,143 @@ class DefaultTrackingNumberServiceTest {
         assertThat(detail.customerSlug()).isEqualTo("acme-corp");
         assertThat(detail.status()).isEqualTo("CREATED");
         assertThat(detail.metadata()).isNull();
+        verify(cache).put(detail);
+    }
+
+    @Test
+    @DisplayName("findByTrackingNumber(...) serves a document still waiting in the write-behind queue")
+    void findByTrackingNumber_pending_skipsRepository() {
+        TrackingNumberDocument doc = new TrackingNumberDocument();
+        doc.setTrackingNumber("TRACK123");
+        doc.setStatus("CREATED");
+        when(writer.findPending("TRACK123")).thenReturn(Optional.of(doc));
+
+        assertThat(service.findByTrackingNumber("TRACK123", false).status()).isEqualTo("CREATED");
+        verify(repository, never()).findByTrackingNumber(any(), anyBoolean());
+    }
+
+    @Test
+    @DisplayName("findByTrackingNumber(...) serves a cached detail without touching MongoDB")
+    void findByTrackingNumber_cached_skipsRepository() {
+        TrackingNumberRecords.TrackingDetailData cached = new TrackingNumberRecords.TrackingDetailData(
+                "TRACK123", "US", "CA", new BigDecimal("2.500"),
+                Instant.parse("2025-06-26T08:01:00Z"), customerId, "Acme Corp", "acme-corp",
+                Instant.parse("2025-06-26T08:01:00Z"), "IN_TRANSIT", null);
+        when(cache.get("TRACK123")).thenReturn(Optional.of(cached));
+
+        assertThat(service.findByTrackingNumber("TRACK123", false)).isSameAs(cached);
+        verifyNoInteractions(repository, writer);
+    }
+
+    @Test
+    @DisplayName("findByTrackingNumbers(...) serves cache hits and loads the rest with one query, in input order")
+    void findByTrackingNumbers_mixesCacheAndSingleQuery() {
+        TrackingNumberRecords.TrackingDetailData cached = new TrackingNumberRecords.TrackingDetailData(
+                "TN1", "US", "CA", new BigDecimal("2.500"),
+                Instant.parse("2025-06-26T08:01:00Z"), customerId, "Acme Corp", "acme-corp",
+                Instant.parse("2025-06-26T08:01:00Z"), "IN_TRANSIT", null);
+        TrackingNumberDocument doc = new TrackingNumberDocument();
+        doc.setTrackingNumber("TN2");
+        doc.setStatus("CREATED");
+        when(cache.getAll(any())).thenReturn(Map.of("TN1", cached));
+        when(repository.findByTrackingNumberIn(List.of("TN2", "NOPE"))).thenReturn(List.of(doc));
+
+        List<TrackingNumberRecords.TrackingLookupData> results =
+                service.findByTrackingNumbers(List.of("TN2", "TN1", "NOPE", "TN2"));
+
+        assertThat(results)
+                .extracting(TrackingNumberRecords.TrackingLookupData::trackingNumber)
+                .containsExactly("TN2", "TN1", "NOPE", "TN2");
+        assertThat(results.get(0).detail().status()).isEqualTo("CREATED");
+        assertThat(results.get(1).detail()).isSameAs(cached);
+        assertThat(results.get(2).detail()).isNull();
+        assertThat(results.get(3).detail()).isSameAs(results.get(0).detail());
+        verify(repository, never()).findByTrackingNumber(any(), anyBoolean());
+        verify(cache).putAll(List.of(results.get(0).detail()));
+    }
+
+    @Test
+    @DisplayName("findByTrackingNumber(..., true) reads metadata from MongoDB, bypassing the cache")
+    void findByTrackingNumber_withMetadata_skipsCache() {
+        TrackingNumberDocument doc = new TrackingNumberDocument();
+        doc.setTrackingNumber("TRACK123");
+        doc.setStatus("CREATED");
+        doc.setMetadata(Map.of("fragile", true));
+        when(repository.findByTrackingNumber("TRACK123", true)).thenReturn(Optional.of(doc));
+
+        assertThat(service.findByTrackingNumber("TRACK123", true).metadata()).containsEntry("fragile", true);
+        verifyNoInteractions(cache);
+    }
+
+    @Test
+    @DisplayName("findByTrackingNumber(..., false) never exposes metadata, even of a pending document")
+    void findByTrackingNumber_withoutMetadata_dropsIt() {
+        TrackingNumberDocument doc = new TrackingNumberDocument();
+        doc.setTrackingNumber("TRACK123");
+        doc.setStatus("CREATED");
+        doc.setMetadata(Map.of("fragile", true));
+        when(writer.findPending("TRACK123")).thenReturn(Optional.of(doc));
+
+        assertThat(service.findByTrackingNumber("TRACK123", false).metadata()).isNull();
     }
 
     @Test
     @DisplayName("findByTrackingNumber(...) throws ResourceNotFoundException when absent")
     void findByTrackingNumber_notFound_throws() {
-        when(repository.findByTrackingNumber("MISSING"))
+        when(repository.findByTrackingNumber("MISSING", false))
                 .thenReturn(Optional.empty());
 
         assertThrows(ResourceNotFoundException.class,
-                () -> service.findByTrackingNumber("MISSING"));
+                () -> service.findByTrackingNumber("MISSING", false));
+    }
+
+    @Test
+    @DisplayName("findByTrackingNumber(...) answers 404 without a query when the Bloom filter rules the number out")
+    void findByTrackingNumber_filteredOut_skipsRepository() {
+        when(filter.isDefinitelyAbsent("NEVER1SSUED")).thenReturn(true);
+
+        assertThrows(ResourceNotFoundException.class,
+                () -> service.findByTrackingNumber("NEVER1SSUED", false));
+        verify(repository, never()).findByTrackingNumber(any(), anyBoolean());
     }
 
     @Test
-    @DisplayName("updateStatus(...) successfully updates status on valid transition")
-    void updateStatus_validTransition_savesAndReturns() {
-        // existing doc in CREATED
+    @DisplayName("findByTrackingNumber(...) rejects a number that cannot exist before the cache or MongoDB")
+    void findByTrackingNumber_impossible_skipsCacheAndRepository() {
+        when(validator.isImpossible("ZZZZZZZZZZZZ")).thenReturn(true);
+
+        assertThrows(ResourceNotFoundException.class,
+                () -> service.findByTrackingNumber("ZZZZZZZZZZZZ", false));
+        verifyNoInteractions(cache, repository);
+    }
+
+    @Test
+    @DisplayName("findByTrackingNumber(...) answers a mistyped check character with 400 before any lookup")
+    void findByTrackingNumber_mistyped_throwsBadRequest() {
+        when(validator.isMistyped("0000000ABC123A")).thenReturn(true);
+
+        assertThrows(InvalidCheckCharacterException.class,
+                () -> service.findByTrackingNumber("0000000ABC123A", false));
+        verifyNoInteractions(cache, repository);
+    }
+
+    @Test
+    @DisplayName("findByTrackingNumbers(...) leaves numbers the Bloom filter rules out of the query")
+    void findByTrackingNumbers_filteredOut_leftOutOfQuery() {
+        // one batched check for all misses
+        when(filter.definitelyAbsent(List.of("NOPE", "NOPE2"))).thenReturn(Set.of("NOPE", "NOPE2"));
+
+        List<TrackingNumberRecords.TrackingLookupData> results =
+                service.findByTrackingNumbers(List.of("NOPE", "NOPE2"));
+
+        assertThat(results).allSatisfy(result -> assertThat(result.detail()).isNull());
+        verify(repository, never()).findByTrackingNumberIn(any());
+    }
+
+    @Test
+    @DisplayName("updateStatus(...) applies a valid transition with a single conditional update")
+    void updateStatus_validTransition_updatesAndReturns() {
+        // before-image: doc in CREATED
         TrackingNumberDocument doc = new TrackingNumberDocument(
                 "id", "TRACK123", "US", "CA",
                 new BigDecimal("2.0"), customerId,
@@ -136,7 +306,7 @@ class DefaultTrackingNumberServiceTest {
                 null
         );
         doc.setGeneratedAt(Instant.parse("2025-06-26T08:01:00Z"));
-        when(repository.findByTrackingNumber("TRACK123"))
+        when(writer.updateStatusIfIn(eq("TRACK123"), eq("PICKED_UP"), anyCollection(), any()))
                 .thenReturn(Optional.of(doc));
 
         TrackingNumberRecords.TrackingDetailData updated =
@@ -144,37 +314,191 @@ class DefaultTrackingNumberServiceTest {
 
         // Assert DTO
         assertThat(updated.status()).isEqualTo("PICKED_UP");
+        assertThat(updated.customerName()).isEqualTo("Acme Corp");
 
-        // Verify save called with updated doc
-        assertThat(doc.getStatus()).isEqualTo("PICKED_UP");
-        verify(repository).save(doc);
+        // only the legal predecessors of PICKED_UP may be overwritten, and no read-modify-write
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Collection<String>> predecessors = ArgumentCaptor.forClass(Collection.class);
+        verify(writer).updateStatusIfIn(eq("TRACK123"), eq("PICKED_UP"), predecessors.capture(), any());
+        assertThat(predecessors.getValue()).containsExactly("CREATED");
+        verify(repository, never()).findByTrackingNumber(any(), anyBoolean());
+        verify(repository, never()).save(any());
+        verify(cache).evict("TRACK123");
     }
 
     @Test
     @DisplayName("updateStatus(...) throws InvalidStatusTransitionException on invalid jump")
     void updateStatus_invalidTransition_throws() {
-        // existing doc in CREATED
+        // before-image: doc in CREATED, so the conditional update did not apply
         TrackingNumberDocument doc = new TrackingNumberDocument();
         doc.setTrackingNumber("TRACK123");
         doc.setStatus("CREATED");
-        when(repository.findByTrackingNumber("TRACK123"))
+        when(writer.updateStatusIfIn(eq("TRACK123"), eq("DELIVERED"), anyCollection(), any()))
                 .thenReturn(Optional.of(doc));
 
         assertThatThrownBy(() ->
                 service.updateStatus("TRACK123", "DELIVERED")
         ).isInstanceOf(InvalidStatusTransitionException.class);
-        // repository.save should not be called
-        verify(repository, never()).save(any());
+        // cached detail is still valid
+        verify(cache, never()).evict(any());
     }
 
     @Test
     @DisplayName("updateStatus(...) throws ResourceNotFoundException when absent")
     void updateStatus_notFound_throws() {
-        when(repository.findByTrackingNumber("NOPE"))
+        when(writer.updateStatusIfIn(eq("NOPE"), eq("PICKED_UP"), anyCollection(), any()))
                 .thenReturn(Optional.empty());
 
         assertThrows(ResourceNotFoundException.class,
                 () -> service.updateStatus("NOPE", "PICKED_UP"));
     }
 
-}
\ No newline at end of file
+    @Test
+    @DisplayName("applyScanEvents(...) collapses a number's events into one transition in event-time order")
+    void applyScanEvents_collapsesPerTrackingNumber() {
+        Instant t0 = Instant.parse("2025-06-26T08:00:00Z");
+        when(repository.updateStatusesIfIn(anyList(), any()))
+                .thenReturn(new TrackingNumberRepositoryCustom.BulkStatusResult(Set.of(), Map.of()));
+
+        List<TrackingNumberRecords.ScanEventResult> results = service.applyScanEvents(List.of(
+                // out of order on purpose
+                new TrackingNumberRecords.ScanEventCommand("TN1", "IN_TRANSIT", t0.plusSeconds(60)),
+                new TrackingNumberRecords.ScanEventCommand("TN1", "PICKED_UP", t0),
+                new TrackingNumberRecords.ScanEventCommand("TN1", "DELIVERED", t0.plusSeconds(120)),
+                new TrackingNumberRecords.ScanEventCommand("TN2", "PICKED_UP", t0),
+                new TrackingNumberRecords.ScanEventCommand("", "PICKED_UP", t0),
+                new TrackingNumberRecords.ScanEventCommand("TN3", "LOST", t0)
+        ));
+
+        assertThat(results)
+                .extracting(TrackingNumberRecords.ScanEventResult::outcome)
+                .containsExactly(
+                        ScanEventOutcome.APPLIED,
+                        ScanEventOutcome.APPLIED,
+                        // IN_TRANSIT cannot go straight to DELIVERED
+                        ScanEventOutcome.INVALID_TRANSITION,
+                        ScanEventOutcome.APPLIED,
+                        ScanEventOutcome.INVALID,
+                        ScanEventOutcome.INVALID);
+        assertThat(results.get(2).message()).isEqualTo("Cannot transition status from IN_TRANSIT to DELIVERED");
+
+        // one bulk write, one transition per tracking number
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<TrackingNumberRepositoryCustom.StatusTransition>> captor = ArgumentCaptor.forClass(List.class);
+        verify(repository).updateStatusesIfIn(captor.capture(), any());
+        assertThat(captor.getValue()).containsExactly(
+                new TrackingNumberRepositoryCustom.StatusTransition("TN1", "IN_TRANSIT", List.of("CREATED")),
+                new TrackingNumberRepositoryCustom.StatusTransition("TN2", "PICKED_UP", List.of("CREATED")));
+        verify(cache).evictAll(List.of("TN1", "TN2"));
+    }
+
+    @Test
+    @DisplayName("applyScanEvents(...) reports missing numbers and conflicting current statuses per event")
+    void applyScanEvents_notFoundAndRejected() {
+        Instant t0 = Instant.parse("2025-06-26T08:00:00Z");
+        when(repository.updateStatusesIfIn(anyList(), any()))
+                .thenReturn(new TrackingNumberRepositoryCustom.BulkStatusResult(
+                        Set.of("NOPE"), Map.of("TN1", "DELIVERED")));
+
+        List<TrackingNumberRecords.ScanEventResult> results = service.applyScanEvents(List.of(
+                new TrackingNumberRecords.ScanEventCommand("NOPE", "PICKED_UP", t0),
+                new TrackingNumberRecords.ScanEventCommand("TN1", "PICKED_UP", t0)
+        ));
+
+        assertThat(results.get(0).outcome()).isEqualTo(ScanEventOutcome.NOT_FOUND);
+        assertThat(results.get(1).outcome()).isEqualTo(ScanEventOutcome.INVALID_TRANSITION);
+        assertThat(results.get(1).message()).isEqualTo("Cannot transition status from DELIVERED to PICKED_UP");
+        // a rejected write may still race with one that was applied, so nothing sent is left cached
+        verify(cache).evictAll(List.of("NOPE", "TN1"));
+    }
+
+    @Test
+    @DisplayName("applyScanEvents(...) sends numbers still in the write-behind queue through the writer")
+    void applyScanEvents_pendingGoesThroughWriter() {
+        Instant t0 = Instant.parse("2025-06-26T08:00:00Z");
+        TrackingNumberDocument doc = new TrackingNumberDocument();
+        doc.setTrackingNumber("TN1");
+        doc.setStatus("CREATED");
+        when(writer.findPending("TN1")).thenReturn(Optional.of(doc));
+        when(writer.updateStatusIfIn(eq("TN1"), eq("PICKED_UP"), anyCollection(), any()))
+                .thenReturn(Optional.of(doc));
+        when(repository.updateStatusesIfIn(anyList(), any()))
+                .thenReturn(new TrackingNumberRepositoryCustom.BulkStatusResult(Set.of(), Map.of()));
+
+        List<TrackingNumberRecords.ScanEventResult> results = service.applyScanEvents(List.of(
+                new TrackingNumberRecords.ScanEventCommand("TN1", "PICKED_UP", t0)
+        ));
+
+        assertThat(results.getFirst().outcome()).isEqualTo(ScanEventOutcome.APPLIED);
+        verify(repository).updateStatusesIfIn(eq(List.of()), any());
+        verify(cache).evictAll(List.of("TN1"));
+    }
+
+    @Test
+    @DisplayName("exportByCustomer(...) resumes after the cursor and hands out a cursor per row")
+    void exportByCustomer_resumesAfterCursor() {
+        Instant from = Instant.parse("2025-06-01T00:00:00Z");
+        Instant to = Instant.parse("2025-07-01T00:00:00Z");
+        Instant generatedAt = Instant.parse("2025-06-26T08:00:00Z");
+        TrackingNumberDocument doc = new TrackingNumberDocument();
+        doc.setTrackingNumber("TN2");
+        doc.setCustomerId(customerId);
+        doc.setGeneratedAt(generatedAt);
+        doc.setStatus("CREATED");
+        when(repository.streamByCustomer(customerId, from, to, generatedAt, "TN1")).thenReturn(Stream.of(doc));
+
+        String after = new TrackingCursor(generatedAt, "TN1").encode();
+        List<TrackingNumberRecords.TrackingExportData> rows;
+        try (Stream<TrackingNumberRecords.TrackingExportData> stream = service.exportByCustomer(customerId, from, to, after)) {
+            rows = stream.toList();
+        }
+
+        assertThat(rows).hasSize(1);
+        assertThat(rows.getFirst().detail().trackingNumber()).isEqualTo("TN2");
+        assertThat(TrackingCursor.decode(rows.getFirst().cursor())).isEqualTo(new TrackingCursor(generatedAt, "TN2"));
+    }
+
+    @Test
+    @DisplayName("exportByCustomer(...) rejects an empty range and a forged cursor before touching the database")
+    void exportByCustomer_invalidInput() {
+        Instant from = Instant.parse("2025-06-01T00:00:00Z");
+
+        assertThatThrownBy(() -> service.exportByCustomer(customerId, from, from, null))
+                .isInstanceOf(InvalidTimeRangeException.class);
+        assertThatThrownBy(() -> service.exportByCustomer(customerId, from, from.plusSeconds(60), "not a cursor"))
+                .isInstanceOf(InvalidCursorException.class);
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    @DisplayName("listByCustomer(...) reads one extra row to decide on a next cursor and continues from it")
+    void listByCustomer_pagesWithCursor() {
+        Instant t0 = Instant.parse("2025-06-26T08:00:00Z");
+        List<TrackingNumberDocument> docs = List.of(listed("TN3", t0.plusSeconds(2)), listed("TN2", t0.plusSeconds(1)), listed("TN1", t0));
+        when(repository.findPageByCustomer(customerId, "CREATED", null, null, 3)).thenReturn(docs);
+
+        TrackingNumberRecords.TrackingPageData first = service.listByCustomer(customerId, "CREATED", null, 2);
+
+        assertThat(first.items()).extracting(TrackingNumberRecords.TrackingDetailData::trackingNumber)
+                .containsExactly("TN3", "TN2");
+        assertThat(first.nextCursor()).isNotNull();
+
+        when(repository.findPageByCustomer(customerId, "CREATED", t0.plusSeconds(1), "TN2", 3))
+                .thenReturn(List.of(docs.getLast()));
+
+        TrackingNumberRecords.TrackingPageData second = service.listByCustomer(customerId, "CREATED", first.nextCursor(), 2);
+
+        assertThat(second.items()).extracting(TrackingNumberRecords.TrackingDetailData::trackingNumber)
+                .containsExactly("TN1");
+        assertThat(second.nextCursor()).isNull();
+    }
+
+    private TrackingNumberDocument listed(String trackingNumber, Instant generatedAt) {
+        TrackingNumberDocument doc = new TrackingNumberDocument();
+        doc.setTrackingNumber(trackingNumber);
+        doc.setCustomerId(customerId);
+        doc.setGeneratedAt(generatedAt);
+        doc.setStatus("CREATED");
+        return doc;
+    }
+}
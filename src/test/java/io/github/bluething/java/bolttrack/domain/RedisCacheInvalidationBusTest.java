@@ -0,0 +1,153 @@
+package io.github.bluething.java.bolttrack.domain;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class RedisCacheInvalidationBusTest {
+    @Mock
+    StringRedisTemplate redis;
+
+    @Mock
+    ValueOperations<String, String> values;
+
+    @Mock
+    RedisCacheInvalidationBus.Listener listener;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void messageEvictsEveryTrackingNumberInIt() {
+        RedisCacheInvalidationBus bus = bus(Duration.ofMinutes(1));
+
+        bus.onMessage(message(1, "TN1,TN2"), null);
+
+        verify(listener).evict("TN1");
+        verify(listener).evict("TN2");
+        assertThat(registry.get("tracking.cache.invalidation.lag").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void messageWithUnparsableVersionOrTimestampIsIgnored() {
+        RedisCacheInvalidationBus bus = bus(Duration.ofMinutes(1));
+
+        bus.onMessage(raw("x:y:TN1"), null);
+        bus.onMessage(raw("1:y:TN1"), null);
+        bus.onMessage(raw("TN1"), null);
+
+        verify(listener, never()).evict("TN1");
+        assertThat(registry.get("tracking.cache.invalidation.lag").timer().count()).isZero();
+    }
+
+    @Test
+    void versionArrivingOutOfOrderClosesItsGap() {
+        when(redis.opsForValue()).thenReturn(values);
+        when(values.get("tracking:cache:version")).thenReturn("2");
+        // every gap counts as expired on the first check
+        RedisCacheInvalidationBus bus = bus(Duration.ZERO);
+
+        bus.onMessage(message(2, "TN2"), null);
+        bus.onMessage(message(1, "TN1"), null);
+        bus.check();
+
+        verify(listener, never()).evictAll();
+        assertThat(lost()).isZero();
+    }
+
+    @Test
+    void versionMissingForACheckIntervalClearsTheLocalCache() {
+        when(redis.opsForValue()).thenReturn(values);
+        when(values.get("tracking:cache:version")).thenReturn("2");
+        RedisCacheInvalidationBus bus = bus(Duration.ZERO);
+
+        bus.onMessage(message(2, "TN2"), null);
+        bus.check();
+
+        verify(listener).evictAll();
+        assertThat(lost()).isEqualTo(1.0);
+    }
+
+    @Test
+    void versionMissingForLessThanACheckIntervalIsWaitedFor() {
+        when(redis.opsForValue()).thenReturn(values);
+        when(values.get("tracking:cache:version")).thenReturn("2");
+        RedisCacheInvalidationBus bus = bus(Duration.ofMinutes(1));
+
+        bus.onMessage(message(2, "TN2"), null);
+        bus.check();
+
+        verify(listener, never()).evictAll();
+    }
+
+    @Test
+    void counterAheadOfTheLastMessageMeansTheTailOfABurstWasLost() {
+        when(redis.opsForValue()).thenReturn(values);
+        when(values.get("tracking:cache:version")).thenReturn("3");
+        RedisCacheInvalidationBus bus = bus(Duration.ZERO);
+
+        bus.onMessage(message(1, "TN1"), null);
+        bus.check();
+
+        verify(listener).evictAll();
+        assertThat(lost()).isEqualTo(1.0);
+    }
+
+    @Test
+    void gapTooLargeToTrackClearsRightAway() {
+        RedisCacheInvalidationBus bus = bus(Duration.ofMinutes(1));
+
+        bus.onMessage(message(20_000, "TN1"), null);
+
+        verify(listener).evictAll();
+        assertThat(lost()).isEqualTo(1.0);
+    }
+
+    @Test
+    void unreadableCounterOnlyChecksWhatIsAlreadyKnown() {
+        when(redis.opsForValue()).thenReturn(values);
+        when(values.get("tracking:cache:version")).thenThrow(new RedisConnectionFailureException("connection reset"));
+        RedisCacheInvalidationBus bus = bus(Duration.ZERO);
+
+        bus.onMessage(message(1, "TN1"), null);
+        bus.check();
+
+        verify(listener, never()).evictAll();
+    }
+
+    private RedisCacheInvalidationBus bus(Duration checkInterval) {
+        RedisCacheInvalidationBus bus = new RedisCacheInvalidationBus(redis,
+                new TrackingCacheProperties(true, 1_000, Duration.ofMinutes(5), Duration.ofMinutes(5),
+                        checkInterval, Duration.ofSeconds(5)),
+                registry);
+        bus.register(listener);
+        return bus;
+    }
+
+    private double lost() {
+        return registry.get("tracking.cache.invalidation.lost").counter().count();
+    }
+
+    private static DefaultMessage message(long version, String trackingNumbers) {
+        return raw(version + ":" + System.currentTimeMillis() + ":" + trackingNumbers);
+    }
+
+    private static DefaultMessage raw(String body) {
+        return new DefaultMessage("tracking:cache:invalidate".getBytes(StandardCharsets.UTF_8),
+                body.getBytes(StandardCharsets.UTF_8));
+    }
+}
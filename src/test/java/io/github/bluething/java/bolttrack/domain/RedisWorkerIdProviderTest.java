@@ -0,0 +1,129 @@
+package io.github.bluething.java.bolttrack.domain;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class RedisWorkerIdProviderTest {
+    @Mock
+    StringRedisTemplate redis;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    /** Answer of the claim script, which is the only one given all 1024 keys. */
+    private final AtomicReference<Object> claimed = new AtomicReference<>(42L);
+    /** Answer of the extend and release scripts, or the exception they throw. */
+    private final AtomicReference<Object> extended = new AtomicReference<>(1L);
+    private RedisWorkerIdProvider provider;
+
+    @AfterEach
+    void tearDown() {
+        if (provider != null && provider.isRunning()) {
+            provider.stop();
+        }
+    }
+
+    private void startProvider() {
+        when(redis.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenAnswer(invocation -> {
+            List<String> keys = invocation.getArgument(1);
+            Object answer = keys.size() > 1 ? claimed.get() : extended.get();
+            if (answer instanceof RuntimeException ex) {
+                throw ex;
+            }
+            return answer;
+        });
+        provider = new RedisWorkerIdProvider(redis, registry);
+        provider.start();
+    }
+
+    @Test
+    void startClaimsAWorkerIdInOneScriptCall() {
+        startProvider();
+
+        assertThat(provider.getWorkerId()).isEqualTo(42);
+        assertThat(provider.lease().isValid()).isTrue();
+        // every candidate key is declared to the script
+        verify(redis).execute(any(RedisScript.class),
+                argThat((List<String> keys) -> keys.size() == 1024 && keys.get(42).equals("tracking:worker:42")),
+                any(Object[].class));
+        assertThat(registry.get("tracking.worker.acquire").timer().count()).isEqualTo(1);
+        assertThat(registry.get("tracking.worker.lease.valid").gauge().value()).isEqualTo(1.0);
+    }
+
+    @Test
+    void startFailsWhenEveryWorkerIdIsTaken() {
+        claimed.set(-1L);
+
+        assertThatThrownBy(this::startProvider).isInstanceOf(IllegalStateException.class);
+        assertThat(provider.isRunning()).isFalse();
+        assertThat(provider.lease().isValid()).isFalse();
+    }
+
+    @Test
+    void renewExtendsTheLeaseWhileItIsStillOurs() {
+        startProvider();
+        WorkerIdProvider.Lease before = provider.lease();
+
+        provider.renew();
+
+        assertThat(provider.getWorkerId()).isEqualTo(42);
+        assertThat(provider.lease().validUntilNanos()).isGreaterThanOrEqualTo(before.validUntilNanos());
+        assertThat(registry.get("tracking.worker.renew").timer().count()).isEqualTo(1);
+        assertThat(registry.get("tracking.worker.lease.lost").counter().count()).isZero();
+    }
+
+    @Test
+    void renewClaimsANewWorkerIdOnceTheLeaseWasTakenOver() {
+        startProvider();
+        extended.set(0L);
+        claimed.set(7L);
+
+        provider.renew();
+
+        assertThat(provider.getWorkerId()).isEqualTo(7);
+        assertThat(provider.lease().isValid()).isTrue();
+        assertThat(registry.get("tracking.worker.lease.lost").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void renewFailureKeepsTheLeaseUntilItsDeadline() {
+        startProvider();
+        WorkerIdProvider.Lease before = provider.lease();
+        extended.set(new RedisConnectionFailureException("connection reset"));
+
+        provider.renew();
+
+        assertThat(provider.lease()).isSameAs(before);
+        assertThat(provider.lease().isValid()).isTrue();
+    }
+
+    @Test
+    void stopReleasesTheLease() {
+        startProvider();
+
+        provider.stop();
+
+        assertThat(provider.isRunning()).isFalse();
+        assertThat(provider.lease().isValid()).isFalse();
+        verify(redis).execute(any(RedisScript.class),
+                argThat((List<String> keys) -> keys.equals(List.of("tracking:worker:42"))),
+                any(Object[].class));
+    }
+}
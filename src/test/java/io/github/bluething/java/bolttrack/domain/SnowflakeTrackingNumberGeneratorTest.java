@@ -1,11 +1,17 @@
 package io.github.bluething.java.bolttrack.domain;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.regex.Pattern;
 import java.util.stream.IntStream;
 
@@ -74,4 +80,173 @@ class SnowflakeTrackingNumberGeneratorTest {
                 "Expected trackingNumbers IDs across virtual threads to be unique");
     }
 
-}
\ No newline at end of file
+    @Test
+    void generateBatchReservesUniqueNumbersAcrossMilliseconds() {
+        var gen = new SnowflakeTrackingNumberGenerator(() -> 7);
+        // more than one millisecond worth of sequence values (4096)
+        List<String> batch = gen.generateTrackingNumbers(10_000);
+
+        assertEquals(10_000, batch.size());
+        assertEquals(10_000, new HashSet<>(batch).size(),
+                "Expected batch tracking numbers to be unique");
+        batch.forEach(tn -> assertTrue(TN_PATTERN.matcher(tn).matches(),
+                () -> "Generated tracking number has invalid format: " + tn));
+    }
+
+    @Test
+    void generateBatchInterleavedWithSingleCallsStaysUnique() throws InterruptedException {
+        var gen = new SnowflakeTrackingNumberGenerator(() -> 9);
+        Set<String> trackingNumbers = ConcurrentHashMap.newKeySet();
+
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            var tasks = IntStream.range(0, 200)
+                    .<Callable<Void>>mapToObj(i -> () -> {
+                        if (i % 2 == 0) {
+                            trackingNumbers.addAll(gen.generateTrackingNumbers(500));
+                        } else {
+                            for (int j = 0; j < 500; j++) {
+                                trackingNumbers.add(gen.generateTrackingNumber());
+                            }
+                        }
+                        return null;
+                    })
+                    .toList();
+            executor.invokeAll(tasks);
+        }
+
+        assertEquals(200 * 500, trackingNumbers.size());
+    }
+
+    @Test
+    void constructorRejectsStripesThatAreNotAPowerOfTwo() {
+        IllegalArgumentException ex = assertThrows(
+                IllegalArgumentException.class,
+                () -> new SnowflakeTrackingNumberGenerator(() -> 1,
+                        new TrackingGeneratorProperties(3, Duration.ofMillis(5), false), new SimpleMeterRegistry())
+        );
+        assertTrue(ex.getMessage().contains("stripes"));
+    }
+
+    @Test
+    void stripedGenerateConcurrentlyStaysUniqueAndExportsContention() throws InterruptedException {
+        var registry = new SimpleMeterRegistry();
+        var gen = new SnowflakeTrackingNumberGenerator(() -> 3,
+                new TrackingGeneratorProperties(8, Duration.ofMillis(5), false), registry);
+        Set<String> trackingNumbers = ConcurrentHashMap.newKeySet();
+
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            var tasks = IntStream.range(0, 2_000)
+                    .<Callable<Void>>mapToObj(i -> () -> {
+                        if (i % 4 == 0) {
+                            trackingNumbers.addAll(gen.generateTrackingNumbers(300));
+                        } else {
+                            for (int j = 0; j < 300; j++) {
+                                trackingNumbers.add(gen.generateTrackingNumber());
+                            }
+                        }
+                        return null;
+                    })
+                    .toList();
+            executor.invokeAll(tasks);
+        }
+
+        assertEquals(2_000 * 300, trackingNumbers.size(),
+                "Expected striped tracking numbers to be unique");
+        trackingNumbers.forEach(tn -> assertEquals(3, TrackingNumberCodec.decodeId(tn).workerId()));
+        assertEquals(8, registry.find("tracking.number.generate.contention").counters().size());
+    }
+
+    @Test
+    void smallClockRegressionKeepsIssuingFromLastTimestamp() {
+        var registry = new SimpleMeterRegistry();
+        AtomicLong now = new AtomicLong(System.currentTimeMillis());
+        var gen = new SnowflakeTrackingNumberGenerator(() -> 1,
+                new TrackingGeneratorProperties(1, Duration.ofMillis(5), false), registry, now::get);
+
+        SnowflakeId before = TrackingNumberCodec.decodeId(gen.generateTrackingNumber());
+        now.addAndGet(-3);   // NTP steps the clock back 3 ms
+        SnowflakeId after = TrackingNumberCodec.decodeId(gen.generateTrackingNumber());
+
+        assertEquals(before.timestampMs(), after.timestampMs());
+        assertEquals(before.sequence() + 1, after.sequence());
+        assertEquals(1, registry.get("tracking.number.clock.drift").summary().count());
+        assertEquals(3.0, registry.get("tracking.number.clock.borrowed").gauge().value());
+    }
+
+    @Test
+    void clockRegressionBeyondThresholdFailsFast() {
+        var registry = new SimpleMeterRegistry();
+        AtomicLong now = new AtomicLong(System.currentTimeMillis());
+        var gen = new SnowflakeTrackingNumberGenerator(() -> 1,
+                new TrackingGeneratorProperties(1, Duration.ofMillis(5), false), registry, now::get);
+
+        gen.generateTrackingNumber();
+        now.addAndGet(-6);
+
+        IllegalStateException ex = assertThrows(IllegalStateException.class, gen::generateTrackingNumber);
+        assertTrue(ex.getMessage().contains("Clock moved backwards"));
+        assertEquals(1.0, registry.get("tracking.number.clock.rejected").counter().count());
+    }
+
+    @Test
+    void checkCharacterModeIssuesFixedLengthNumbersThatDecode() {
+        var gen = new SnowflakeTrackingNumberGenerator(() -> 7,
+                new TrackingGeneratorProperties(1, Duration.ofMillis(5), true), new SimpleMeterRegistry());
+
+        for (String trackingNumber : gen.generateTrackingNumbers(100)) {
+            assertEquals(TrackingNumberCodec.CHECKED_LENGTH, trackingNumber.length());
+            assertTrue(TrackingNumberCodec.checkCharacterMatches(trackingNumber));
+            assertEquals(7, TrackingNumberCodec.decodeId(trackingNumber).workerId());
+        }
+    }
+
+    @Test
+    void sequenceOverflowBorrowsNextMillisecondInsteadOfSpinning() {
+        // frozen clock: without borrowing the second half would spin forever
+        long frozen = System.currentTimeMillis();
+        var gen = new SnowflakeTrackingNumberGenerator(() -> 1,
+                new TrackingGeneratorProperties(1, Duration.ofMillis(5), false), new SimpleMeterRegistry(), () -> frozen);
+
+        List<String> batch = gen.generateTrackingNumbers(2 * 4096);
+        String single = gen.generateTrackingNumber();
+
+        assertEquals(2 * 4096, new HashSet<>(batch).size());
+        long firstMs = TrackingNumberCodec.decodeId(batch.get(0)).timestampMs();
+        assertEquals(firstMs + 1, TrackingNumberCodec.decodeId(batch.get(2 * 4096 - 1)).timestampMs());
+        assertEquals(firstMs + 2, TrackingNumberCodec.decodeId(single).timestampMs());
+    }
+
+    @Test
+    void lostWorkerIdLeaseStopsGenerationInsteadOfDuplicating() {
+        var registry = new SimpleMeterRegistry();
+        AtomicReference<WorkerIdProvider.Lease> lease =
+                new AtomicReference<>(WorkerIdProvider.Lease.forever(3));
+        WorkerIdProvider provider = new WorkerIdProvider() {
+            @Override
+            public int getWorkerId() {
+                return lease.get().workerId();
+            }
+
+            @Override
+            public Lease lease() {
+                return lease.get();
+            }
+        };
+        var gen = new SnowflakeTrackingNumberGenerator(provider,
+                new TrackingGeneratorProperties(1, Duration.ofMillis(5), false), registry);
+
+        assertEquals(3, TrackingNumberCodec.decodeId(gen.generateTrackingNumber()).workerId());
+        // deadline passed without a renewal, e.g. after a long pause or a Redis outage
+        lease.set(WorkerIdProvider.Lease.until(3, System.nanoTime() - 1));
+
+        IllegalStateException ex = assertThrows(IllegalStateException.class, gen::generateTrackingNumber);
+        assertTrue(ex.getMessage().contains("lease"));
+        assertThrows(IllegalStateException.class, () -> gen.generateTrackingNumbers(10));
+        assertEquals(2.0, registry.get("tracking.number.lease.rejected").counter().count());
+
+        // a newly claimed id is picked up without restarting the generator
+        lease.set(WorkerIdProvider.Lease.forever(9));
+        assertEquals(9, TrackingNumberCodec.decodeId(gen.generateTrackingNumber()).workerId());
+    }
+
+}
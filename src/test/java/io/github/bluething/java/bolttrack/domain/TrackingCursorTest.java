@@ -0,0 +1,37 @@
+package io.github.bluething.java.bolttrack.domain;
+
+import io.github.bluething.java.bolttrack.exception.InvalidCursorException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TrackingCursorTest {
+
+    @Test
+    @DisplayName("encode/decode round-trips and is URL-safe")
+    void roundTrip() {
+        TrackingCursor cursor = new TrackingCursor(Instant.parse("2025-06-26T08:00:00.123Z"), "0ABCDEFGHIJKL");
+
+        String token = cursor.encode();
+
+        assertThat(token).matches("[A-Za-z0-9_-]+");
+        assertThat(TrackingCursor.decode(token)).isEqualTo(cursor);
+    }
+
+    @Test
+    @DisplayName("decode rejects tokens encode never produces")
+    void decode_rejectsGarbage() {
+        String noSeparator = Base64.getUrlEncoder().encodeToString("12345".getBytes(StandardCharsets.UTF_8));
+        String notANumber = Base64.getUrlEncoder().encodeToString("abc:TN1".getBytes(StandardCharsets.UTF_8));
+
+        assertThatThrownBy(() -> TrackingCursor.decode("%%%")).isInstanceOf(InvalidCursorException.class);
+        assertThatThrownBy(() -> TrackingCursor.decode(noSeparator)).isInstanceOf(InvalidCursorException.class);
+        assertThatThrownBy(() -> TrackingCursor.decode(notANumber)).isInstanceOf(InvalidCursorException.class);
+    }
+}
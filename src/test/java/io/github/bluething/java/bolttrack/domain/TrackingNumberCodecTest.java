@@ -0,0 +1,73 @@
+package io.github.bluething.java.bolttrack.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrackingNumberCodecTest {
+
+    @Test
+    void encodeMatchesUppercasedLongToString() {
+        long[] samples = {0L, 35L, 36L, 1L << 22, Long.MAX_VALUE};
+        for (long rawId : samples) {
+            assertEquals(Long.toString(rawId, 36).toUpperCase(), TrackingNumberCodec.encode(rawId));
+        }
+        for (int i = 0; i < 10_000; i++) {
+            long rawId = ThreadLocalRandom.current().nextLong(Long.MAX_VALUE);
+            assertEquals(Long.toString(rawId, 36).toUpperCase(), TrackingNumberCodec.encode(rawId));
+        }
+    }
+
+    @Test
+    void decodeRoundTripsEncode() {
+        for (int i = 0; i < 10_000; i++) {
+            long rawId = ThreadLocalRandom.current().nextLong(Long.MAX_VALUE);
+            assertEquals(rawId, TrackingNumberCodec.decode(TrackingNumberCodec.encode(rawId)));
+        }
+        assertEquals(Long.MAX_VALUE, TrackingNumberCodec.decode("1Y2P0IJ32E8E7"));
+    }
+
+    @Test
+    void decodeRejectsMalformedInput() {
+        assertThrows(IllegalArgumentException.class, () -> TrackingNumberCodec.decode(""));
+        assertThrows(IllegalArgumentException.class, () -> TrackingNumberCodec.decode("abc"));
+        assertThrows(IllegalArgumentException.class, () -> TrackingNumberCodec.decode("AB-C"));
+        // one past Long.MAX_VALUE and longer than 13 chars
+        assertThrows(IllegalArgumentException.class, () -> TrackingNumberCodec.decode("1Y2P0IJ32E8E8"));
+        assertThrows(IllegalArgumentException.class, () -> TrackingNumberCodec.decode("ZZZZZZZZZZZZZZ"));
+    }
+
+    @Test
+    void encodeCheckedRoundTripsAndCatchesSingleCharacterTypos() {
+        for (int i = 0; i < 1_000; i++) {
+            long rawId = ThreadLocalRandom.current().nextLong(Long.MAX_VALUE);
+            String trackingNumber = TrackingNumberCodec.encodeChecked(rawId);
+            assertEquals(TrackingNumberCodec.CHECKED_LENGTH, trackingNumber.length());
+            assertTrue(TrackingNumberCodec.checkCharacterMatches(trackingNumber));
+            assertEquals(rawId, TrackingNumberCodec.decode(trackingNumber));
+
+            char[] typo = trackingNumber.toCharArray();
+            int at = ThreadLocalRandom.current().nextInt(typo.length);
+            typo[at] = typo[at] == '7' ? 'X' : '7';
+            assertFalse(TrackingNumberCodec.checkCharacterMatches(new String(typo)));
+            assertThrows(IllegalArgumentException.class, () -> TrackingNumberCodec.decode(new String(typo)));
+        }
+        // numbers without a check character have nothing to mismatch
+        assertTrue(TrackingNumberCodec.checkCharacterMatches("ABC123"));
+    }
+
+    @Test
+    void decodeIdRecoversGeneratorFields() {
+        var gen = new SnowflakeTrackingNumberGenerator(() -> 42);
+        Instant before = Instant.now();
+        SnowflakeId id = TrackingNumberCodec.decodeId(gen.generateTrackingNumber());
+
+        assertEquals(42, id.workerId());
+        assertEquals(0, id.sequence());
+        assertFalse(id.generatedAt().isBefore(before.minusMillis(1)));
+        assertFalse(id.generatedAt().isAfter(Instant.now()));
+    }
+}
@@ -0,0 +1,57 @@
+package io.github.bluething.java.bolttrack.domain;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TrackingNumberValidatorTest {
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final TrackingNumberValidator validator = new TrackingNumberValidator(
+            new TrackingValidationProperties(Duration.ofDays(400), Duration.ofSeconds(5)), registry);
+
+    @Test
+    @DisplayName("a number minted just now is possible")
+    void isImpossible_recent_isFalse() {
+        assertThat(validator.isImpossible(mintedAt(Instant.now().minusSeconds(60)))).isFalse();
+    }
+
+    @Test
+    @DisplayName("numbers that do not decode, lie in the future or have expired are impossible")
+    void isImpossible_rejects() {
+        assertThat(validator.isImpossible("ZZZZZZZZZZZZZ")).isTrue();
+        assertThat(validator.isImpossible("")).isTrue();
+        assertThat(validator.isImpossible(mintedAt(Instant.now().plus(Duration.ofHours(1))))).isTrue();
+        assertThat(validator.isImpossible(mintedAt(Instant.now().minus(Duration.ofDays(401))))).isTrue();
+
+        assertThat(registry.get("tracking.validation.rejected").tag("reason", "malformed").counter().count()).isEqualTo(2);
+        assertThat(registry.get("tracking.validation.rejected").tag("reason", "future").counter().count()).isEqualTo(1);
+        assertThat(registry.get("tracking.validation.rejected").tag("reason", "expired").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("a check character that does not match the body marks the number as mistyped")
+    void isMistyped_wrongCheckCharacter() {
+        String trackingNumber = TrackingNumberCodec.encodeChecked(SnowflakeId.toRawId(1_000, 1, 1));
+        char wrong = trackingNumber.endsWith("0") ? '1' : '0';
+
+        assertThat(validator.isMistyped(trackingNumber)).isFalse();
+        assertThat(validator.isMistyped(trackingNumber.substring(0, 13) + wrong)).isTrue();
+        assertThat(validator.isMistyped("ABC123")).isFalse();
+    }
+
+    @Test
+    @DisplayName("a number minted slightly ahead of this clock is tolerated")
+    void isImpossible_withinClockSkew_isFalse() {
+        assertThat(validator.isImpossible(mintedAt(Instant.now().plusSeconds(2)))).isFalse();
+    }
+
+    private static String mintedAt(Instant instant) {
+        long timestamp = instant.toEpochMilli() - SnowflakeId.DEFAULT_EPOCH;
+        return TrackingNumberCodec.encode(SnowflakeId.toRawId(timestamp, 1023, 4095));
+    }
+}
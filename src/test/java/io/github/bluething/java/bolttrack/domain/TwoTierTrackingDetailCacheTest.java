@@ -0,0 +1,154 @@
+package io.github.bluething.java.bolttrack.domain;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class TwoTierTrackingDetailCacheTest {
+    private static final Duration TOMBSTONE_TTL = Duration.ofSeconds(5);
+
+    @Mock
+    StringRedisTemplate redis;
+
+    @Mock
+    ValueOperations<String, String> values;
+
+    @Mock
+    RedisCacheInvalidationBus bus;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private TwoTierTrackingDetailCache cache;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(redis.opsForValue()).thenReturn(values);
+        cache = new TwoTierTrackingDetailCache(redis, bus, objectMapper,
+                new TrackingCacheProperties(true, 1_000, Duration.ofMinutes(5), Duration.ofMinutes(5),
+                        Duration.ofSeconds(2), TOMBSTONE_TTL),
+                registry);
+    }
+
+    @Test
+    void redisHitIsReadThroughIntoTheLocalTier() throws Exception {
+        when(values.get("tracking:detail:TN1")).thenReturn(objectMapper.writeValueAsString(detail("TN1", "CREATED")));
+
+        assertThat(cache.get("TN1")).map(TrackingNumberRecords.TrackingDetailData::status).contains("CREATED");
+        assertThat(cache.get("TN1")).map(TrackingNumberRecords.TrackingDetailData::status).contains("CREATED");
+
+        // the second read never reached Redis
+        verify(values, times(1)).get("tracking:detail:TN1");
+        assertThat(requests("local", "miss")).isEqualTo(1.0);
+        assertThat(requests("redis", "hit")).isEqualTo(1.0);
+        assertThat(requests("local", "hit")).isEqualTo(1.0);
+    }
+
+    @Test
+    void redisMissOrFailureIsAMiss() {
+        when(values.get("tracking:detail:TN1")).thenReturn(null);
+        when(values.get("tracking:detail:TN2")).thenThrow(new RedisConnectionFailureException("connection reset"));
+
+        assertThat(cache.get("TN1")).isEmpty();
+        assertThat(cache.get("TN2")).isEmpty();
+        assertThat(requests("redis", "miss")).isEqualTo(2.0);
+    }
+
+    @Test
+    void getAllServesLocalHitsAndAsksRedisOnceForTheRest() throws Exception {
+        cache.put(detail("TN1", "CREATED"));
+        when(values.multiGet(List.of("tracking:detail:TN2", "tracking:detail:TN3")))
+                .thenReturn(Arrays.asList(objectMapper.writeValueAsString(detail("TN2", "PICKED_UP")), null));
+
+        Map<String, TrackingNumberRecords.TrackingDetailData> found = cache.getAll(List.of("TN1", "TN2", "TN3"));
+
+        assertThat(found).containsOnlyKeys("TN1", "TN2");
+        assertThat(requests("local", "hit")).isEqualTo(1.0);
+        assertThat(requests("redis", "hit")).isEqualTo(1.0);
+        assertThat(requests("redis", "miss")).isEqualTo(1.0);
+    }
+
+    @Test
+    void evictLeavesATombstoneAndTellsTheOtherInstances() {
+        cache.put(detail("TN1", "CREATED"));
+
+        cache.evict("TN1");
+
+        verify(values).set("tracking:detail:TN1", "evicted", TOMBSTONE_TTL);
+        verify(bus).publish(List.of("TN1"));
+        when(values.get("tracking:detail:TN1")).thenReturn("evicted");
+        assertThat(cache.get("TN1")).isEmpty();
+    }
+
+    @Test
+    void putOfADetailLoadedBeforeTheEvictionIsRefused() {
+        // loaded from MongoDB while the status change was being applied
+        TrackingNumberRecords.TrackingDetailData stale = detail("TN1", "CREATED");
+        cache.evict("TN1");
+
+        cache.put(stale);
+
+        // Redis only takes puts of absent keys, and the tombstone is there
+        verify(values).setIfAbsent(eq("tracking:detail:TN1"), anyString(), eq(Duration.ofMinutes(5)));
+        when(values.get("tracking:detail:TN1")).thenReturn("evicted");
+        assertThat(cache.get("TN1")).isEmpty();
+        assertThat(requests("local", "hit")).isZero();
+    }
+
+    @Test
+    void evictionFromAnotherInstanceAlsoRefusesStalePuts() {
+        ArgumentCaptor<RedisCacheInvalidationBus.Listener> listener =
+                ArgumentCaptor.forClass(RedisCacheInvalidationBus.Listener.class);
+        verify(bus).register(listener.capture());
+        cache.put(detail("TN1", "CREATED"));
+
+        listener.getValue().evict("TN1");
+        cache.put(detail("TN1", "CREATED"));
+
+        assertThat(cache.get("TN1")).isEmpty();
+        assertThat(requests("local", "hit")).isZero();
+    }
+
+    private double requests(String tier, String result) {
+        return registry.get("tracking.cache.requests").tag("tier", tier).tag("result", result).counter().count();
+    }
+
+    private static TrackingNumberRecords.TrackingDetailData detail(String trackingNumber, String status) {
+        return new TrackingNumberRecords.TrackingDetailData(
+                trackingNumber,
+                "US", "CA",
+                new BigDecimal("2.500"),
+                Instant.parse("2025-06-26T08:00:00Z"),
+                UUID.fromString("3fa85f64-5717-4562-b3fc-2c963f66afa6"),
+                "Acme Corp",
+                "acme-corp",
+                Instant.parse("2025-06-26T08:00:01Z"),
+                status,
+                null
+        );
+    }
+}
@@ -0,0 +1,128 @@
+package io.github.bluething.java.bolttrack.persistence;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TrackingJournalTest {
+    private static final int SEGMENT_SIZE = 4096;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void reopenReturnsOnlyUnacknowledgedEntriesInOrder() {
+        TrackingJournal journal = newJournal();
+        assertThat(journal.open()).isEmpty();
+        List<TrackingJournal.Entry> entries = journal.appendAll(TrackingJournal.Op.INSERT, documents(5));
+        TrackingNumberDocument changed = document("TN2");
+        changed.setStatus("PICKED_UP");
+        journal.append(TrackingJournal.Op.STATUS, changed);
+        journal.acknowledge(entries.subList(0, 2));
+
+        // no close(): the process died
+        List<TrackingJournal.Entry> recovered = newJournal().open();
+
+        assertThat(recovered)
+                .extracting(entry -> entry.document().getTrackingNumber())
+                .containsExactly("TN2", "TN3", "TN4", "TN2");
+        assertThat(recovered.getLast().op()).isEqualTo(TrackingJournal.Op.STATUS);
+        assertThat(recovered.getLast().document().getStatus()).isEqualTo("PICKED_UP");
+
+        TrackingNumberDocument replayed = recovered.getFirst().document();
+        assertThat(replayed.getWeight()).isEqualByComparingTo("2.500");
+        assertThat(replayed.getCustomerId()).isEqualTo(UUID.fromString("3fa85f64-5717-4562-b3fc-2c963f66afa6"));
+        assertThat(replayed.getGeneratedAt()).isEqualTo(Instant.parse("2025-06-26T08:00:00.123456789Z"));
+        assertThat(replayed.getStatus()).isEqualTo("CREATED");
+    }
+
+    @Test
+    void acknowledgeReturnsOnlyOnceTheAckIsForced() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        TrackingJournal journal = new TrackingJournal(dir, SEGMENT_SIZE, registry);
+        journal.open();
+        List<TrackingJournal.Entry> entries = journal.appendAll(TrackingJournal.Op.INSERT, documents(2));
+        long forcedOnAppend = registry.get("tracking.persistence.journal.sync").timer().count();
+
+        journal.acknowledge(entries);
+
+        assertThat(registry.get("tracking.persistence.journal.sync").timer().count()).isEqualTo(forcedOnAppend + 1);
+    }
+
+    @Test
+    void acknowledgedSegmentsAreDeleted() throws IOException {
+        TrackingJournal journal = newJournal();
+        journal.open();
+        List<TrackingJournal.Entry> entries = journal.appendAll(TrackingJournal.Op.INSERT, documents(200));
+        assertThat(segmentFiles()).hasSizeGreaterThan(2);
+
+        journal.acknowledge(entries);
+        journal.close();
+
+        // only the segment we were appending to is left
+        assertThat(segmentFiles()).hasSize(1);
+        assertThat(newJournal().open()).isEmpty();
+    }
+
+    @Test
+    void tornTailIsIgnoredOnRecovery() throws IOException {
+        TrackingJournal journal = newJournal();
+        journal.open();
+        List<TrackingJournal.Entry> entries = journal.appendAll(TrackingJournal.Op.INSERT, documents(3));
+
+        // flip a byte in the body of the last record
+        long offset = entries.getLast().lsn() & 0xFFFFFFFFL;
+        try (RandomAccessFile file = new RandomAccessFile(segmentFiles().getFirst().toFile(), "rw")) {
+            file.seek(offset + 12);
+            int b = file.read();
+            file.seek(offset + 12);
+            file.write(b ^ 0xFF);
+        }
+
+        assertThat(newJournal().open())
+                .extracting(entry -> entry.document().getTrackingNumber())
+                .containsExactly("TN0", "TN1");
+    }
+
+    private TrackingJournal newJournal() {
+        return new TrackingJournal(dir, SEGMENT_SIZE, new SimpleMeterRegistry());
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.sorted().toList();
+        }
+    }
+
+    private static List<TrackingNumberDocument> documents(int count) {
+        return IntStream.range(0, count).mapToObj(i -> document("TN" + i)).toList();
+    }
+
+    private static TrackingNumberDocument document(String trackingNumber) {
+        return new TrackingNumberDocument(
+                null,
+                trackingNumber,
+                "US", "CA",
+                new BigDecimal("2.500"),
+                UUID.fromString("3fa85f64-5717-4562-b3fc-2c963f66afa6"),
+                "Acme Corp",
+                "acme-corp",
+                Instant.parse("2025-06-26T08:00:00.123456789Z"),
+                "CREATED",
+                null
+        );
+    }
+}
@@ -0,0 +1,95 @@
+package io.github.bluething.java.bolttrack.persistence;
+
+import com.mongodb.MongoClientSettings;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentReader;
+import org.bson.BsonDocumentWriter;
+import org.bson.Document;
+import org.bson.UuidRepresentation;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.codecs.configuration.CodecRegistries;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TrackingNumberDocumentCodecTest {
+    /** Spring Boot's default UUID representation. */
+    private static final CodecRegistry REGISTRY = CodecRegistries.withUuidRepresentation(
+            MongoClientSettings.getDefaultCodecRegistry(), UuidRepresentation.JAVA_LEGACY);
+
+    private MappingMongoConverter converter;
+    private TrackingNumberDocumentCodec codec;
+
+    @BeforeEach
+    void setUp() {
+        converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, new MongoMappingContext());
+        converter.afterPropertiesSet();
+        codec = new TrackingNumberDocumentCodec(new TrackingNumberKeys(
+                new TrackingStorageProperties(TrackingStorageProperties.IdMode.SNOWFLAKE, false, 1000, true,
+                TrackingStorageProperties.Partitioning.NONE, 13)), REGISTRY);
+    }
+
+    @Test
+    void convertersCanReadWhatTheCodecWrites() {
+        TrackingNumberDocument doc = document(new ObjectId());
+        BsonDocument bson = new BsonDocument();
+        codec.encode(new BsonDocumentWriter(bson), doc, EncoderContext.builder().build());
+
+        Document raw = REGISTRY.get(Document.class).decode(new BsonDocumentReader(bson), DecoderContext.builder().build());
+        assertThat(converter.read(TrackingNumberDocument.class, raw))
+                .usingRecursiveComparison()
+                .isEqualTo(doc);
+    }
+
+    @Test
+    void codecCanReadWhatTheConverterWrites() {
+        TrackingNumberDocument doc = document(Long.parseLong("DEF123XYZ", 36));
+        Document raw = new Document();
+        converter.write(doc, raw);
+        BsonDocument bson = raw.toBsonDocument(Document.class, REGISTRY);
+
+        // _class is written by the converter and skipped by the codec
+        assertThat(bson).containsKey("_class");
+        assertThat(codec.decode(new BsonDocumentReader(bson), DecoderContext.builder().build()))
+                .usingRecursiveComparison()
+                .isEqualTo(doc);
+    }
+
+    @Test
+    void insertAssignsTheConfiguredId() {
+        TrackingNumberDocument doc = document(null);
+
+        codec.generateIdIfAbsentFromDocument(doc);
+
+        assertThat(doc.getId()).isEqualTo(Long.parseLong("DEF123XYZ", 36));
+        assertThat(codec.getDocumentId(doc).asInt64().getValue()).isEqualTo(Long.parseLong("DEF123XYZ", 36));
+    }
+
+    private static TrackingNumberDocument document(Object id) {
+        return new TrackingNumberDocument(
+                id,
+                "DEF123XYZ",
+                "MY", "ID",
+                new BigDecimal("1.234"),
+                UUID.fromString("de619854-b59b-425e-9db4-943979e1bd49"),
+                "RedBox Logistics",
+                "redbox-logistics",
+                Instant.parse("2025-06-26T10:05:00.123Z"),
+                "IN_TRANSIT",
+                Instant.parse("2025-06-27T08:00:00.456Z"),
+                Map.of("fragile", true, "pieces", 3)
+        );
+    }
+}
@@ -0,0 +1,57 @@
+package io.github.bluething.java.bolttrack.persistence;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TrackingNumberKeysTest {
+    private static final TrackingNumberKeys OBJECT_ID =
+            new TrackingNumberKeys(new TrackingStorageProperties(TrackingStorageProperties.IdMode.OBJECT_ID, false, 1000, false,
+                TrackingStorageProperties.Partitioning.NONE, 13));
+    private static final TrackingNumberKeys SNOWFLAKE =
+            new TrackingNumberKeys(new TrackingStorageProperties(TrackingStorageProperties.IdMode.SNOWFLAKE, false, 1000, false,
+                TrackingStorageProperties.Partitioning.NONE, 13));
+    private static final TrackingNumberKeys MIGRATING =
+            new TrackingNumberKeys(new TrackingStorageProperties(TrackingStorageProperties.IdMode.SNOWFLAKE, true, 1000, false,
+                TrackingStorageProperties.Partitioning.NONE, 13));
+
+    @Test
+    void objectIdModeFiltersOnTrackingNumber() {
+        assertThat(OBJECT_ID.newId("ABC123")).isInstanceOf(ObjectId.class);
+        assertThat(OBJECT_ID.byTrackingNumber("ABC123").getCriteriaObject())
+                .isEqualTo(new Document("tracking_number", "ABC123"));
+    }
+
+    @Test
+    void snowflakeModeFiltersOnDecodedId() {
+        long id = Long.parseLong("ABC123", 36);
+        assertThat(SNOWFLAKE.newId("ABC123")).isEqualTo(id);
+        assertThat(SNOWFLAKE.byTrackingNumber("ABC123").getCriteriaObject())
+                .isEqualTo(new Document("_id", id));
+        // lowercase, too long or foreign characters cannot be stored ids
+        assertThat(SNOWFLAKE.byTrackingNumbers(List.of("ABC123", "abc123", "1Y2P0IJ32E8E8", "A-1")).getCriteriaObject())
+                .isEqualTo(new Document("_id", new Document("$in", List.of(id))));
+        assertThatThrownBy(() -> SNOWFLAKE.newId("abc123")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void snowflakeModeDecodesTheBodyOfNumbersWithCheckCharacter() {
+        long id = Long.parseLong("ABC123", 36);
+        assertThat(SNOWFLAKE.newId("0000000ABC123I")).isEqualTo(id);
+        assertThat(SNOWFLAKE.byTrackingNumber("0000000ABC123I").getCriteriaObject())
+                .isEqualTo(new Document("_id", id));
+    }
+
+    @Test
+    void migrationAlsoMatchesOldDocumentsByTrackingNumber() {
+        assertThat(MIGRATING.byTrackingNumber("ABC123").getCriteriaObject())
+                .isEqualTo(new Document("$or", List.of(
+                        new Document("_id", Long.parseLong("ABC123", 36)),
+                        new Document("tracking_number", "ABC123"))));
+    }
+}
@@ -0,0 +1,112 @@
+package io.github.bluething.java.bolttrack.persistence;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TrackingNumberPartitionsTest {
+    private static final long EPOCH = Instant.parse("2025-01-01T00:00:00Z").toEpochMilli();
+
+    private MongoTemplate mongoTemplate;
+    private TrackingNumberPartitions monthly;
+    private TrackingNumberPartitions single;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = mock(MongoTemplate.class);
+        when(mongoTemplate.getCollectionName(TrackingNumberDocument.class)).thenReturn("tracking_numbers");
+        monthly = new TrackingNumberPartitions(mongoTemplate, properties(TrackingStorageProperties.Partitioning.MONTHLY));
+        single = new TrackingNumberPartitions(mongoTemplate, properties(TrackingStorageProperties.Partitioning.NONE));
+    }
+
+    @Test
+    void trackingNumberGoesToTheMonthItWasMintedIn() {
+        String trackingNumber = minted("2026-10-31T23:59:59.999Z");
+
+        assertThat(monthly.collectionOf(trackingNumber)).isEqualTo("tracking_numbers_2026_10");
+        assertThat(monthly.collectionOf(minted("2026-11-01T00:00:00Z"))).isEqualTo("tracking_numbers_2026_11");
+        assertThat(single.collectionOf(trackingNumber)).isEqualTo("tracking_numbers");
+    }
+
+    @Test
+    void numbersWithoutTimestampAreNotLocatable() {
+        assertThat(monthly.locatable("abc-1")).isFalse();
+        assertThat(single.locatable("abc-1")).isTrue();
+        assertThatThrownBy(() -> monthly.collectionOf("abc-1")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void rangeCoversOneNeighbouringPartitionEachSide() {
+        assertThat(monthly.collectionsBetween(Instant.parse("2026-10-01T00:00:00Z"), Instant.parse("2026-10-20T00:00:00Z")))
+                .containsExactly("tracking_numbers_2026_09", "tracking_numbers_2026_10");
+        assertThat(monthly.collectionsBetween(Instant.parse("2026-12-05T00:00:00Z"), Instant.parse("2027-01-01T00:00:00Z")))
+                .containsExactly("tracking_numbers_2026_11", "tracking_numbers_2026_12", "tracking_numbers_2027_01");
+        assertThat(single.collectionsBetween(Instant.EPOCH, Instant.now())).containsExactly("tracking_numbers");
+    }
+
+    @Test
+    void listingWalksExistingPartitionsNewestFirst() {
+        when(mongoTemplate.getCollectionNames()).thenReturn(Set.of(
+                "tracking_numbers", "tracking_numbers_2026_08", "tracking_numbers_2026_10",
+                "tracking_numbers_2026_09", "tracking_numbers_2026_11", "tracking_numbers_backup"));
+
+        assertThat(monthly.collectionsBefore(Instant.parse("2026-10-15T00:00:00Z")))
+                .containsExactly("tracking_numbers_2026_10", "tracking_numbers_2026_09", "tracking_numbers_2026_08");
+        assertThat(monthly.collectionsBefore(null)).hasSize(4).first().isEqualTo("tracking_numbers_2026_11");
+        assertThat(single.collectionsBefore(null)).isEqualTo(List.of("tracking_numbers"));
+    }
+
+    @Test
+    void baseCollectionFromBeforePartitioningIsSearchedLast() {
+        when(mongoTemplate.collectionExists("tracking_numbers")).thenReturn(true);
+        when(mongoTemplate.getCollectionNames()).thenReturn(Set.of("tracking_numbers", "tracking_numbers_2026_10"));
+        TrackingNumberPartitions upgraded = new TrackingNumberPartitions(
+                mongoTemplate, properties(TrackingStorageProperties.Partitioning.MONTHLY));
+        String october = minted("2026-10-31T23:59:59.999Z");
+
+        assertThat(upgraded.fallback()).isEqualTo("tracking_numbers");
+        // new numbers are still written to their month
+        assertThat(upgraded.collectionOf(october)).isEqualTo("tracking_numbers_2026_10");
+        assertThat(upgraded.collectionsOf(october)).containsExactly("tracking_numbers_2026_10", "tracking_numbers");
+        // numbers without a timestamp can only be in the base collection
+        assertThat(upgraded.locatable("abc-1")).isTrue();
+        assertThat(upgraded.collectionsOf("abc-1")).containsExactly("tracking_numbers");
+        assertThat(upgraded.collectionsBetween(Instant.parse("2026-10-01T00:00:00Z"), Instant.parse("2026-10-20T00:00:00Z")))
+                .containsExactly("tracking_numbers", "tracking_numbers_2026_09", "tracking_numbers_2026_10");
+        assertThat(upgraded.collectionsBefore(null)).containsExactly("tracking_numbers_2026_10", "tracking_numbers");
+        assertThat(monthly.fallback()).isNull();
+        assertThat(monthly.collectionsOf(october)).containsExactly("tracking_numbers_2026_10");
+    }
+
+    @Test
+    void groupsByPartitionKeepingOrder() {
+        String october1 = minted("2026-10-01T00:00:00Z");
+        String november = minted("2026-11-01T00:00:00Z");
+        String october2 = minted("2026-10-02T00:00:00Z");
+
+        assertThat(monthly.byCollection(List.of(october1, november, october2), trackingNumber -> trackingNumber))
+                .containsExactly(
+                        Map.entry("tracking_numbers_2026_10", List.of(october1, october2)),
+                        Map.entry("tracking_numbers_2026_11", List.of(november)));
+    }
+
+    private static String minted(String instant) {
+        long timestampMs = Instant.parse(instant).toEpochMilli() - EPOCH;
+        long id = (timestampMs << 22) | (5L << 12) | 1L;
+        return Long.toString(id, 36).toUpperCase();
+    }
+
+    private static TrackingStorageProperties properties(TrackingStorageProperties.Partitioning partitioning) {
+        return new TrackingStorageProperties(TrackingStorageProperties.IdMode.SNOWFLAKE, false, 1000, false, partitioning, 13);
+    }
+}
@@ -0,0 +1,147 @@
+package io.github.bluething.java.bolttrack.persistence;
+
+import com.mongodb.bulk.BulkWriteResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.RETURNS_SELF;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TrackingNumberRepositoryCustomImplTest {
+    private static final Instant UPDATED_AT = Instant.parse("2026-10-17T08:00:00.123456Z");
+    private static final List<String> FROM_CREATED = List.of("CREATED");
+
+    private MongoTemplate mongoTemplate;
+    private TrackingNumberRepositoryCustomImpl repository;
+    /** What a read-back of the batch finds. */
+    private final Map<String, TrackingNumberDocument> current = new HashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = mock(MongoTemplate.class);
+        when(mongoTemplate.getCollectionName(TrackingNumberDocument.class)).thenReturn("tracking_numbers");
+        TrackingStorageProperties storage = new TrackingStorageProperties(
+                TrackingStorageProperties.IdMode.OBJECT_ID, false, 1000, false, TrackingStorageProperties.Partitioning.NONE, 13);
+        repository = new TrackingNumberRepositoryCustomImpl(mongoTemplate, new TrackingNumberKeys(storage),
+                mock(TrackingNumberCollection.class), new TrackingNumberPartitions(mongoTemplate, storage));
+        when(mongoTemplate.find(any(Query.class), eq(TrackingNumberDocument.class), anyString()))
+                .thenAnswer(invocation -> List.copyOf(current.values()));
+    }
+
+    @Test
+    void fullyMatchedBatchIsNotReadBack() {
+        bulkMatches(2);
+
+        var result = repository.updateStatusesIfIn(List.of(pickUp("TN1"), pickUp("TN2")), UPDATED_AT);
+
+        assertThat(result.missing()).isEmpty();
+        assertThat(result.rejected()).isEmpty();
+        verify(mongoTemplate, never()).find(any(Query.class), eq(TrackingNumberDocument.class), anyString());
+    }
+
+    @Test
+    void unmatchedNumbersAreDecidedOnTheReadBack() {
+        bulkMatches(1);
+        // written by the batch: MongoDB keeps milliseconds only
+        current.put("TN1", document("TN1", "PICKED_UP", UPDATED_AT.truncatedTo(ChronoUnit.MILLIS)));
+        // already at the target before the batch: nothing matched, so it is not applied
+        current.put("TN2", document("TN2", "PICKED_UP", UPDATED_AT.minusSeconds(60)));
+
+        var result = repository.updateStatusesIfIn(
+                List.of(pickUp("TN1"), pickUp("TN2"), pickUp("NOPE")), UPDATED_AT);
+
+        assertThat(result.missing()).containsExactly("NOPE");
+        assertThat(result.rejected()).isEqualTo(Map.of("TN2", "PICKED_UP"));
+        verify(mongoTemplate, times(1)).bulkOps(any(BulkOperations.BulkMode.class),
+                eq(TrackingNumberDocument.class), anyString());
+        verify(mongoTemplate, never()).findAndModify(any(Query.class), any(UpdateDefinition.class),
+                any(FindAndModifyOptions.class), eq(TrackingNumberDocument.class), anyString());
+    }
+
+    @Test
+    void allMissBatchTakesTwoRoundTrips() {
+        bulkMatches(0);
+        List<TrackingNumberRepositoryCustom.StatusTransition> transitions = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            transitions.add(pickUp("TN" + i));
+        }
+
+        var result = repository.updateStatusesIfIn(transitions, UPDATED_AT);
+
+        assertThat(result.missing()).hasSize(10_000);
+        assertThat(result.rejected()).isEmpty();
+        // the bulk write and the read-back, and nothing per number
+        verify(mongoTemplate, times(1)).bulkOps(any(BulkOperations.BulkMode.class),
+                eq(TrackingNumberDocument.class), anyString());
+        verify(mongoTemplate, times(1)).find(any(Query.class), eq(TrackingNumberDocument.class), anyString());
+        verify(mongoTemplate, never()).findAndModify(any(Query.class), any(UpdateDefinition.class),
+                any(FindAndModifyOptions.class), eq(TrackingNumberDocument.class), anyString());
+    }
+
+    @Test
+    void numbersMovedBackToAPredecessorAreRetriedInOneBulkWrite() {
+        BulkOperations first = bulkOps(1);
+        BulkOperations retry = bulkOps(2);
+        when(mongoTemplate.bulkOps(any(BulkOperations.BulkMode.class), eq(TrackingNumberDocument.class), anyString()))
+                .thenReturn(first, retry);
+        current.put("TN1", document("TN1", "PICKED_UP", UPDATED_AT.truncatedTo(ChronoUnit.MILLIS)));
+        // moved back to a predecessor by a concurrent update since the batch
+        current.put("TN2", document("TN2", "CREATED", UPDATED_AT.minusSeconds(60)));
+        current.put("TN3", document("TN3", "CREATED", UPDATED_AT.minusSeconds(60)));
+
+        var result = repository.updateStatusesIfIn(
+                List.of(pickUp("TN1"), pickUp("TN2"), pickUp("TN3")), UPDATED_AT);
+
+        assertThat(result.missing()).isEmpty();
+        assertThat(result.rejected()).isEmpty();
+        verify(first, times(3)).updateOne(any(Query.class), any(Update.class));
+        // TN1 is not written a second time
+        verify(retry, times(2)).updateOne(any(Query.class), any(Update.class));
+        verify(mongoTemplate, times(1)).find(any(Query.class), eq(TrackingNumberDocument.class), anyString());
+    }
+
+    private void bulkMatches(int matched) {
+        BulkOperations ops = bulkOps(matched);
+        when(mongoTemplate.bulkOps(any(BulkOperations.BulkMode.class), eq(TrackingNumberDocument.class), anyString()))
+                .thenReturn(ops);
+    }
+
+    private static BulkOperations bulkOps(int matched) {
+        BulkOperations ops = mock(BulkOperations.class, RETURNS_SELF);
+        when(ops.execute()).thenReturn(BulkWriteResult.acknowledged(0, matched, 0, matched, List.of(), List.of()));
+        return ops;
+    }
+
+    private static TrackingNumberRepositoryCustom.StatusTransition pickUp(String trackingNumber) {
+        return new TrackingNumberRepositoryCustom.StatusTransition(trackingNumber, "PICKED_UP", FROM_CREATED);
+    }
+
+    private static TrackingNumberDocument document(String trackingNumber, String status, Instant updatedAt) {
+        TrackingNumberDocument doc = new TrackingNumberDocument();
+        doc.setTrackingNumber(trackingNumber);
+        doc.setStatus(status);
+        doc.setUpdatedAt(updatedAt);
+        return doc;
+    }
+}
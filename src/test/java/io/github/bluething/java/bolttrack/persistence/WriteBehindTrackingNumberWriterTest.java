@@ -0,0 +1,299 @@
+package io.github.bluething.java.bolttrack.persistence;
+
+import com.mongodb.bulk.BulkWriteError;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.util.unit.DataSize;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.RETURNS_SELF;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class WriteBehindTrackingNumberWriterTest {
+    private static final int SEGMENT_SIZE = 64 * 1024;
+
+    @TempDir
+    Path dir;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    /** What reached the fake MongoDB, in order: "insert:TN1", "status:TN1:PICKED_UP". */
+    private final List<String> stored = Collections.synchronizedList(new ArrayList<>());
+    /** updated_at of documents a status change reached MongoDB for outside this writer. */
+    private final Map<String, Instant> changedElsewhere = new ConcurrentHashMap<>();
+    /** Tracking numbers MongoDB refuses to store. */
+    private final Set<String> rejected = ConcurrentHashMap.newKeySet();
+    /** Decides how a bulk write fails, given the tracking numbers in it; null lets it succeed. */
+    private volatile Function<List<String>, RuntimeException> failure = numbers -> null;
+
+    private MongoTemplate mongoTemplate;
+    private TrackingNumberRepository repository;
+    private WriteBehindTrackingNumberWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = mock(MongoTemplate.class);
+        repository = mock(TrackingNumberRepository.class);
+        when(mongoTemplate.getCollectionName(TrackingNumberDocument.class)).thenReturn("tracking_numbers");
+        when(mongoTemplate.bulkOps(any(BulkOperations.BulkMode.class), eq(TrackingNumberDocument.class), anyString()))
+                .thenAnswer(invocation -> bulk());
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (writer != null && writer.isRunning()) {
+            writer.stop();
+        }
+    }
+
+    @Test
+    void flushWritesInsertsBeforeStatusChangesAndAcknowledgesThem() {
+        writer = start(3);
+
+        writer.write(document("TN1"));
+        writer.updateStatusIfIn("TN1", "PICKED_UP", Set.of("CREATED"), Instant.now());
+        writer.writeAll(List.of(document("TN2"), document("TN3")));
+        writer.flush();
+
+        assertThat(stored).containsExactlyInAnyOrder("insert:TN1", "status:TN1:PICKED_UP", "insert:TN2", "insert:TN3");
+        assertThat(stored.indexOf("insert:TN1")).isLessThan(stored.indexOf("status:TN1:PICKED_UP"));
+        // persisted: reads and status changes go to MongoDB again
+        assertThat(writer.findPending("TN1")).isEmpty();
+        writer.stop();
+        assertThat(journal().open()).isEmpty();
+    }
+
+    @Test
+    void statusChangeOfAQueuedNumberIsDecidedOnItsInMemoryCopy() {
+        writer = start(3);
+        writer.write(document("TN1"));
+
+        var before = writer.updateStatusIfIn("TN1", "DELIVERED", Set.of("IN_TRANSIT"), Instant.now());
+
+        // not a legal predecessor: nothing is queued, and MongoDB is not asked
+        assertThat(before).map(TrackingNumberDocument::getStatus).contains("CREATED");
+        writer.flush();
+        assertThat(stored).containsExactly("insert:TN1");
+    }
+
+    @Test
+    void duplicateKeyErrorsOfARetriedBatchAreIgnored() {
+        BulkOperationException duplicates = mock(BulkOperationException.class);
+        when(duplicates.getErrors()).thenReturn(List.of(new BulkWriteError(11000, "duplicate key", new BsonDocument(), 0)));
+        failure = numbers -> numbers.contains("TN1") ? duplicates : null;
+        writer = start(3);
+
+        writer.write(document("TN1"));
+        writer.flush();
+        writer.stop();
+
+        assertThat(journal().open()).isEmpty();
+        assertThat(journal().deadLetters()).isEmpty();
+    }
+
+    @Test
+    void writeMongoKeepsRefusingIsDeadLetteredAndTheRestMovesOn() {
+        rejected.add("TN2");
+        writer = start(2);
+
+        writer.writeAll(List.of(document("TN1"), document("TN2"), document("TN3")));
+        writer.flush();
+        writer.write(document("TN4"));
+        writer.flush();
+        writer.stop();
+
+        assertThat(stored).containsExactly("insert:TN1", "insert:TN3", "insert:TN4");
+        assertThat(journal().deadLetters())
+                .extracting(entry -> entry.document().getTrackingNumber())
+                .containsExactly("TN2");
+        assertThat(journal().open()).isEmpty();
+        assertThat(registry.get("tracking.persistence.write-behind.dead.letters").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void unreachableMongoIsRetriedWithoutDeadLettering() {
+        int[] failures = {3};
+        failure = numbers -> failures[0]-- > 0 ? new DataAccessResourceFailureException("timed out") : null;
+        writer = start(1);
+
+        writer.write(document("TN1"));
+        writer.flush();
+
+        assertThat(stored).containsExactly("insert:TN1");
+        assertThat(journal().deadLetters()).isEmpty();
+    }
+
+    @Test
+    void fullQueueMakesCallersWaitInsteadOfWritingAroundIt() throws InterruptedException {
+        CountDownLatch flushing = new CountDownLatch(1);
+        CountDownLatch mongoBack = new CountDownLatch(1);
+        failure = numbers -> {
+            flushing.countDown();
+            try {
+                mongoBack.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        };
+        writer = start(3, 1);
+
+        writer.write(document("TN1"));
+        assertThat(flushing.await(5, TimeUnit.SECONDS)).isTrue();
+        // takes the only slot while the flusher is stuck on TN1
+        writer.write(document("TN2"));
+        Thread waiting = Thread.ofVirtual().start(() -> writer.write(document("TN3")));
+
+        assertThat(waiting.join(Duration.ofMillis(200))).isFalse();
+        assertThat(stored).isEmpty();
+        assertThat(registry.get("tracking.persistence.write-behind.backpressure").counter().count()).isPositive();
+
+        mongoBack.countDown();
+        assertThat(waiting.join(Duration.ofSeconds(5))).isTrue();
+        writer.flush();
+        assertThat(stored).containsExactly("insert:TN1", "insert:TN2", "insert:TN3");
+    }
+
+    @Test
+    void unacknowledgedJournalEntriesAreReplayedOnStart() {
+        TrackingJournal previous = journal();
+        previous.open();
+        previous.appendAll(TrackingJournal.Op.INSERT, List.of(document("TN1"), document("TN2")));
+        TrackingNumberDocument change = new TrackingNumberDocument();
+        change.setTrackingNumber("TN1");
+        change.setStatus("PICKED_UP");
+        change.setUpdatedAt(Instant.now());
+        previous.append(TrackingJournal.Op.STATUS, change);
+        // no close(): the process died
+
+        writer = start(3);
+
+        assertThat(stored).containsExactly("insert:TN1", "insert:TN2", "status:TN1:PICKED_UP");
+        writer.stop();
+        assertThat(journal().open()).isEmpty();
+    }
+
+    @Test
+    void replayedStatusChangeDoesNotUndoALaterOne() {
+        TrackingJournal previous = journal();
+        previous.open();
+        TrackingNumberDocument change = new TrackingNumberDocument();
+        change.setTrackingNumber("TN1");
+        change.setStatus("PICKED_UP");
+        change.setUpdatedAt(Instant.parse("2026-10-18T08:00:00Z"));
+        previous.append(TrackingJournal.Op.STATUS, change);
+        // written, but the process died before the ack: TN1 has been delivered since
+        changedElsewhere.put("TN1", Instant.parse("2026-10-18T09:00:00Z"));
+
+        writer = start(3);
+
+        assertThat(stored).doesNotContain("status:TN1:PICKED_UP");
+        writer.stop();
+        assertThat(journal().open()).isEmpty();
+    }
+
+    private WriteBehindTrackingNumberWriter start(int maxAttempts) {
+        return start(maxAttempts, 100);
+    }
+
+    private WriteBehindTrackingNumberWriter start(int maxAttempts, int queueCapacity) {
+        TrackingStorageProperties storage = new TrackingStorageProperties(
+                TrackingStorageProperties.IdMode.OBJECT_ID, false, 1000, false, TrackingStorageProperties.Partitioning.NONE, 13);
+        WriteBehindProperties properties = new WriteBehindProperties(true, queueCapacity, 10, Duration.ofMillis(5),
+                Duration.ofMillis(10), dir, DataSize.ofBytes(SEGMENT_SIZE), maxAttempts, Duration.ofMillis(1));
+        WriteBehindTrackingNumberWriter started = new WriteBehindTrackingNumberWriter(mongoTemplate, repository,
+                new TrackingNumberKeys(storage), mock(TrackingNumberCollection.class),
+                new TrackingNumberPartitions(mongoTemplate, storage), properties, registry);
+        started.start();
+        return started;
+    }
+
+    private TrackingJournal journal() {
+        return new TrackingJournal(dir, SEGMENT_SIZE, new SimpleMeterRegistry());
+    }
+
+    /** One bulk write against the fake MongoDB: applied all at once on execute(), or not at all. */
+    private BulkOperations bulk() {
+        BulkOperations ops = mock(BulkOperations.class, RETURNS_SELF);
+        List<String> numbers = new ArrayList<>();
+        List<String> writes = new ArrayList<>();
+        when(ops.insert(anyList())).thenAnswer(invocation -> {
+            for (Object doc : invocation.<List<?>>getArgument(0)) {
+                String trackingNumber = ((TrackingNumberDocument) doc).getTrackingNumber();
+                numbers.add(trackingNumber);
+                writes.add("insert:" + trackingNumber);
+            }
+            return ops;
+        });
+        when(ops.updateOne(any(Query.class), any(Update.class))).thenAnswer(invocation -> {
+            // {$and: [{tracking_number: ...}, {$or: [{updated_at: {$lte: ...}}, {updated_at: null}]}]}
+            List<?> and = invocation.<Query>getArgument(0).getQueryObject().getList("$and", Object.class);
+            String trackingNumber = ((Document) and.getFirst()).getString("tracking_number");
+            Document set = (Document) invocation.<Update>getArgument(1).getUpdateObject().get("$set");
+            numbers.add(trackingNumber);
+            Instant stored = changedElsewhere.get(trackingNumber);
+            if (stored == null || !stored.isAfter((Instant) set.get("updated_at"))) {
+                writes.add("status:" + trackingNumber + ":" + set.getString("status"));
+            }
+            return ops;
+        });
+        when(ops.execute()).thenAnswer(invocation -> {
+            RuntimeException ex = failure.apply(numbers);
+            if (ex != null) {
+                throw ex;
+            }
+            if (numbers.stream().anyMatch(rejected::contains)) {
+                throw new DataIntegrityViolationException("Document failed validation");
+            }
+            stored.addAll(writes);
+            return null;
+        });
+        return ops;
+    }
+
+    private static TrackingNumberDocument document(String trackingNumber) {
+        return new TrackingNumberDocument(
+                null,
+                trackingNumber,
+                "US", "CA",
+                new BigDecimal("2.500"),
+                UUID.fromString("3fa85f64-5717-4562-b3fc-2c963f66afa6"),
+                "Acme Corp",
+                "acme-corp",
+                Instant.parse("2025-06-26T08:00:00.123456789Z"),
+                "CREATED",
+                null
+        );
+    }
+}
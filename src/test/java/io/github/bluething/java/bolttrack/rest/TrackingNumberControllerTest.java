@@ -1,8 +1,10 @@
 package io.github.bluething.java.bolttrack.rest;
 
+import io.github.bluething.java.bolttrack.domain.ScanEventOutcome;
 import io.github.bluething.java.bolttrack.domain.TrackingNumberRecords;
 import io.github.bluething.java.bolttrack.domain.TrackingNumberService;
 import io.github.bluething.java.bolttrack.exception.GlobalExceptionHandler;
+import io.github.bluething.java.bolttrack.exception.InvalidCursorException;
 import io.github.bluething.java.bolttrack.exception.InvalidStatusTransitionException;
 import io.github.bluething.java.bolttrack.exception.ResourceNotFoundException;
 import org.junit.jupiter.api.DisplayName;
@@ -17,14 +19,18 @@ import org.springframework.test.web.servlet.MockMvc;
 
 import java.math.BigDecimal;
 import java.time.Instant;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.stream.Stream;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.containsString;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 
@@ -123,6 +129,54 @@ class TrackingNumberControllerTest {
         verifyNoInteractions(service);
     }
 
+    @Test
+    @DisplayName("GET /next-tracking-numbers with valid params returns 200 + all numbers")
+    void nextBatchViaGet_validRequest_success() throws Exception {
+        Instant now = Instant.parse("2025-06-26T10:00:00Z");
+        var dto = new TrackingNumberRecords.TrackingNumberBatchData(List.of("ABC1", "ABC2", "ABC3"), now);
+        when(service.generateBatch(any(TrackingNumberRecords.CreateTrackingNumberCommand.class), eq(3)))
+                .thenReturn(dto);
+
+        mockMvc.perform(get("/api/v1/next-tracking-numbers")
+                        .param("count",                  "3")
+                        .param("origin_country_id",      "MY")
+                        .param("destination_country_id", "ID")
+                        .param("weight",                 "1.234")
+                        .param("created_at",             "2025-06-26T10:00:00+00:00")
+                        .param("customer_id",            "de619854-b59b-425e-9db4-943979e1bd49")
+                        .param("customer_name",          "RedBox Logistics")
+                        .param("customer_slug",          "redbox-logistics")
+                        .accept(MediaType.APPLICATION_JSON)
+                )
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.tracking_numbers.length()").value(3))
+                .andExpect(jsonPath("$.tracking_numbers[0]").value("ABC1"))
+                .andExpect(jsonPath("$.created_at").value(now.toString()));
+
+        verify(service).generateBatch(any(TrackingNumberRecords.CreateTrackingNumberCommand.class), eq(3));
+    }
+
+    @Test
+    @DisplayName("GET /next-tracking-numbers with count over the limit returns 400")
+    void nextBatchViaGet_countTooLarge_badRequest() throws Exception {
+        mockMvc.perform(get("/api/v1/next-tracking-numbers")
+                        .param("count",                  "5001")
+                        .param("origin_country_id",      "MY")
+                        .param("destination_country_id", "ID")
+                        .param("weight",                 "1.234")
+                        .param("created_at",             "2025-06-26T10:00:00+00:00")
+                        .param("customer_id",            "de619854-b59b-425e-9db4-943979e1bd49")
+                        .param("customer_name",          "RedBox Logistics")
+                        .param("customer_slug",          "redbox-logistics")
+                        .accept(MediaType.APPLICATION_JSON)
+                )
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errors[0].field").value("count"));
+
+        verifyNoInteractions(service);
+    }
+
     @Test
     @DisplayName("GET /api/v1/track/{tracking_number} – existing → 200 + detail JSON")
     void detail_existingTrackingNumber_returns200AndBody() throws Exception {
@@ -140,10 +194,11 @@ class TrackingNumberControllerTest {
                 "IN_TRANSIT",
                 Map.of("fragile", true)
         );
-        when(service.findByTrackingNumber(trackingNumber)).thenReturn(dto);
+        when(service.findByTrackingNumber(trackingNumber, true)).thenReturn(dto);
 
         // Act & Assert
         mockMvc.perform(get("/api/v1/track/{tn}", trackingNumber)
+                        .param("include", "metadata")
                         .accept(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
                 .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
@@ -159,7 +214,37 @@ class TrackingNumberControllerTest {
                 .andExpect(jsonPath("$.metadata.fragile").value(true));
 
         // verify delegation
-        verify(service).findByTrackingNumber(trackingNumber);
+        verify(service).findByTrackingNumber(trackingNumber, true);
+    }
+
+    @Test
+    @DisplayName("GET /api/v1/track/{tracking_number} without include → metadata left out")
+    void detail_withoutInclude_omitsMetadata() throws Exception {
+        var trackingNumber = "ABC123XYZ";
+        var dto = new TrackingNumberRecords.TrackingDetailData(
+                trackingNumber, "MY", "ID", new BigDecimal("2.345"),
+                Instant.parse("2025-06-26T09:00:00Z"),
+                UUID.fromString("de619854-b59b-425e-9db4-943979e1bd49"),
+                "Acme Corp", "acme-corp",
+                Instant.parse("2025-06-26T09:01:00Z"), "IN_TRANSIT", null);
+        when(service.findByTrackingNumber(trackingNumber, false)).thenReturn(dto);
+
+        mockMvc.perform(get("/api/v1/track/{tn}", trackingNumber)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("IN_TRANSIT"))
+                .andExpect(jsonPath("$.metadata").doesNotExist());
+    }
+
+    @Test
+    @DisplayName("GET /api/v1/track/{tracking_number}?include=unknown → 400")
+    void detail_unknownInclude_returns400() throws Exception {
+        mockMvc.perform(get("/api/v1/track/{tn}", "ABC123XYZ")
+                        .param("include", "everything")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(service);
     }
 
     @Test
@@ -167,7 +252,7 @@ class TrackingNumberControllerTest {
     void detail_nonExistentTrackingNumber_returns404AndErrorBody() throws Exception {
         // Arrange
         var trackingNumber = "NONEXISTENT";
-        when(service.findByTrackingNumber(trackingNumber))
+        when(service.findByTrackingNumber(trackingNumber, false))
                 .thenThrow(new ResourceNotFoundException("TrackingNumber", trackingNumber));
 
         // Act & Assert
@@ -179,7 +264,7 @@ class TrackingNumberControllerTest {
                 .andExpect(jsonPath("$.message", containsString("not found with identifier " + trackingNumber)))
                 .andExpect(jsonPath("$.path").value("/api/v1/track/" + trackingNumber));
 
-        verify(service).findByTrackingNumber(trackingNumber);
+        verify(service).findByTrackingNumber(trackingNumber, false);
     }
 
     @Test
@@ -269,4 +354,201 @@ class TrackingNumberControllerTest {
         verifyNoInteractions(service);
     }
 
-}
\ No newline at end of file
+    @Test
+    @DisplayName("POST /scan-events with JSON array → 200 + per-event results in request order")
+    void scanEvents_json_returnsResultsInOrder() throws Exception {
+        Instant t1 = Instant.parse("2025-06-26T10:00:00Z");
+        Instant t2 = Instant.parse("2025-06-26T11:00:00Z");
+        when(service.applyScanEvents(anyList())).thenReturn(List.of(
+                new TrackingNumberRecords.ScanEventResult("ABC123XYZ", "PICKED_UP", t1, ScanEventOutcome.APPLIED, null),
+                new TrackingNumberRecords.ScanEventResult("NOPE", "PICKED_UP", t2, ScanEventOutcome.NOT_FOUND,
+                        "Resource TrackingNumber not found with identifier NOPE")
+        ));
+
+        mockMvc.perform(post("/api/v1/scan-events")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                [{"tracking_number":"ABC123XYZ","status":"PICKED_UP","event_time":"2025-06-26T10:00:00Z"},
+                                 {"tracking_number":"NOPE","status":"PICKED_UP","event_time":"2025-06-26T11:00:00Z"}]
+                                """)
+                        .accept(MediaType.APPLICATION_JSON)
+                )
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.applied").value(1))
+                .andExpect(jsonPath("$.rejected").value(1))
+                .andExpect(jsonPath("$.results[0].result").value("APPLIED"))
+                .andExpect(jsonPath("$.results[0].message").doesNotExist())
+                .andExpect(jsonPath("$.results[1].tracking_number").value("NOPE"))
+                .andExpect(jsonPath("$.results[1].result").value("NOT_FOUND"));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<TrackingNumberRecords.ScanEventCommand>> captor = ArgumentCaptor.forClass(List.class);
+        verify(service).applyScanEvents(captor.capture());
+        assert captor.getValue().equals(List.of(
+                new TrackingNumberRecords.ScanEventCommand("ABC123XYZ", "PICKED_UP", t1),
+                new TrackingNumberRecords.ScanEventCommand("NOPE", "PICKED_UP", t2)
+        ));
+    }
+
+    @Test
+    @DisplayName("POST /scan-events with NDJSON → one command per line")
+    void scanEvents_ndjson_readsOneEventPerLine() throws Exception {
+        Instant t1 = Instant.parse("2025-06-26T10:00:00Z");
+        when(service.applyScanEvents(anyList())).thenReturn(List.of(
+                new TrackingNumberRecords.ScanEventResult("ABC123XYZ", "PICKED_UP", t1, ScanEventOutcome.APPLIED, null),
+                new TrackingNumberRecords.ScanEventResult("ABC123XYZ", "IN_TRANSIT", t1, ScanEventOutcome.APPLIED, null)
+        ));
+
+        mockMvc.perform(post("/api/v1/scan-events")
+                        .contentType("application/x-ndjson")
+                        .content("""
+                                {"tracking_number":"ABC123XYZ","status":"PICKED_UP","event_time":"2025-06-26T10:00:00Z"}
+                                {"tracking_number":"ABC123XYZ","status":"IN_TRANSIT","event_time":"2025-06-26T10:00:00Z"}
+                                """)
+                        .accept(MediaType.APPLICATION_JSON)
+                )
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.applied").value(2))
+                .andExpect(jsonPath("$.results.length()").value(2));
+
+        verify(service).applyScanEvents(argThat(events -> events.size() == 2
+                && events.get(1).status().equals("IN_TRANSIT")));
+    }
+
+    @Test
+    @DisplayName("POST /scan-events with a malformed NDJSON line → 400 Bad Request")
+    void scanEvents_malformedNdjson_returns400() throws Exception {
+        mockMvc.perform(post("/api/v1/scan-events")
+                        .contentType("application/x-ndjson")
+                        .content("""
+                                {"tracking_number":"ABC123XYZ","status":"PICKED_UP","event_time":"2025-06-26T10:00:00Z"}
+                                {"tracking_number":
+                                """)
+                        .accept(MediaType.APPLICATION_JSON)
+                )
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message", containsString("line 2")));
+
+        verifyNoInteractions(service);
+    }
+
+    @Test
+    @DisplayName("GET /track?tracking_numbers=... → 200 + results in request order with not-found markers")
+    void lookup_returnsResultsInOrder() throws Exception {
+        var dto = new TrackingNumberRecords.TrackingDetailData(
+                "ABC123XYZ", "MY", "ID", new BigDecimal("1.234"),
+                Instant.parse("2025-06-26T10:00:00Z"),
+                UUID.fromString("de619854-b59b-425e-9db4-943979e1bd49"),
+                "Acme Corp", "acme-corp",
+                Instant.parse("2025-06-26T10:05:00Z"), "CREATED", null);
+        when(service.findByTrackingNumbers(List.of("NOPE", "ABC123XYZ"))).thenReturn(List.of(
+                new TrackingNumberRecords.TrackingLookupData("NOPE", null),
+                new TrackingNumberRecords.TrackingLookupData("ABC123XYZ", dto)
+        ));
+
+        mockMvc.perform(get("/api/v1/track")
+                        .param("tracking_numbers", "NOPE,ABC123XYZ")
+                        .accept(MediaType.APPLICATION_JSON)
+                )
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.results[0].tracking_number").value("NOPE"))
+                .andExpect(jsonPath("$.results[0].found").value(false))
+                .andExpect(jsonPath("$.results[0].detail").doesNotExist())
+                .andExpect(jsonPath("$.results[1].found").value(true))
+                .andExpect(jsonPath("$.results[1].detail.status").value("CREATED"));
+    }
+
+    @Test
+    @DisplayName("GET /track with a malformed tracking number → 400 Bad Request")
+    void lookup_malformedTrackingNumber_returns400() throws Exception {
+        mockMvc.perform(get("/api/v1/track")
+                        .param("tracking_numbers", "ABC123XYZ,not-valid")
+                        .accept(MediaType.APPLICATION_JSON)
+                )
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Validation failed"));
+
+        verifyNoInteractions(service);
+    }
+
+    @Test
+    @DisplayName("GET /customers/{id}/tracking-numbers/export → 200 + one JSON object per line with a cursor")
+    void export_writesNdjson() throws Exception {
+        UUID customerId = UUID.fromString("de619854-b59b-425e-9db4-943979e1bd49");
+        Instant from = Instant.parse("2025-06-01T00:00:00Z");
+        Instant to = Instant.parse("2025-07-01T00:00:00Z");
+        var dto = new TrackingNumberRecords.TrackingDetailData(
+                "ABC123XYZ", "MY", "ID", new BigDecimal("1.234"),
+                Instant.parse("2025-06-26T10:00:00Z"),
+                customerId, "Acme Corp", "acme-corp",
+                Instant.parse("2025-06-26T10:05:00Z"), "CREATED", null);
+        when(service.exportByCustomer(customerId, from, to, null)).thenReturn(Stream.of(
+                new TrackingNumberRecords.TrackingExportData(dto, "c1"),
+                new TrackingNumberRecords.TrackingExportData(dto, "c2")
+        ));
+
+        String body = mockMvc.perform(get("/api/v1/customers/{id}/tracking-numbers/export", customerId)
+                        .param("from", "2025-06-01T00:00:00Z")
+                        .param("to", "2025-07-01T00:00:00Z")
+                )
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString();
+
+        assertThat(body.split("\n"))
+                .hasSize(2)
+                .allSatisfy(line -> assertThat(line).contains("\"tracking_number\":\"ABC123XYZ\"")
+                        .doesNotContain("metadata"));
+        assertThat(body).contains("\"cursor\":\"c2\"").endsWith("\n");
+    }
+
+    @Test
+    @DisplayName("GET /customers/{id}/tracking-numbers/export with a bad cursor → 400 Bad Request")
+    void export_invalidCursor_returns400() throws Exception {
+        when(service.exportByCustomer(any(), any(), any(), eq("forged")))
+                .thenThrow(new InvalidCursorException("forged"));
+
+        mockMvc.perform(get("/api/v1/customers/{id}/tracking-numbers/export", UUID.randomUUID())
+                        .param("from", "2025-06-01T00:00:00Z")
+                        .param("to", "2025-07-01T00:00:00Z")
+                        .param("after", "forged")
+                )
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Invalid or expired cursor forged"));
+    }
+
+    @Test
+    @DisplayName("GET /customers/{id}/tracking-numbers → 200 + items and next_cursor")
+    void list_returnsPage() throws Exception {
+        UUID customerId = UUID.fromString("de619854-b59b-425e-9db4-943979e1bd49");
+        var dto = new TrackingNumberRecords.TrackingDetailData(
+                "ABC123XYZ", "MY", "ID", new BigDecimal("1.234"),
+                Instant.parse("2025-06-26T10:00:00Z"),
+                customerId, "Acme Corp", "acme-corp",
+                Instant.parse("2025-06-26T10:05:00Z"), "IN_TRANSIT", null);
+        when(service.listByCustomer(customerId, "IN_TRANSIT", "c1", 1))
+                .thenReturn(new TrackingNumberRecords.TrackingPageData(List.of(dto), "c2"));
+
+        mockMvc.perform(get("/api/v1/customers/{id}/tracking-numbers", customerId)
+                        .param("status", "IN_TRANSIT")
+                        .param("after", "c1")
+                        .param("size", "1")
+                        .accept(MediaType.APPLICATION_JSON)
+                )
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].tracking_number").value("ABC123XYZ"))
+                .andExpect(jsonPath("$.next_cursor").value("c2"));
+    }
+
+    @Test
+    @DisplayName("GET /customers/{id}/tracking-numbers with an unknown status → 400 Bad Request")
+    void list_unknownStatus_returns400() throws Exception {
+        mockMvc.perform(get("/api/v1/customers/{id}/tracking-numbers", UUID.randomUUID())
+                        .param("status", "LOST")
+                        .accept(MediaType.APPLICATION_JSON)
+                )
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(service);
+    }
+}
@@ -2,6 +2,8 @@ package io.github.bluething.java.bolttrack.rest;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.bluething.java.bolttrack.domain.SnowflakeId;
+import io.github.bluething.java.bolttrack.domain.TrackingNumberCodec;
 import io.github.bluething.java.bolttrack.persistence.TrackingNumberDocument;
 import org.bson.Document;
 import org.bson.types.Decimal128;
@@ -68,7 +70,7 @@ class TrackingNumberIT {
     private void addDummy() {
         existing = new TrackingNumberDocument(
                 null,
-                "DEF123XYZ",
+                minted(1),
                 "MY",
                 "ID",
                 new BigDecimal("1.234"),
@@ -82,6 +84,15 @@ class TrackingNumberIT {
         existing = mongoTemplate.insert(existing);
     }
 
+    /**
+     * A tracking number as the generator would mint it right now; numbers minted longer ago than
+     * tracking.validation.max-age are answered with 404 without a lookup.
+     */
+    private static String minted(int sequence) {
+        long sinceEpoch = Instant.now().toEpochMilli() - new SnowflakeId(0, 0, 0).generatedAt().toEpochMilli();
+        return TrackingNumberCodec.encode(SnowflakeId.toRawId(sinceEpoch, 1, sequence));
+    }
+
     @Test
     @DisplayName("GET /next-tracking-number with valid params → 200 + persists document")
     void nextViaGet_validRequest_persistsAndReturns() throws Exception {
@@ -160,7 +171,7 @@ class TrackingNumberIT {
         // arrange: create & insert a document
         TrackingNumberDocument doc = new TrackingNumberDocument (
                 null,
-                "ABC123XYZ",
+                minted(2),
                 "MY",
                 "ID",
                 new BigDecimal("1.234"),
@@ -175,6 +186,7 @@ class TrackingNumberIT {
 
         // act & assert
         var mvc = mockMvc.perform(get("/api/v1/track/{tn}", doc.getTrackingNumber())
+                        .param("include", "metadata")
                         .accept("application/json"))
                 .andExpect(status().isOk())
                 .andExpect(content().contentTypeCompatibleWith("application/json"))
@@ -203,7 +215,7 @@ class TrackingNumberIT {
     @Test
     @DisplayName("GET /track/{tracking_number} with non-existent record → 404 Not Found")
     void detail_nonExistent_returns404() throws Exception {
-        mockMvc.perform(get("/api/v1/track/{tn}", "NONEXISTENT123")
+        mockMvc.perform(get("/api/v1/track/{tn}", minted(3))
                         .accept("application/json"))
                 .andExpect(status().isNotFound());
         // ensure collection is still empty
@@ -300,15 +312,16 @@ class TrackingNumberIT {
         // drop collection to ensure non-existence
         mongoTemplate.dropCollection("tracking_numbers");
 
+        String trackingNumber = minted(4);
         String payload = objectMapper.writeValueAsString(Map.of("status", "PICKED_UP"));
-        mockMvc.perform(patch("/api/v1/track/{tn}/status", "DOESNOTEXIST")
+        mockMvc.perform(patch("/api/v1/track/{tn}/status", trackingNumber)
                         .contentType(APPLICATION_JSON)
                         .content(payload)
                         .accept(APPLICATION_JSON)
                 )
                 .andExpect(status().isNotFound())
                 .andExpect(jsonPath("$.message", containsString("Resource TrackingNumber not found with identifier")))
-                .andExpect(jsonPath("$.path").value("/api/v1/track/DOESNOTEXIST/status"));
+                .andExpect(jsonPath("$.path").value("/api/v1/track/" + trackingNumber + "/status"));
     }
 
 }